@@ -0,0 +1,80 @@
+package qengine.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import qengine.model.RDFAtom;
+import qengine.storage.RDFStorage;
+
+/**
+ * Latence de {@link RDFStorage#match(RDFAtom)} pour chaque combinaison de
+ * positions fixées, toutes réponses parcourues.
+ * <p>
+ * Le motif nomme les positions fixées : {@code SP_} est {@code s p ?o}, {@code ___}
+ * est {@code ?s ?p ?o}. Les constantes sont celles du triplet au milieu du jeu de
+ * données.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AtomMatchBenchmark {
+
+	@Param({"hexastore", "bigtable"})
+	private String store;
+
+	@Param({"10000", "100000", "1000000"})
+	private int triples;
+
+	@Param({"SPO", "SP_", "S_O", "_PO", "S__", "_P_", "__O", "___"})
+	private String pattern;
+
+	private RDFStorage storage;
+	private RDFAtom atom;
+
+	@Setup
+	public void setup() throws IOException {
+		Path dataset = BenchmarkData.dataset(triples);
+		storage = BenchmarkData.load(store, dataset);
+		List<RDFAtom> atoms = BenchmarkData.atoms(dataset);
+		RDFAtom sample = atoms.get(atoms.size() / 2);
+		SameObjectTermFactory factory = SameObjectTermFactory.instance();
+		String[] variables = {"?s", "?p", "?o"};
+		Term[] terms = new Term[3];
+		for (int position = 0; position < 3; position++) {
+			terms[position] = pattern.charAt(position) == '_'
+					? factory.createOrGetVariable(variables[position])
+					: sample.getTerm(position);
+		}
+		atom = new RDFAtom(terms);
+	}
+
+	@Benchmark
+	public void match(Blackhole blackhole) {
+		Iterator<Substitution> answers = storage.match(atom);
+		while (answers.hasNext()) {
+			blackhole.consume(answers.next());
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package qengine.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+
+import fr.boreal.model.query.api.Query;
+import qengine.model.RDFAtom;
+import qengine.model.StarQuery;
+import qengine.parser.RDFAtomParser;
+import qengine.parser.StarQuerySparQLParser;
+import qengine.storage.RDFBigTableStore;
+import qengine.storage.RDFHexaStore;
+import qengine.storage.RDFStorage;
+
+/**
+ * Jeux de données communs aux bancs d'essai.
+ * <p>
+ * Les triplets sont lus dans le fichier N-Triples donné par la propriété système
+ * {@value #DATA_PROPERTY} et les requêtes dans le queryset donné par
+ * {@value #QUERIES_PROPERTY} (par défaut {@value #DEFAULT_QUERY_FILE}). Un jeu de n
+ * triplets est formé des n premières lignes du fichier, recopiées dans un fichier
+ * temporaire pour que les chargements passent par le parseur comme en production.
+ * <p>
+ * Sans fichier de données, le jeu est synthétique : n triplets distincts tirés des
+ * requêtes du queryset, pour que chaque paramètre {@code triples} mesure bien un
+ * store de cette taille et que les requêtes aient des réponses.
+ */
+final class BenchmarkData {
+
+	static final String DATA_PROPERTY = "qengine.benchmark.data";
+	static final String QUERIES_PROPERTY = "qengine.benchmark.queries";
+
+	static final String DEFAULT_QUERY_FILE = "data/STAR_ALL_workload.queryset";
+
+	private BenchmarkData() {
+	}
+
+	static final String SYNTHETIC_NAMESPACE = "http://db.uwaterloo.ca/~galuc/wsdbm/Synthetic";
+	static final long SYNTHETIC_SEED = 42;
+
+	/**
+	 * Écrit un jeu de {@code triples} triplets dans un fichier temporaire, supprimé
+	 * à l'arrêt de la JVM : les premières lignes du fichier de données s'il est
+	 * donné, un jeu synthétique sinon.
+	 *
+	 * @throws IllegalStateException si le fichier de données a moins de
+	 *                               {@code triples} lignes
+	 */
+	static Path dataset(int triples) throws IOException {
+		Path dataset = Files.createTempFile("qengine-benchmark-", ".nt");
+		dataset.toFile().deleteOnExit();
+		String dataFile = System.getProperty(DATA_PROPERTY);
+		try (BufferedWriter writer = Files.newBufferedWriter(dataset, StandardCharsets.UTF_8)) {
+			if (dataFile == null) {
+				writeSynthetic(triples, writer);
+			} else {
+				copyLines(Path.of(dataFile), triples, writer);
+			}
+		}
+		return dataset;
+	}
+
+	private static void copyLines(Path dataFile, int triples, BufferedWriter writer) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(dataFile, StandardCharsets.UTF_8)) {
+			int copied = 0;
+			String line;
+			while (copied < triples && (line = reader.readLine()) != null) {
+				writer.write(line);
+				writer.newLine();
+				copied++;
+			}
+			if (copied < triples) {
+				throw new IllegalStateException(dataFile + " has " + copied + " lines, " + triples + " requested.");
+			}
+		}
+	}
+
+	/**
+	 * Écrit {@code triples} triplets distincts : chaque sujet reçoit tous les atomes
+	 * d'une requête du queryset tirée au hasard, le sujet remplaçant la variable
+	 * centrale. Le tirage est déterministe, d'un fork à l'autre.
+	 */
+	private static void writeSynthetic(int triples, BufferedWriter writer) throws IOException {
+		List<StarQuery> queries = queries();
+		if (queries.isEmpty()) {
+			throw new IllegalStateException("No star query to derive a synthetic dataset from.");
+		}
+		Random random = new Random(SYNTHETIC_SEED);
+		int written = 0;
+		for (int subject = 0; written < triples; subject++) {
+			List<RDFAtom> atoms = queries.get(random.nextInt(queries.size())).getRdfAtoms();
+			// Une requête peut répéter un atome
+			Set<String> lines = new HashSet<>();
+			for (int i = 0; i < atoms.size() && written < triples; i++) {
+				RDFAtom atom = atoms.get(i);
+				String line = "<" + SYNTHETIC_NAMESPACE + subject + "> <" + atom.getTriplePredicate().label() + "> <"
+						+ atom.getTripleObject().label() + "> .";
+				if (lines.add(line)) {
+					writer.write(line);
+					writer.newLine();
+					written++;
+				}
+			}
+		}
+	}
+
+	static List<RDFAtom> atoms(Path dataset) throws IOException {
+		List<RDFAtom> atoms = new ArrayList<>();
+		try (RDFAtomParser parser = new RDFAtomParser(new FileReader(dataset.toFile()), RDFFormat.NTRIPLES)) {
+			while (parser.hasNext()) {
+				atoms.add(parser.next());
+			}
+		}
+		return atoms;
+	}
+
+	/**
+	 * @return les requêtes en étoile du queryset qui ont {@code size} atomes
+	 */
+	static List<StarQuery> queries(int size) throws IOException {
+		List<StarQuery> queries = new ArrayList<>();
+		for (StarQuery query : queries()) {
+			if (query.getRdfAtoms().size() == size) {
+				queries.add(query);
+			}
+		}
+		return queries;
+	}
+
+	private static List<StarQuery> queries() throws IOException {
+		List<StarQuery> queries = new ArrayList<>();
+		try (StarQuerySparQLParser parser = new StarQuerySparQLParser(System.getProperty(QUERIES_PROPERTY,
+				DEFAULT_QUERY_FILE))) {
+			while (parser.hasNext()) {
+				Query query = parser.next();
+				if (query instanceof StarQuery starQuery) {
+					queries.add(starQuery);
+				}
+			}
+		}
+		return queries;
+	}
+
+	/**
+	 * Charge un jeu de données dans un store neuf, avec le parseur rdf4j.
+	 *
+	 * @param kind {@code hexastore} (scellé après chargement) ou {@code bigtable}
+	 */
+	static RDFStorage load(String kind, Path dataset) throws IOException {
+		return load(kind, dataset, "rdf4j");
+	}
+
+	/**
+	 * @param loader {@code rdf4j} ({@code loadPersistentData}) ou {@code scanner}
+	 *               ({@code scanPersistentData})
+	 */
+	static RDFStorage load(String kind, Path dataset, String loader) throws IOException {
+		boolean scanner = switch (loader) {
+			case "rdf4j" -> false;
+			case "scanner" -> true;
+			default -> throw new IllegalArgumentException("Unknown loader: " + loader);
+		};
+		switch (kind) {
+			case "hexastore" -> {
+				RDFHexaStore store = new RDFHexaStore();
+				if (scanner) {
+					store.scanPersistentData(dataset.toString());
+				} else {
+					store.loadPersistentData(dataset.toString());
+				}
+				store.seal();
+				return store;
+			}
+			case "bigtable" -> {
+				RDFBigTableStore store = new RDFBigTableStore();
+				if (scanner) {
+					store.scanPersistentData(dataset.toString());
+				} else {
+					store.loadPersistentData(dataset.toString());
+				}
+				return store;
+			}
+			default -> throw new IllegalArgumentException("Unknown store: " + kind);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package qengine.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import qengine.storage.RDFStorage;
+
+/**
+ * Durée d'un chargement complet dans un store neuf (scellement compris pour
+ * l'hexastore), par le parseur rdf4j ({@code loadPersistentData}) ou par
+ * {@code NTriplesScanner} ({@code scanPersistentData}). Le débit en triplets par
+ * seconde s'obtient en divisant {@code triples} par le temps mesuré.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadBenchmark {
+
+	@Param({"hexastore", "bigtable"})
+	private String store;
+
+	@Param({"rdf4j", "scanner"})
+	private String loader;
+
+	@Param({"10000", "100000", "1000000"})
+	private int triples;
+
+	private Path dataset;
+
+	@Setup
+	public void setup() throws IOException {
+		dataset = BenchmarkData.dataset(triples);
+	}
+
+	@Benchmark
+	public RDFStorage load() throws IOException {
+		return BenchmarkData.load(store, dataset, loader);
+	}
+}
@@ -0,0 +1,82 @@
+package qengine.benchmark;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import qengine.model.StarQuery;
+import qengine.storage.RDFHexaStore;
+import qengine.storage.RDFStorage;
+
+/**
+ * Latence de {@link RDFStorage#match(StarQuery)} sur des requêtes WatDiv de 1 à 4
+ * atomes, toutes réponses parcourues.
+ * <p>
+ * Pour chaque taille, la requête retenue est la première du queryset qui a au moins
+ * une réponse sur le jeu de données (à défaut, la première de cette taille). Sauf
+ * si {@code caches} est vrai, les caches de réponses et de candidats de l'hexastore
+ * sont vidés avant chaque évaluation, pour mesurer l'évaluation elle-même.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StarQueryBenchmark {
+
+	@Param({"hexastore", "bigtable"})
+	private String store;
+
+	@Param({"10000", "100000", "1000000"})
+	private int triples;
+
+	@Param({"1", "2", "3", "4"})
+	private int atoms;
+
+	@Param({"false"})
+	private boolean caches;
+
+	private RDFStorage storage;
+	private StarQuery query;
+
+	@Setup
+	public void setup() throws IOException {
+		storage = BenchmarkData.load(store, BenchmarkData.dataset(triples));
+		List<StarQuery> queries = BenchmarkData.queries(atoms);
+		if (queries.isEmpty()) {
+			throw new IllegalStateException("No star query with " + atoms + " atoms in the queryset.");
+		}
+		query = queries.stream()
+				.filter(q -> storage.match(q).hasNext())
+				.findFirst()
+				.orElse(queries.get(0));
+	}
+
+	@Benchmark
+	public void match(Blackhole blackhole) {
+		if (!caches && storage instanceof RDFHexaStore hexaStore) {
+			hexaStore.resultCache().clear();
+			hexaStore.candidateCache().clear();
+		}
+		Iterator<Substitution> answers = storage.match(query);
+		while (answers.hasNext()) {
+			blackhole.consume(answers.next());
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package qengine.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fr.boreal.model.logicalElements.api.Term;
+import qengine.model.RDFAtom;
+import qengine.util.ConcurrentTermEncoder;
+import qengine.util.TermEncoder;
+
+/**
+ * Coût de l'encodage par {@link TermEncoder#encode(Term)} de tous les termes des
+ * {@code triples} premiers triplets, dans un dictionnaire neuf (agrandissements
+ * compris), et coût par terme de {@link TermEncoder#decode(int)} sur des
+ * identifiants tirés au hasard. {@link #encodeConcurrently()} encode les mêmes
+ * termes dans un {@link ConcurrentTermEncoder}, depuis tous les threads du pool
+ * commun.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TermEncoderBenchmark {
+
+	private static final int DECODES = 1 << 16;
+
+	@Param({"10000", "100000", "1000000"})
+	private int triples;
+
+	private Term[] terms;
+	private TermEncoder encoder;
+	private int[] codes;
+
+	@Setup
+	public void setup() throws IOException {
+		List<RDFAtom> atoms = BenchmarkData.atoms(BenchmarkData.dataset(triples));
+		terms = new Term[3 * atoms.size()];
+		for (int i = 0; i < atoms.size(); i++) {
+			for (int position = 0; position < 3; position++) {
+				terms[3 * i + position] = atoms.get(i).getTerm(position);
+			}
+		}
+		encoder = new TermEncoder();
+		for (Term term : terms) {
+			encoder.encode(term);
+		}
+		SplittableRandom random = new SplittableRandom(42);
+		codes = random.ints(DECODES, 0, encoder.size()).toArray();
+	}
+
+	/**
+	 * Encode tous les termes des triplets, dont la plupart sont des répétitions.
+	 */
+	@Benchmark
+	public TermEncoder encode() {
+		TermEncoder fresh = new TermEncoder();
+		for (Term term : terms) {
+			fresh.encode(term);
+		}
+		return fresh;
+	}
+
+	/**
+	 * Encode tous les termes des triplets, répartis en tranches entre les threads du
+	 * pool commun.
+	 */
+	@Benchmark
+	public ConcurrentTermEncoder encodeConcurrently() {
+		ConcurrentTermEncoder fresh = new ConcurrentTermEncoder();
+		int slices = 4 * ForkJoinPool.getCommonPoolParallelism();
+		IntStream.range(0, slices).parallel().forEach(slice -> {
+			int end = (int) ((long) terms.length * (slice + 1) / slices);
+			for (int i = (int) ((long) terms.length * slice / slices); i < end; i++) {
+				fresh.encode(terms[i]);
+			}
+		});
+		return fresh;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DECODES)
+	public void decode(Blackhole blackhole) {
+		for (int code : codes) {
+			blackhole.consume(encoder.decode(code));
+		}
+	}
+}
@@ -0,0 +1,321 @@
+package qengine.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import qengine.util.LabelEncoder;
+
+/**
+ * Lecteur N-Triples rapide, qui encode les triplets d'un fichier sans passer par
+ * rdf4j ni créer d'atomes.
+ * <p>
+ * Le fichier est projeté en mémoire ({@link MappedByteBuffer}) par fenêtres d'au
+ * plus {@link #WINDOW_SIZE} octets, coupées en fin de ligne, et parcouru octet par
+ * octet. Le {@link String#hashCode()} de chaque label est calculé au vol, et le
+ * label est cherché dans le dictionnaire directement dans le tampon
+ * ({@link LabelEncoder#encodeAscii}) : un terme déjà connu ne coûte ni chaîne ni
+ * objet. Seuls les labels qui contiennent un échappement ou un octet non ASCII
+ * sont décodés en chaîne.
+ * <p>
+ * Pour les IRI et les littéraux, les labels sont ceux de {@link RDFAtomParser} :
+ * l'IRI sans ses chevrons, la forme lexicale d'un littéral (sans type ni langue).
+ * Un nœud anonyme a pour label son identifiant dans le fichier, sans le préfixe
+ * {@code _:} ({@code _:b0} devient {@code b0}). Rio, sur lequel s'appuie
+ * {@link RDFAtomParser}, ne conserve pas ces identifiants : les deux lecteurs
+ * donnent alors les mêmes triplets, à un renommage des nœuds anonymes près, et des
+ * réponses qui contiennent des nœuds anonymes ne se comparent pas label à label
+ * avec celles d'InteGraal. C'est pourquoi le chargement par défaut des stores reste
+ * celui de rdf4j, et {@code OracleHarness} charge tous les moteurs avec les mêmes
+ * atomes.
+ */
+public final class NTriplesScanner {
+
+    public static final int WINDOW_SIZE = 1 << 30;
+
+    /**
+     * Reçoit les identifiants des triplets lus.
+     */
+    @FunctionalInterface
+    public interface TripleConsumer {
+        void accept(int subject, int predicate, int object);
+    }
+
+    private final ByteBuffer buffer;
+    private final LabelEncoder encoder;
+    private final long base;
+    private int position;
+
+    // Le dernier terme lu : ses bornes dans le tampon, son hachage, et s'il faut le décoder
+    private int from;
+    private int to;
+    private int hashCode;
+    private boolean plain;
+
+    private NTriplesScanner(ByteBuffer buffer, LabelEncoder encoder, long base) {
+        this.buffer = buffer;
+        this.encoder = encoder;
+        this.base = base;
+    }
+
+    /**
+     * Lit tous les triplets d'un fichier N-Triples.
+     *
+     * @return le nombre de triplets lus
+     * @throws IllegalArgumentException si une ligne n'est pas un triplet N-Triples
+     */
+    public static long scan(Path path, LabelEncoder encoder, TripleConsumer consumer) throws IOException {
+        long triples = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(WINDOW_SIZE, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = (int) length;
+                if (position + length < size) {
+                    while (end > 0 && window.get(end - 1) != '\n') {
+                        end--;
+                    }
+                    if (end == 0) {
+                        throw new IllegalArgumentException("Line too long at byte " + position + ".");
+                    }
+                }
+                triples += scan(window, 0, end, position, encoder, consumer);
+                position += end;
+            }
+        }
+        return triples;
+    }
+
+    /**
+     * Lit les triplets des lignes complètes de {@code buffer[from, to[}.
+     *
+     * @param base la position de {@code buffer} dans le fichier, pour les messages d'erreur
+     * @return le nombre de triplets lus
+     */
+    public static long scan(ByteBuffer buffer, int from, int to, long base, LabelEncoder encoder,
+            TripleConsumer consumer) {
+        NTriplesScanner scanner = new NTriplesScanner(buffer, encoder, base);
+        scanner.position = from;
+        long triples = 0;
+        while (scanner.skipToTriple(to)) {
+            int subject = scanner.term(to);
+            int predicate = scanner.term(to);
+            int object = scanner.term(to);
+            scanner.endOfTriple(to);
+            consumer.accept(subject, predicate, object);
+            triples++;
+        }
+        return triples;
+    }
+
+    /**
+     * Saute les blancs, lignes vides et commentaires.
+     *
+     * @return false à la fin de la zone
+     */
+    private boolean skipToTriple(int end) {
+        while (position < end) {
+            byte b = buffer.get(position);
+            if (b == '#') {
+                skipLine(end);
+            } else if (b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                position++;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void skipLine(int end) {
+        while (position < end && buffer.get(position) != '\n') {
+            position++;
+        }
+    }
+
+    private void skipBlanks(int end) {
+        while (position < end && (buffer.get(position) == ' ' || buffer.get(position) == '\t')) {
+            position++;
+        }
+    }
+
+    private void endOfTriple(int end) {
+        skipBlanks(end);
+        if (position >= end || buffer.get(position) != '.') {
+            throw malformed("'.' expected");
+        }
+        position++;
+        skipBlanks(end);
+        if (position < end && buffer.get(position) == '#') {
+            skipLine(end);
+        }
+        if (position < end && buffer.get(position) != '\n' && buffer.get(position) != '\r') {
+            throw malformed("end of line expected");
+        }
+    }
+
+    /**
+     * Lit un terme et renvoie son identifiant.
+     */
+    private int term(int end) {
+        skipBlanks(end);
+        if (position >= end) {
+            throw malformed("term expected");
+        }
+        byte b = buffer.get(position);
+        if (b == '<') {
+            position++;
+            scanUntil(end, '>');
+            position++;
+        } else if (b == '"') {
+            position++;
+            scanUntil(end, '"');
+            position++;
+            skipLiteralSuffix(end);
+        } else if (b == '_' && position + 1 < end && buffer.get(position + 1) == ':') {
+            position += 2;
+            scanBlankNode(end);
+        } else {
+            throw malformed("term expected");
+        }
+        if (plain) {
+            return encoder.encodeAscii(buffer, from, to, hashCode);
+        }
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return encoder.encodeLabel(unescape(new String(bytes, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Avance jusqu'au délimiteur non échappé {@code delimiter}, en calculant le
+     * hachage du label.
+     */
+    private void scanUntil(int end, char delimiter) {
+        from = position;
+        int h = 0;
+        boolean ascii = true;
+        byte b;
+        while (position < end && (b = buffer.get(position)) != delimiter) {
+            if (b == '\\') {
+                ascii = false;
+                position++;
+            } else if (b < 0) {
+                ascii = false;
+            } else if (b == '\n') {
+                break;
+            }
+            h = 31 * h + b;
+            position++;
+        }
+        if (position >= end || buffer.get(position) != delimiter) {
+            throw malformed("'" + delimiter + "' expected");
+        }
+        to = position;
+        hashCode = h;
+        plain = ascii;
+    }
+
+    private void scanBlankNode(int end) {
+        from = position;
+        int h = 0;
+        boolean ascii = true;
+        byte b;
+        while (position < end && (b = buffer.get(position)) != ' ' && b != '\t' && b != '\n' && b != '\r') {
+            // Un point final appartient au triplet, pas au nœud
+            if (b == '.' && (position + 1 >= end || isBlank(buffer.get(position + 1)))) {
+                break;
+            }
+            ascii &= b >= 0;
+            h = 31 * h + b;
+            position++;
+        }
+        if (position == from) {
+            throw malformed("blank node label expected");
+        }
+        to = position;
+        hashCode = h;
+        plain = ascii;
+    }
+
+    /**
+     * Saute l'étiquette de langue ou le type d'un littéral.
+     */
+    private void skipLiteralSuffix(int end) {
+        if (position >= end) {
+            return;
+        }
+        byte b = buffer.get(position);
+        if (b == '@') {
+            position++;
+            while (position < end && (isAsciiLetterOrDigit(buffer.get(position)) || buffer.get(position) == '-')) {
+                position++;
+            }
+        } else if (b == '^') {
+            if (position + 2 >= end || buffer.get(position + 1) != '^' || buffer.get(position + 2) != '<') {
+                throw malformed("datatype expected");
+            }
+            while (position < end && buffer.get(position) != '>') {
+                position++;
+            }
+            if (position >= end) {
+                throw malformed("'>' expected");
+            }
+            position++;
+        }
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean isAsciiLetterOrDigit(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9');
+    }
+
+    /**
+     * Remplace les échappements N-Triples (tabulation, guillemet, point de code
+     * Unicode…) par les caractères qu'ils désignent.
+     */
+    static String unescape(String text) {
+        int backslash = text.indexOf('\\');
+        if (backslash < 0) {
+            return text;
+        }
+        StringBuilder result = new StringBuilder(text.length()).append(text, 0, backslash);
+        for (int i = backslash; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\\' || i + 1 == text.length()) {
+                result.append(c);
+                continue;
+            }
+            char escaped = text.charAt(++i);
+            switch (escaped) {
+                case 't' -> result.append('\t');
+                case 'b' -> result.append('\b');
+                case 'n' -> result.append('\n');
+                case 'r' -> result.append('\r');
+                case 'f' -> result.append('\f');
+                case 'u', 'U' -> {
+                    int digits = escaped == 'u' ? 4 : 8;
+                    if (i + digits >= text.length()) {
+                        throw new IllegalArgumentException("Truncated escape in: " + text);
+                    }
+                    result.appendCodePoint(Integer.parseInt(text, i + 1, i + 1 + digits, 16));
+                    i += digits;
+                }
+                default -> result.append(escaped);
+            }
+        }
+        return result.toString();
+    }
+
+    private IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("Malformed N-Triples at byte " + (base + position) + ": " + reason + ".");
+    }
+}
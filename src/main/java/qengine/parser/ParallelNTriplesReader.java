@@ -0,0 +1,291 @@
+package qengine.parser;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import qengine.util.ConcurrentTermEncoder;
+import qengine.util.TermEncoder;
+
+/**
+ * Lecture parallèle d'un fichier N-Triples : le fichier est découpé en tranches
+ * d'environ {@code chunkSize} octets, coupées en fin de ligne, que {@code parsers}
+ * threads se partagent au fil de l'eau.
+ * <p>
+ * Chaque thread projette ses tranches en mémoire et les lit avec
+ * {@link NTriplesScanner}, en encodant les termes dans un même
+ * {@link ConcurrentTermEncoder}. Les triplets encodés sont regroupés par lots de
+ * {@code batchSize} et passent par une file bornée ({@code queueCapacity} lots) :
+ * quand le consommateur n'indexe pas assez vite, les threads de lecture attendent.
+ * <p>
+ * Les lots sont consommés par le thread qui appelle {@link #read}. Il traduit au
+ * passage les identifiants du dictionnaire partagé dans ceux du dictionnaire du
+ * store ({@link TermEncoder#encode}) : la traduction d'un terme déjà vu est une
+ * lecture de tableau. Les tranches étant lues dans un ordre qui dépend de
+ * l'ordonnancement, les triplets, et donc les identifiants des nouveaux termes,
+ * n'arrivent pas dans l'ordre du fichier.
+ */
+public final class ParallelNTriplesReader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+    public static final int DEFAULT_BATCH_SIZE = 1 << 14;
+
+    /**
+     * Reçoit un lot de triplets encodés (sujet, prédicat, objet consécutifs). Le
+     * tableau appartient au consommateur.
+     */
+    @FunctionalInterface
+    public interface BatchConsumer {
+        void accept(int[] triples, int length);
+    }
+
+    private record Batch(int[] triples, int length) {
+    }
+
+    // Signale la fin d'un thread de lecture
+    private static final Batch END = new Batch(new int[0], 0);
+
+    private final int parsers;
+    private final int chunkSize;
+    private final int batchSize;
+    private final int queueCapacity;
+
+    /**
+     * Crée un lecteur de {@code parsers} threads, avec une file de quatre lots par thread.
+     */
+    public ParallelNTriplesReader(int parsers) {
+        this(parsers, DEFAULT_CHUNK_SIZE, DEFAULT_BATCH_SIZE, 4 * parsers);
+    }
+
+    /**
+     * @param chunkSize     la taille visée des tranches, en octets
+     * @param batchSize     le nombre de triplets par lot
+     * @param queueCapacity le nombre de lots en attente au-delà duquel les threads
+     *                      de lecture sont suspendus
+     */
+    public ParallelNTriplesReader(int parsers, int chunkSize, int batchSize, int queueCapacity) {
+        if (parsers <= 0 || batchSize <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Parsers, batch size and queue capacity must be positive.");
+        }
+        if (chunkSize <= 0 || chunkSize > NTriplesScanner.WINDOW_SIZE) {
+            throw new IllegalArgumentException("Chunk size out of range: " + chunkSize);
+        }
+        this.parsers = parsers;
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Lit tous les triplets d'un fichier N-Triples.
+     *
+     * @param encoder  le dictionnaire du store, dans lequel les lots sont traduits
+     * @param consumer appelé sur le thread courant pour chaque lot
+     * @return le nombre de triplets lus
+     * @throws IllegalArgumentException si une ligne n'est pas un triplet N-Triples
+     */
+    public long read(Path path, TermEncoder encoder, BatchConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            ConcurrentTermEncoder shared = new ConcurrentTermEncoder();
+            BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(queueCapacity);
+            AtomicInteger nextChunk = new AtomicInteger();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread[] workers = new Thread[parsers];
+            for (int t = 0; t < parsers; t++) {
+                workers[t] = Thread.ofPlatform().name("ntriples-parser-" + t).start(
+                        () -> parse(channel, bounds, nextChunk, shared, queue, failure));
+            }
+
+            long triples = 0;
+            int finished = 0;
+            // Identifiant du store + 1 de chaque identifiant partagé, 0 = pas encore traduit
+            int[] translation = new int[1 << 10];
+            try {
+                while (finished < parsers) {
+                    Batch batch = queue.take();
+                    if (batch == END) {
+                        finished++;
+                        continue;
+                    }
+                    int[] ids = batch.triples;
+                    for (int i = 0; i < batch.length; i++) {
+                        int id = ids[i];
+                        if (id >= translation.length) {
+                            translation = Arrays.copyOf(translation, Math.max(2 * translation.length, id + 1));
+                        }
+                        if (translation[id] == 0) {
+                            translation[id] = encoder.encode(shared.decode(id)) + 1;
+                        }
+                        ids[i] = translation[id] - 1;
+                    }
+                    consumer.accept(ids, batch.length);
+                    triples += batch.length / 3;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while loading " + path);
+            } finally {
+                if (finished < parsers) {
+                    for (Thread worker : workers) {
+                        worker.interrupt();
+                    }
+                }
+                joinUninterruptibly(workers);
+            }
+            rethrow(failure.get());
+            return triples;
+        }
+    }
+
+    /**
+     * @return les bornes des tranches : la tranche i couvre [bounds[i], bounds[i + 1][
+     */
+    private long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(1 << 12);
+        long position = chunkSize;
+        while (position < size) {
+            // Début de la première ligne qui commence à partir de position
+            long lineStart = -1;
+            long offset = position - 1;
+            while (lineStart < 0 && offset < size) {
+                probe.clear();
+                int read = channel.read(probe, offset);
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        lineStart = offset + i + 1;
+                        break;
+                    }
+                }
+                offset += Math.max(read, 0);
+                if (read < 0) {
+                    break;
+                }
+            }
+            if (lineStart < 0 || lineStart >= size) {
+                break;
+            }
+            if (lineStart - bounds.get(bounds.size() - 1) > NTriplesScanner.WINDOW_SIZE) {
+                throw new IllegalArgumentException("Line too long near byte " + position + ".");
+            }
+            bounds.add(lineStart);
+            position = lineStart + chunkSize;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private void parse(FileChannel channel, long[] bounds, AtomicInteger nextChunk, ConcurrentTermEncoder shared,
+            BlockingQueue<Batch> queue, AtomicReference<Throwable> failure) {
+        Batcher batcher = new Batcher(queue);
+        try {
+            int chunk;
+            while (failure.get() == null && (chunk = nextChunk.getAndIncrement()) < bounds.length - 1) {
+                long start = bounds[chunk];
+                int length = (int) (bounds[chunk + 1] - start);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                NTriplesScanner.scan(buffer, 0, length, start, shared, batcher);
+            }
+            batcher.flush();
+        } catch (CancellationException e) {
+            // Lecture abandonnée par le consommateur
+            return;
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        }
+        try {
+            queue.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Regroupe les triplets d'un thread de lecture en lots.
+     */
+    private final class Batcher implements NTriplesScanner.TripleConsumer {
+        private final BlockingQueue<Batch> queue;
+        private int[] triples = new int[3 * batchSize];
+        private int length = 0;
+
+        Batcher(BlockingQueue<Batch> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void accept(int subject, int predicate, int object) {
+            triples[length++] = subject;
+            triples[length++] = predicate;
+            triples[length++] = object;
+            if (length == triples.length) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (length == 0) {
+                return;
+            }
+            try {
+                queue.put(new Batch(triples, length));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+            triples = new int[3 * batchSize];
+            length = 0;
+        }
+    }
+
+    private static void joinUninterruptibly(Thread[] workers) {
+        boolean interrupted = false;
+        for (Thread worker : workers) {
+            while (true) {
+                try {
+                    worker.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void rethrow(Throwable failure) throws IOException {
+        if (failure == null) {
+            return;
+        }
+        if (failure instanceof IOException e) {
+            throw e;
+        }
+        if (failure instanceof UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+        if (failure instanceof Error e) {
+            throw e;
+        }
+        throw new IOException(failure);
+    }
+}
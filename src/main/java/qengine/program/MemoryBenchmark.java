@@ -0,0 +1,183 @@
+package qengine.program;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+
+import fr.boreal.model.logicalElements.api.Term;
+import qengine.model.RDFAtom;
+import qengine.parser.RDFAtomParser;
+import qengine.util.CsrTripleIndex;
+import qengine.util.FrontCodedTermDictionary;
+import qengine.util.HexaStoreIndex;
+import qengine.util.HexaStoreSearchTree;
+import qengine.util.TermEncoder;
+
+/**
+ * Compare l'occupation mémoire des six index de l'hexastore selon trois
+ * représentations : l'ancienne ({@link HexaStoreSearchTree}, HashMap de HashMap de
+ * Set d'Integer), la représentation modifiable ({@link HexaStoreIndex}, tables
+ * d'entiers à adressage ouvert) et la représentation figée ({@link CsrTripleIndex}).
+ * Compare aussi l'occupation du dictionnaire : deux HashMap (label -> identifiant et
+ * identifiant -> terme) contre le {@link TermEncoder} à tableaux, et la taille du
+ * dictionnaire projeté des instantanés ({@link FrontCodedTermDictionary}).
+ * <p>
+ * Usage : {@code MemoryBenchmark [fichier.nt]}. Pour des mesures stables, lancer
+ * la JVM avec un tas fixe (par exemple {@code -Xms4g -Xmx4g}).
+ */
+public final class MemoryBenchmark {
+
+	private static final String DEFAULT_DATA_FILE = "data/sample_data.nt";
+
+	// Permutations (positions s=0, p=1, o=2) des six index de l'hexastore
+	private static final int[][] ORDERS = {
+			{0, 2, 1}, {0, 1, 2}, {1, 0, 2}, {1, 2, 0}, {2, 1, 0}, {2, 0, 1}
+	};
+
+	private MemoryBenchmark() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		String dataFile = args.length > 0 ? args[0] : DEFAULT_DATA_FILE;
+		TermEncoder encoder = new TermEncoder();
+		int[] triples = encode(dataFile, encoder);
+		int count = triples.length / 3;
+		System.out.println("Triples: " + count);
+		System.out.println("Terms: " + encoder.size());
+
+		Term[] terms = new Term[encoder.size()];
+		Arrays.setAll(terms, encoder::decode);
+		long boxedDictionary = measure(triples, n -> {
+			Map<String, Integer> encoding = new HashMap<>();
+			Map<Integer, Term> decoding = new HashMap<>();
+			for (int code = 0; code < terms.length; code++) {
+				encoding.put(terms[code].label(), code);
+				decoding.put(code, terms[code]);
+			}
+			return new Map<?, ?>[]{encoding, decoding};
+		});
+		reportPerTerm("HashMap dictionary (boxed)", boxedDictionary, terms.length);
+		long arrayDictionary = measure(triples, n -> {
+			TermEncoder dictionary = new TermEncoder();
+			for (Term term : terms) {
+				dictionary.encode(term);
+			}
+			return new TermEncoder[]{dictionary};
+		});
+		reportPerTerm("TermEncoder (arrays)", arrayDictionary, terms.length);
+
+		// Dictionnaire des instantanés, mesuré par la taille de ses tampons
+		long frontCoded = FrontCodedTermDictionary.encode(encoder).byteSize();
+		reportPerTerm("FrontCodedTermDictionary", frontCoded, terms.length);
+
+		long boxed = measure(triples, n -> {
+			HexaStoreSearchTree<Integer>[] trees = newSearchTrees();
+			for (int t = 0; t < n; t++) {
+				for (int i = 0; i < ORDERS.length; i++) {
+					int[] order = ORDERS[i];
+					trees[i].computeIfAbsent(triples[3 * t + order[0]], k -> new HashMap<>())
+							.computeIfAbsent(triples[3 * t + order[1]], k -> new HashSet<>())
+							.add(triples[3 * t + order[2]]);
+				}
+			}
+			return trees;
+		});
+		report("HexaStoreSearchTree (boxed)", boxed, count);
+
+		long primitive = measure(triples, n -> {
+			HexaStoreIndex[] indexes = new HexaStoreIndex[ORDERS.length];
+			Arrays.setAll(indexes, i -> new HexaStoreIndex());
+			for (int t = 0; t < n; t++) {
+				for (int i = 0; i < ORDERS.length; i++) {
+					int[] order = ORDERS[i];
+					indexes[i].add(triples[3 * t + order[0]], triples[3 * t + order[1]], triples[3 * t + order[2]]);
+				}
+			}
+			return indexes;
+		});
+		report("HexaStoreIndex (primitive)", primitive, count);
+
+		long sealed = measure(triples, n -> {
+			CsrTripleIndex[] indexes = new CsrTripleIndex[ORDERS.length];
+			int[] permuted = new int[3 * n];
+			for (int i = 0; i < ORDERS.length; i++) {
+				int[] order = ORDERS[i];
+				for (int t = 0; t < n; t++) {
+					permuted[3 * t] = triples[3 * t + order[0]];
+					permuted[3 * t + 1] = triples[3 * t + order[1]];
+					permuted[3 * t + 2] = triples[3 * t + order[2]];
+				}
+				indexes[i] = CsrTripleIndex.build(permuted, n);
+			}
+			return indexes;
+		});
+		report("CsrTripleIndex (sealed)", sealed, count);
+
+		if (primitive > 0) {
+			System.out.printf("Ratio boxed/primitive: %.2fx%n", (double) boxed / primitive);
+		}
+		if (sealed > 0) {
+			System.out.printf("Ratio primitive/sealed: %.2fx%n", (double) primitive / sealed);
+		}
+	}
+
+	private static int[] encode(String dataFile, TermEncoder encoder) throws IOException {
+		int[] triples = new int[3 * 1024];
+		int n = 0;
+		try (RDFAtomParser parser = new RDFAtomParser(new FileReader(dataFile), RDFFormat.NTRIPLES)) {
+			while (parser.hasNext()) {
+				RDFAtom atom = parser.next();
+				if (n + 3 > triples.length) {
+					triples = Arrays.copyOf(triples, triples.length * 2);
+				}
+				triples[n++] = encoder.encode(atom.getTripleSubject());
+				triples[n++] = encoder.encode(atom.getTriplePredicate());
+				triples[n++] = encoder.encode(atom.getTripleObject());
+			}
+		}
+		return Arrays.copyOf(triples, n);
+	}
+
+	/**
+	 * Construit la structure et mesure l'augmentation du tas qu'elle provoque.
+	 */
+	private static long measure(int[] triples, IntFunction<Object> builder) {
+		long before = usedHeap();
+		Object structure = builder.apply(triples.length / 3);
+		long after = usedHeap();
+		// Garde la structure vivante jusqu'à la seconde mesure
+		System.out.println("Built " + structure.getClass().getComponentType().getSimpleName() + "[]");
+		return after - before;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static void report(String label, long bytes, int triples) {
+		System.out.printf("%-28s %,15d bytes  %8.1f bytes/triple%n", label, bytes,
+				triples == 0 ? 0.0 : (double) bytes / triples);
+	}
+
+	private static void reportPerTerm(String label, long bytes, int terms) {
+		System.out.printf("%-28s %,15d bytes  %8.1f bytes/term%n", label, bytes,
+				terms == 0 ? 0.0 : (double) bytes / terms);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static HexaStoreSearchTree<Integer>[] newSearchTrees() {
+		HexaStoreSearchTree<Integer>[] trees = new HexaStoreSearchTree[ORDERS.length];
+		Arrays.setAll(trees, i -> new HexaStoreSearchTree<>());
+		return trees;
+	}
+}
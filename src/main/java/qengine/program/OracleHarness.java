@@ -0,0 +1,243 @@
+package qengine.program;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Variable;
+import qengine.model.RDFAtom;
+import qengine.model.StarQuery;
+
+/**
+ * Compare nos stores à InteGraal sur les querysets WatDiv : InteGraal sert
+ * d'oracle pour la correction et la complétude, et de référence pour les temps.
+ * <p>
+ * Le fichier N-Triples est lu une seule fois, par
+ * {@link qengine.parser.RDFAtomParser}, et les mêmes atomes sont chargés dans
+ * InteGraal, dans l'hexastore et dans la BigTable : les trois moteurs voient les
+ * mêmes labels, y compris pour les nœuds anonymes, que Rio peut renommer d'une
+ * lecture à l'autre. Chaque fichier {@code .queryset} du répertoire de requêtes
+ * forme un gabarit ; chaque requête est évaluée par chaque moteur jusqu'à sa
+ * dernière réponse, en deux phases :
+ * <ul>
+ * <li>froide : la toute première évaluation de chaque requête, JIT froid ;</li>
+ * <li>chaude : après {@code warmups} passes non mesurées sur tout le queryset.</li>
+ * </ul>
+ * Les caches de réponses et de candidats de l'hexastore sont vidés avant chacune
+ * de ses évaluations, dans les deux phases : les querysets WatDiv répètent souvent
+ * la même requête, et ses temps refléteraient sinon une relecture du cache alors
+ * qu'InteGraal évalue chaque requête.
+ * <p>
+ * Les ensembles de réponses de la phase froide sont comparés à ceux d'InteGraal ;
+ * chaque écart est écrit dans {@code mismatches.csv}. Les temps par gabarit,
+ * moteur et phase sont écrits dans {@code timings.csv}, avec l'accélération par
+ * rapport à InteGraal.
+ * <p>
+ * Usage : {@code OracleHarness <fichier.nt> [répertoire de requêtes] [répertoire de
+ * sortie] [warmups]}. Le programme se termine avec le code 1 si un moteur a donné
+ * une réponse différente de celle d'InteGraal.
+ */
+public final class OracleHarness {
+
+	private static final String DEFAULT_QUERY_DIR = "watdiv-mini-projet-partie-2/testsuite/queries";
+	private static final String DEFAULT_OUTPUT_DIR = "results";
+	private static final String ORACLE = "integraal";
+	private static final String HEXASTORE = "hexastore";
+	private static final List<String> ENGINES = List.of(ORACLE, HEXASTORE, "bigtable");
+
+	private OracleHarness() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: OracleHarness <data.nt> [queries dir] [output dir] [warmups]");
+			System.exit(1);
+		}
+		Path queryDir = Path.of(args.length > 1 ? args[1] : DEFAULT_QUERY_DIR);
+		Path outputDir = Path.of(args.length > 2 ? args[2] : DEFAULT_OUTPUT_DIR);
+		int warmups = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+		Map<String, List<StarQuery>> templates = parseTemplates(queryDir);
+		int queryCount = templates.values().stream().mapToInt(List::size).sum();
+		System.out.println("Templates: " + templates.size() + ", queries: " + queryCount);
+
+		long parseStart = System.nanoTime();
+		List<RDFAtom> atoms = WorkloadRunner.parseAtoms(args[0]);
+		System.out.printf("Parsed %d triples in %.1f ms%n", atoms.size(), (System.nanoTime() - parseStart) / 1e6);
+		Map<String, Function<StarQuery, Iterator<Substitution>>> engines = new LinkedHashMap<>();
+		for (String engine : ENGINES) {
+			long start = System.nanoTime();
+			// Sans cache, l'hexastore évalue chaque requête comme les autres moteurs
+			engines.put(engine, WorkloadRunner.openStore(engine, atoms, false));
+			System.out.printf("Loaded %s in %.1f ms%n", engine, (System.nanoTime() - start) / 1e6);
+		}
+
+		Files.createDirectories(outputDir);
+		int mismatches;
+		try (PrintWriter timings = new PrintWriter(Files.newBufferedWriter(outputDir.resolve("timings.csv")));
+				PrintWriter errors = new PrintWriter(Files.newBufferedWriter(outputDir.resolve("mismatches.csv")))) {
+			timings.println("phase,template,engine,queries,total_ms,mean_us,p50_us,p95_us,max_us,speedup");
+			errors.println("template,query,engine,expected_answers,actual_answers,missing,unexpected");
+
+			// Phase froide : premières évaluations, et vérification des réponses
+			Map<String, Map<String, long[]>> cold = new LinkedHashMap<>();
+			mismatches = 0;
+			for (Map.Entry<String, List<StarQuery>> template : templates.entrySet()) {
+				List<StarQuery> queries = template.getValue();
+				Map<String, long[]> latencies = new LinkedHashMap<>();
+				for (String engine : ENGINES) {
+					latencies.put(engine, new long[queries.size()]);
+				}
+				for (int i = 0; i < queries.size(); i++) {
+					StarQuery query = queries.get(i);
+					Set<List<String>> expected = null;
+					for (String engine : ENGINES) {
+						long start = System.nanoTime();
+						List<Substitution> answers = evaluate(engines.get(engine), query);
+						latencies.get(engine)[i] = System.nanoTime() - start;
+						Set<List<String>> actual = answerSet(query, answers);
+						if (expected == null) {
+							expected = actual;
+						} else if (!expected.equals(actual)) {
+							mismatches++;
+							errors.println(mismatch(template.getKey(), i, engine, expected, actual));
+						}
+					}
+				}
+				cold.put(template.getKey(), latencies);
+			}
+			report(timings, "cold", cold);
+
+			// Phase chaude
+			for (int pass = 0; pass < warmups; pass++) {
+				for (List<StarQuery> queries : templates.values()) {
+					for (StarQuery query : queries) {
+						for (String engine : ENGINES) {
+							evaluate(engines.get(engine), query);
+						}
+					}
+				}
+			}
+			Map<String, Map<String, long[]>> warm = new LinkedHashMap<>();
+			for (Map.Entry<String, List<StarQuery>> template : templates.entrySet()) {
+				Map<String, long[]> latencies = new LinkedHashMap<>();
+				for (String engine : ENGINES) {
+					latencies.put(engine, time(engines.get(engine), template.getValue()));
+				}
+				warm.put(template.getKey(), latencies);
+			}
+			report(timings, "warm", warm);
+		}
+		System.out.println("Mismatches: " + mismatches);
+		System.out.println("Results written to " + outputDir);
+		if (mismatches > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * @return les requêtes de chaque fichier {@code .queryset} non vide du
+	 *         répertoire, par nom de fichier
+	 */
+	private static Map<String, List<StarQuery>> parseTemplates(Path queryDir) throws IOException {
+		Map<String, List<StarQuery>> templates = new LinkedHashMap<>();
+		try (Stream<Path> files = Files.list(queryDir)) {
+			for (Path file : files.filter(f -> f.toString().endsWith(".queryset")).sorted().toList()) {
+				List<StarQuery> queries = WorkloadRunner.parseQueries(file.toString());
+				if (!queries.isEmpty()) {
+					String name = file.getFileName().toString();
+					templates.put(name.substring(0, name.length() - ".queryset".length()), queries);
+				}
+			}
+		}
+		return templates;
+	}
+
+	private static List<Substitution> evaluate(Function<StarQuery, Iterator<Substitution>> engine, StarQuery query) {
+		List<Substitution> answers = new ArrayList<>();
+		Iterator<Substitution> iterator = engine.apply(query);
+		while (iterator.hasNext()) {
+			answers.add(iterator.next());
+		}
+		return answers;
+	}
+
+	private static long[] time(Function<StarQuery, Iterator<Substitution>> engine, List<StarQuery> queries) {
+		long[] latencies = new long[queries.size()];
+		for (int i = 0; i < latencies.length; i++) {
+			long start = System.nanoTime();
+			evaluate(engine, queries.get(i));
+			latencies[i] = System.nanoTime() - start;
+		}
+		return latencies;
+	}
+
+	/**
+	 * @return les réponses, chacune sous la forme des labels des images des
+	 *         variables réponses, dans leur ordre
+	 */
+	private static Set<List<String>> answerSet(StarQuery query, List<Substitution> answers) {
+		Set<List<String>> set = new HashSet<>();
+		for (Substitution answer : answers) {
+			List<String> labels = new ArrayList<>(query.getAnswerVariables().size());
+			for (Variable variable : query.getAnswerVariables()) {
+				labels.add(answer.createImageOf(variable).label());
+			}
+			set.add(labels);
+		}
+		return set;
+	}
+
+	private static String mismatch(String template, int query, String engine, Set<List<String>> expected,
+			Set<List<String>> actual) {
+		Set<List<String>> missing = new HashSet<>(expected);
+		missing.removeAll(actual);
+		Set<List<String>> unexpected = new HashSet<>(actual);
+		unexpected.removeAll(expected);
+		return String.join(",", template, Integer.toString(query), engine, Integer.toString(expected.size()),
+				Integer.toString(actual.size()), Integer.toString(missing.size()), Integer.toString(unexpected.size()));
+	}
+
+	private static void report(PrintWriter timings, String phase, Map<String, Map<String, long[]>> byTemplate) {
+		System.out.printf("%n%s%n%-45s", phase, "template");
+		for (String engine : ENGINES) {
+			System.out.printf(" %12s", engine + " ms");
+		}
+		System.out.println();
+		for (Map.Entry<String, Map<String, long[]>> template : byTemplate.entrySet()) {
+			long oracleTotal = Arrays.stream(template.getValue().get(ORACLE)).sum();
+			System.out.printf("%-45s", template.getKey());
+			for (Map.Entry<String, long[]> engine : template.getValue().entrySet()) {
+				long[] sorted = engine.getValue().clone();
+				Arrays.sort(sorted);
+				long total = Arrays.stream(sorted).sum();
+				timings.printf("%s,%s,%s,%d,%.3f,%.1f,%.1f,%.1f,%.1f,%.2f%n", phase, template.getKey(), engine.getKey(),
+						sorted.length, total / 1e6, total / 1e3 / sorted.length, percentile(sorted, 0.50) / 1e3,
+						percentile(sorted, 0.95) / 1e3, sorted[sorted.length - 1] / 1e3,
+						total == 0 ? 0.0 : (double) oracleTotal / total);
+				System.out.printf(" %12.1f", total / 1e6);
+			}
+			System.out.println();
+		}
+	}
+
+	/**
+	 * Percentile par rang le plus proche d'un tableau trié non vide.
+	 */
+	private static long percentile(long[] sorted, double percentile) {
+		int rank = (int) Math.ceil(percentile * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+}
@@ -0,0 +1,125 @@
+package qengine.program;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+
+import qengine.model.RDFAtom;
+import qengine.parser.ParallelNTriplesReader;
+import qengine.parser.RDFAtomParser;
+import qengine.storage.RDFHexaStore;
+import qengine.util.TermEncoder;
+
+/**
+ * Mesure le temps de construction des six index figés de l'hexastore
+ * ({@link RDFHexaStore#buildIndexes}) selon le nombre de cœurs utilisés, et
+ * l'accélération obtenue par rapport à un seul cœur.
+ * <p>
+ * Les triplets sont encodés une seule fois avant les mesures : seule la
+ * construction des index est chronométrée. Une seconde table mesure la lecture et
+ * l'encodage du fichier par {@link ParallelNTriplesReader}, selon le nombre de
+ * threads de lecture, en triplets par seconde et par cœur.
+ * <p>
+ * Usage : {@code ParallelLoadBenchmark [fichier.nt] [répétitions]}.
+ */
+public final class ParallelLoadBenchmark {
+
+	private static final String DEFAULT_DATA_FILE = "data/sample_data.nt";
+	private static final int DEFAULT_RUNS = 5;
+
+	private ParallelLoadBenchmark() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		String dataFile = args.length > 0 ? args[0] : DEFAULT_DATA_FILE;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RUNS;
+		int[] triples = encode(dataFile);
+		int count = triples.length / 3;
+		System.out.println("Triples: " + count);
+
+		double baseline = 0;
+		System.out.printf("%5s %12s %16s %8s%n", "cores", "best (ms)", "triples/s", "speedup");
+		for (int parallelism : parallelismLevels()) {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				// Une première construction pour laisser le JIT compiler le code
+				RDFHexaStore.buildIndexes(triples, count, pool);
+				long best = Long.MAX_VALUE;
+				for (int run = 0; run < runs; run++) {
+					long start = System.nanoTime();
+					RDFHexaStore.buildIndexes(triples, count, pool);
+					best = Math.min(best, System.nanoTime() - start);
+				}
+				double millis = best / 1e6;
+				if (parallelism == 1) {
+					baseline = millis;
+				}
+				System.out.printf("%5d %12.1f %,16.0f %7.2fx%n", parallelism, millis, count * 1e3 / millis,
+						baseline / millis);
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		System.out.println();
+		System.out.println("Ingest (parse + encode):");
+		System.out.printf("%5s %12s %16s %16s %8s%n", "cores", "best (ms)", "triples/s", "triples/s/core", "speedup");
+		for (int parallelism : parallelismLevels()) {
+			ParallelNTriplesReader reader = new ParallelNTriplesReader(parallelism);
+			long best = Long.MAX_VALUE;
+			// Une première lecture pour laisser le JIT compiler le code
+			for (int run = 0; run <= runs; run++) {
+				long start = System.nanoTime();
+				reader.read(Path.of(dataFile), new TermEncoder(), (batch, length) -> {
+				});
+				if (run > 0) {
+					best = Math.min(best, System.nanoTime() - start);
+				}
+			}
+			double millis = best / 1e6;
+			if (parallelism == 1) {
+				baseline = millis;
+			}
+			double throughput = count * 1e3 / millis;
+			System.out.printf("%5d %12.1f %,16.0f %,16.0f %7.2fx%n", parallelism, millis, throughput,
+					throughput / parallelism, baseline / millis);
+		}
+	}
+
+	/**
+	 * @return 1, 2, 4, ... jusqu'au nombre de cœurs disponibles (inclus)
+	 */
+	private static List<Integer> parallelismLevels() {
+		int cores = Runtime.getRuntime().availableProcessors();
+		List<Integer> levels = new ArrayList<>();
+		for (int level = 1; level < cores; level *= 2) {
+			levels.add(level);
+		}
+		levels.add(cores);
+		return levels;
+	}
+
+	private static int[] encode(String dataFile) throws IOException {
+		TermEncoder encoder = new TermEncoder();
+		int[] triples = new int[3 * 1024];
+		int n = 0;
+		try (RDFAtomParser parser = new RDFAtomParser(new FileReader(dataFile), RDFFormat.NTRIPLES)) {
+			while (parser.hasNext()) {
+				RDFAtom atom = parser.next();
+				if (n + 3 > triples.length) {
+					triples = Arrays.copyOf(triples, triples.length * 2);
+				}
+				triples[n++] = encoder.encode(atom.getTripleSubject());
+				triples[n++] = encoder.encode(atom.getTriplePredicate());
+				triples[n++] = encoder.encode(atom.getTripleObject());
+			}
+		}
+		return Arrays.copyOf(triples, n);
+	}
+}
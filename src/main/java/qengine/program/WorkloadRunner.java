@@ -0,0 +1,262 @@
+package qengine.program;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+
+import fr.boreal.model.formula.api.FOFormula;
+import fr.boreal.model.kb.api.FactBase;
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.query.api.Query;
+import fr.boreal.model.queryEvaluation.api.FOQueryEvaluator;
+import fr.boreal.query_evaluation.generic.GenericFOQueryEvaluator;
+import fr.boreal.storage.natives.SimpleInMemoryGraphStore;
+import qengine.model.RDFAtom;
+import qengine.model.StarQuery;
+import qengine.parser.RDFAtomParser;
+import qengine.parser.StarQuerySparQLParser;
+import qengine.query.StarQueryPlanCache;
+import qengine.storage.RDFBigTableStore;
+import qengine.storage.RDFHexaStore;
+import qengine.util.QueryMetrics;
+
+/**
+ * Exécute un queryset en parallèle sur un store et mesure le débit et les latences.
+ * <p>
+ * Les requêtes sont distribuées à {@code threads} threads (de plateforme ou
+ * virtuels) qui se les partagent au fil de l'eau ; chaque requête est évaluée
+ * jusqu'à sa dernière réponse. Les latences sont regroupées par gabarit de requête,
+ * c'est-à-dire par forme ({@link StarQueryPlanCache#signature(StarQuery)}), et
+ * rapportées en percentiles (p50, p95, p99, p999).
+ * <p>
+ * Usage : {@code WorkloadRunner <hexastore|bigtable|integraal> <fichier.nt> <fichier.queryset>
+ * [threads] [platform|virtual] [passes] [cache|nocache]}. Une première passe, non
+ * mesurée, sert de chauffe.
+ * <p>
+ * Par défaut ({@code nocache}), les caches de réponses et de candidats de
+ * l'hexastore sont vidés avant chaque requête : comme la BigTable et InteGraal,
+ * l'hexastore évalue chaque requête, doublons du queryset compris, et les latences
+ * des trois stores se comparent. Avec {@code cache}, les caches sont conservés
+ * d'une requête à l'autre et les passes mesurées relisent surtout des réponses
+ * calculées pendant la chauffe. Avec {@code -Dqengine.metrics=true}, les mesures de {@link QueryMetrics} sont
+ * affichées à la fin.
+ */
+public final class WorkloadRunner {
+
+	private static final double[] PERCENTILES = {0.50, 0.95, 0.99, 0.999};
+
+	private WorkloadRunner() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.err.println("Usage: WorkloadRunner <hexastore|bigtable|integraal> <data.nt> <queries.queryset>"
+					+ " [threads] [platform|virtual] [passes] [cache|nocache]");
+			System.exit(1);
+		}
+		String storeKind = args[0];
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		boolean virtual = args.length > 4 && args[4].equals("virtual");
+		int passes = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+		boolean cache = args.length > 6 && args[6].equals("cache");
+
+		long start = System.nanoTime();
+		Function<StarQuery, Iterator<Substitution>> store = openStore(storeKind, args[1], cache);
+		System.out.printf("Loaded %s in %.1f ms%n", storeKind, (System.nanoTime() - start) / 1e6);
+		List<StarQuery> queries = parseQueries(args[2]);
+		System.out.println("Queries: " + queries.size());
+
+		// Chauffe
+		run(store, queries, threads, virtual);
+		List<StarQuery> workload = new ArrayList<>(queries.size() * passes);
+		for (int i = 0; i < passes; i++) {
+			workload.addAll(queries);
+		}
+		start = System.nanoTime();
+		long[] latencies = run(store, workload, threads, virtual);
+		long elapsed = System.nanoTime() - start;
+
+		System.out.printf("%d queries on %d %s threads in %.1f ms: %.1f queries/s%n", workload.size(), threads,
+				virtual ? "virtual" : "platform", elapsed / 1e6, workload.size() / (elapsed / 1e9));
+		report(workload, latencies);
+		if (QueryMetrics.ENABLED) {
+			System.out.println();
+			System.out.print(QueryMetrics.instance().dump());
+		}
+	}
+
+	/**
+	 * Charge un fichier dans un store neuf, par son chargement habituel.
+	 *
+	 * @param cache pour l'hexastore, false pour vider ses caches de réponses et de
+	 *              candidats avant chaque requête
+	 */
+	static Function<StarQuery, Iterator<Substitution>> openStore(String kind, String dataFile, boolean cache)
+			throws IOException {
+		switch (kind) {
+			case "hexastore" -> {
+				RDFHexaStore store = new RDFHexaStore();
+				store.loadPersistentData(dataFile);
+				store.seal();
+				return hexaStoreEngine(store, cache);
+			}
+			case "bigtable" -> {
+				RDFBigTableStore store = new RDFBigTableStore();
+				store.loadPersistentData(dataFile);
+				return store::match;
+			}
+			case "integraal" -> {
+				return integraalEngine(parseAtoms(dataFile));
+			}
+			default -> throw new IllegalArgumentException("Unknown store: " + kind);
+		}
+	}
+
+	/**
+	 * Ajoute des atomes déjà lus dans un store neuf : des stores remplis à partir des
+	 * mêmes atomes donnent les mêmes labels, nœuds anonymes compris.
+	 */
+	static Function<StarQuery, Iterator<Substitution>> openStore(String kind, List<RDFAtom> atoms, boolean cache) {
+		switch (kind) {
+			case "hexastore" -> {
+				RDFHexaStore store = new RDFHexaStore();
+				atoms.forEach(store::add);
+				store.seal();
+				return hexaStoreEngine(store, cache);
+			}
+			case "bigtable" -> {
+				RDFBigTableStore store = new RDFBigTableStore();
+				atoms.forEach(store::add);
+				return store::match;
+			}
+			case "integraal" -> {
+				return integraalEngine(atoms);
+			}
+			default -> throw new IllegalArgumentException("Unknown store: " + kind);
+		}
+	}
+
+	static List<RDFAtom> parseAtoms(String dataFile) throws IOException {
+		List<RDFAtom> atoms = new ArrayList<>();
+		try (RDFAtomParser parser = new RDFAtomParser(new FileReader(dataFile), RDFFormat.NTRIPLES)) {
+			while (parser.hasNext()) {
+				atoms.add(parser.next());
+			}
+		}
+		return atoms;
+	}
+
+	private static Function<StarQuery, Iterator<Substitution>> hexaStoreEngine(RDFHexaStore store, boolean cache) {
+		if (cache) {
+			return store::match;
+		}
+		return query -> {
+			store.resultCache().clear();
+			store.candidateCache().clear();
+			return store.match(query);
+		};
+	}
+
+	private static Function<StarQuery, Iterator<Substitution>> integraalEngine(List<RDFAtom> atoms) {
+		FactBase factBase = new SimpleInMemoryGraphStore();
+		atoms.forEach(factBase::add);
+		FOQueryEvaluator<FOFormula> evaluator = GenericFOQueryEvaluator.defaultInstance();
+		return query -> evaluator.evaluate(query.asFOQuery(), factBase);
+	}
+
+	static List<StarQuery> parseQueries(String queryFile) throws IOException {
+		List<StarQuery> queries = new ArrayList<>();
+		try (StarQuerySparQLParser parser = new StarQuerySparQLParser(queryFile)) {
+			while (parser.hasNext()) {
+				Query query = parser.next();
+				if (query instanceof StarQuery starQuery) {
+					queries.add(starQuery);
+				}
+			}
+		}
+		return queries;
+	}
+
+	/**
+	 * Évalue les requêtes avec {@code threads} threads qui se les partagent.
+	 *
+	 * @return la latence (en nanosecondes) de chaque requête, dans l'ordre de {@code queries}
+	 */
+	private static long[] run(Function<StarQuery, Iterator<Substitution>> store, List<StarQuery> queries,
+			int threads, boolean virtual) throws InterruptedException {
+		long[] latencies = new long[queries.size()];
+		AtomicInteger next = new AtomicInteger();
+		Thread.Builder builder = virtual ? Thread.ofVirtual() : Thread.ofPlatform();
+		Thread[] workers = new Thread[threads];
+		RuntimeException[] failure = new RuntimeException[1];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = builder.start(() -> {
+				int i;
+				while ((i = next.getAndIncrement()) < latencies.length) {
+					long start = System.nanoTime();
+					try {
+						Iterator<Substitution> answers = store.apply(queries.get(i));
+						while (answers.hasNext()) {
+							answers.next();
+						}
+					} catch (RuntimeException e) {
+						synchronized (failure) {
+							failure[0] = e;
+						}
+						next.set(latencies.length);
+					}
+					latencies[i] = System.nanoTime() - start;
+				}
+			});
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+		return latencies;
+	}
+
+	private static void report(List<StarQuery> queries, long[] latencies) {
+		Map<String, List<Long>> byTemplate = new LinkedHashMap<>();
+		for (int i = 0; i < queries.size(); i++) {
+			byTemplate.computeIfAbsent(StarQueryPlanCache.signature(queries.get(i)), k -> new ArrayList<>())
+					.add(latencies[i]);
+		}
+		System.out.printf("%8s %10s %10s %10s %10s %10s  %s%n", "count", "mean us", "p50 us", "p95 us", "p99 us",
+				"p999 us", "template");
+		report("(all)", Arrays.stream(latencies).boxed().toList());
+		byTemplate.forEach(WorkloadRunner::report);
+	}
+
+	private static void report(String template, List<Long> latencies) {
+		long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+		double mean = Arrays.stream(sorted).average().orElse(0);
+		StringBuilder line = new StringBuilder(String.format("%8d %10.1f", sorted.length, mean / 1e3));
+		for (double percentile : PERCENTILES) {
+			line.append(String.format(" %10.1f", percentile(sorted, percentile) / 1e3));
+		}
+		System.out.println(line.append("  ").append(template));
+	}
+
+	/**
+	 * Percentile par rang le plus proche d'un tableau trié.
+	 */
+	private static long percentile(long[] sorted, double percentile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(percentile * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+}
@@ -0,0 +1,239 @@
+package qengine.query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache des ensembles de candidats de la variable centrale des requêtes en étoile,
+ * indexé par l'ensemble des atomes qui les ont produits.
+ * <p>
+ * L'ensemble des candidats d'une requête est l'intersection des candidats de ses
+ * atomes pris isolément : si une requête contient tous les atomes d'une entrée du
+ * cache (par exemple {@code Q_4_location_nationality_gender_type} et
+ * {@code Q_3_location_nationality_gender} sur les mêmes constantes), il suffit de
+ * filtrer les candidats de l'entrée avec les atomes supplémentaires.
+ * {@link #lookup(Set)} renvoie la plus grande entrée contenue dans la requête.
+ * <p>
+ * Le cache est borné en octets et évince les entrées les moins récemment
+ * utilisées. Seuls les ensembles d'au moins deux atomes sont conservés : les
+ * candidats d'un atome seul sont lus directement dans un index. Le store signale
+ * chaque ajout par {@link #predicateChanged(int)}, qui retire les entrées touchant
+ * ce prédicat.
+ */
+public class CandidateSetCache {
+
+    public static final long DEFAULT_MAX_BYTES = 16L << 20;
+
+    // Estimation du coût fixe d'une entrée et de chacun de ses atomes
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final int ATOM_OVERHEAD = 64;
+
+    /**
+     * Un atome vu de la variable centrale : la position de celle-ci et
+     * l'identifiant de chaque constante ({@link StatisticsCatalog#UNBOUND} pour les
+     * autres variables, qui n'influent pas sur les candidats).
+     */
+    public record Atom(int centralPosition, int subject, int predicate, int object) {
+    }
+
+    /**
+     * Une entrée du cache. {@code work} est le nombre de valeurs lues pour la
+     * calculer, y compris celles économisées grâce à une entrée antérieure.
+     */
+    public record Entry(Set<Atom> atoms, int[] candidates, long work) {
+
+        long bytes() {
+            return ENTRY_OVERHEAD + 4L * candidates.length + (long) ATOM_OVERHEAD * atoms.size();
+        }
+    }
+
+    private final long maxBytes;
+    private final Map<Set<Atom>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Atom, List<Entry>> entriesByAtom = new HashMap<>();
+    private long bytes = 0;
+
+    private long exactHits = 0;
+    private long partialHits = 0;
+    private long misses = 0;
+    private long atomsReused = 0;
+    private long atomsEvaluated = 0;
+    private long valuesSaved = 0;
+    private long valuesRead = 0;
+
+    public CandidateSetCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public CandidateSetCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return l'entrée contenant le plus d'atomes parmi celles dont tous les atomes
+     *         appartiennent à {@code atoms}, ou null s'il n'y en a pas
+     */
+    public synchronized Entry lookup(Set<Atom> atoms) {
+        Entry best = entries.get(atoms);
+        if (best == null) {
+            for (Atom atom : atoms) {
+                for (Entry entry : entriesByAtom.getOrDefault(atom, List.of())) {
+                    if (isBetter(entry, best) && atoms.containsAll(entry.atoms)) {
+                        best = entry;
+                    }
+                }
+            }
+            if (best != null) {
+                // Met à jour l'ordre d'accès
+                entries.get(best.atoms);
+            }
+        }
+        if (best == null) {
+            misses++;
+        } else if (best.atoms.size() == atoms.size()) {
+            exactHits++;
+        } else {
+            partialHits++;
+        }
+        return best;
+    }
+
+    private static boolean isBetter(Entry entry, Entry best) {
+        if (best == null || entry.atoms.size() != best.atoms.size()) {
+            return best == null || entry.atoms.size() > best.atoms.size();
+        }
+        return entry.candidates.length < best.candidates.length;
+    }
+
+    /**
+     * Enregistre les candidats d'un ensemble d'atomes et le bilan de leur calcul.
+     *
+     * @param reused l'entrée utilisée comme point de départ, ou null
+     * @param read   le nombre de valeurs lues dans les index pour les autres atomes
+     */
+    public synchronized void put(Set<Atom> atoms, int[] candidates, Entry reused, long read) {
+        long saved = reused == null ? 0 : reused.work;
+        valuesSaved += saved;
+        valuesRead += read;
+        atomsReused += reused == null ? 0 : reused.atoms.size();
+        atomsEvaluated += atoms.size() - (reused == null ? 0 : reused.atoms.size());
+        if (atoms.size() < 2 || entries.containsKey(atoms)) {
+            return;
+        }
+        Entry entry = new Entry(Set.copyOf(atoms), candidates, saved + read);
+        if (entry.bytes() > maxBytes / 8) {
+            return;
+        }
+        entries.put(entry.atoms, entry);
+        for (Atom atom : entry.atoms) {
+            entriesByAtom.computeIfAbsent(atom, k -> new ArrayList<>()).add(entry);
+        }
+        bytes += entry.bytes();
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Entry evicted = eldest.next();
+            eldest.remove();
+            unindex(evicted);
+        }
+    }
+
+    /**
+     * Signale qu'un triplet de prédicat {@code predicate} a été ajouté au store :
+     * les entrées qui ont un atome de ce prédicat, ou de prédicat variable, sont
+     * retirées.
+     */
+    public synchronized void predicateChanged(int predicate) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            for (Atom atom : entry.atoms) {
+                if (atom.predicate == predicate || atom.predicate == StatisticsCatalog.UNBOUND) {
+                    iterator.remove();
+                    unindex(entry);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void unindex(Entry entry) {
+        bytes -= entry.bytes();
+        for (Atom atom : entry.atoms) {
+            List<Entry> list = entriesByAtom.get(atom);
+            list.remove(entry);
+            if (list.isEmpty()) {
+                entriesByAtom.remove(atom);
+            }
+        }
+    }
+
+    /**
+     * Vide le cache sans remettre ses compteurs à zéro.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        entriesByAtom.clear();
+        bytes = 0;
+    }
+
+    public synchronized long exactHits() {
+        return exactHits;
+    }
+
+    public synchronized long partialHits() {
+        return partialHits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * @return le nombre d'atomes dont les candidats n'ont pas eu à être lus
+     */
+    public synchronized long atomsReused() {
+        return atomsReused;
+    }
+
+    public synchronized long atomsEvaluated() {
+        return atomsEvaluated;
+    }
+
+    /**
+     * @return le nombre de valeurs qu'il aurait fallu lire dans les index sans le cache
+     */
+    public synchronized long valuesSaved() {
+        return valuesSaved;
+    }
+
+    public synchronized long valuesRead() {
+        return valuesRead;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long values = valuesSaved + valuesRead;
+        return String.format("%d entries (%,d bytes), %d exact hits, %d partial hits, %d misses, "
+                        + "%d/%d atoms reused, %,d/%,d values saved (%.1f%%)",
+                entries.size(), bytes, exactHits, partialHits, misses, atomsReused, atomsReused + atomsEvaluated,
+                valuesSaved, values, values == 0 ? 0.0 : 100.0 * valuesSaved / values);
+    }
+}
@@ -0,0 +1,533 @@
+package qengine.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import qengine.model.RDFAtom;
+import qengine.model.StarQuery;
+import qengine.util.DecodingIterator;
+import qengine.util.IntArrayCollection;
+import qengine.util.IntList;
+import qengine.util.IntSlice;
+import qengine.util.QueryMetrics;
+import qengine.util.SortedIntLists;
+import qengine.util.TermDictionary;
+import qengine.util.TripleIndex;
+
+/**
+ * Évaluation native des requêtes en étoile sur les six index d'un hexastore.
+ * <p>
+ * Pour chaque atome, l'ensemble des valeurs candidates de la variable centrale est
+ * lu directement dans l'index adapté aux positions fixées de l'atome (par exemple
+ * {@code P_O_S.get(p, o)} pour {@code ?x p o}). Les atomes sont ensuite triés par
+ * taille de cet ensemble et les ensembles sont intersectés du plus petit au plus
+ * grand, par recherche galopante ({@link SortedIntLists#intersect}).
+ * <p>
+ * Les atomes qui contiennent d'autres variables que la variable centrale sont
+ * ensuite développés pour chaque candidat retenu, par ordre croissant de leur
+ * nombre estimé de triplets ({@link StatisticsCatalog}).
+ * <p>
+ * La préparation d'une requête (numérotation des variables, ordre de développement,
+ * projection) est compilée en un {@link StarQueryPlan} qui ne dépend que de la
+ * forme de la requête, et peut donc être mis en cache ({@link StarQueryPlanCache}). Tout le calcul se fait sur les
+ * identifiants : les termes ne sont décodés qu'au moment de projeter une réponse
+ * sur les variables réponses, et les réponses sont produites au fil de l'itération.
+ * Les réponses sont distinctes.
+ */
+public class StarQueryEvaluator {
+
+    // Indices des index dans le tableau passé au constructeur
+    public static final int S_O_P = 0;
+    public static final int S_P_O = 1;
+    public static final int P_S_O = 2;
+    public static final int P_O_S = 3;
+    public static final int O_P_S = 4;
+    public static final int O_S_P = 5;
+
+    // Index dont les deux premières positions (s=0, p=1, o=2) sont [first][second]
+    private static final int[][] INDEX_BY_POSITIONS = {
+            {-1, S_P_O, S_O_P},
+            {P_S_O, -1, P_O_S},
+            {O_S_P, O_P_S, -1}
+    };
+
+    private static final int CONSTANT = StarQueryPlan.CONSTANT;
+    private static final int UNBOUND = -1;
+
+    private final TermDictionary dictionary;
+    private final TripleIndex[] indexes;
+    private final StatisticsCatalog statistics;
+    private final StarQueryPlanCache planCache;
+    private final CandidateSetCache candidateCache;
+
+    /**
+     * @param indexes    les six index dans l'ordre S_O_P, S_P_O, P_S_O, P_O_S, O_P_S, O_S_P
+     * @param statistics les statistiques du store, utilisées pour ordonner les atomes à développer
+     */
+    public StarQueryEvaluator(TermDictionary dictionary, TripleIndex[] indexes, StatisticsCatalog statistics) {
+        this(dictionary, indexes, statistics, null);
+    }
+
+    /**
+     * @param planCache le cache des plans par forme de requête, null pour recompiler chaque requête
+     */
+    public StarQueryEvaluator(TermDictionary dictionary, TripleIndex[] indexes, StatisticsCatalog statistics,
+            StarQueryPlanCache planCache) {
+        this(dictionary, indexes, statistics, planCache, null);
+    }
+
+    /**
+     * @param candidateCache le cache des candidats par ensemble d'atomes, null pour
+     *                       intersecter à chaque fois les candidats de tous les atomes
+     */
+    public StarQueryEvaluator(TermDictionary dictionary, TripleIndex[] indexes, StatisticsCatalog statistics,
+            StarQueryPlanCache planCache, CandidateSetCache candidateCache) {
+        if (indexes.length != 6) {
+            throw new IllegalArgumentException("Expected the six hexastore indexes, got " + indexes.length);
+        }
+        this.dictionary = dictionary;
+        this.indexes = indexes;
+        this.statistics = statistics;
+        this.planCache = planCache;
+        this.candidateCache = candidateCache;
+    }
+
+    /**
+     * @return les réponses de la requête, projetées sur ses variables réponses
+     */
+    public Iterator<Substitution> evaluate(StarQuery query) {
+        return new DecodingIterator(evaluateEncoded(query), query.getAnswerVariables().toArray(new Variable[0]),
+                dictionary);
+    }
+
+    /**
+     * @return les réponses encodées de la requête : chaque ligne contient les
+     *         identifiants des termes associés aux variables réponses, dans l'ordre
+     *         de {@link StarQuery#getAnswerVariables()}
+     */
+    public Iterator<int[]> evaluateEncoded(StarQuery query) {
+        StarQueryPlan plan = planCache == null ? compile(query) : planCache.get(query, this::compile);
+        return evaluateEncoded(query, plan);
+    }
+
+    /**
+     * Évalue une requête selon un plan compilé pour sa forme.
+     */
+    public Iterator<int[]> evaluateEncoded(StarQuery query, StarQueryPlan plan) {
+        return evaluateEncoded(query, plan, null);
+    }
+
+    /**
+     * Évalue un lot de requêtes en partageant leurs lectures d'index : la liste des
+     * candidats d'un motif d'atome (par exemple {@code ?x <gender> <Gender1>}) n'est
+     * lue et triée qu'une fois pour tout le lot, et les intersections d'ensembles
+     * d'atomes identiques ne sont calculées qu'une fois. Les requêtes sont préparées
+     * par nombre croissant d'atomes, si bien qu'une requête peut repartir des
+     * candidats d'une requête plus petite du lot ({@link CandidateSetCache}).
+     *
+     * @return les réponses encodées de chaque requête, dans l'ordre de {@code queries}
+     */
+    public List<Iterator<int[]>> evaluateEncoded(List<StarQuery> queries) {
+        BatchInputs inputs = new BatchInputs();
+        Integer[] order = new Integer[queries.size()];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparingInt(i -> queries.get(i).getRdfAtoms().size()));
+        List<Iterator<int[]>> answers = new ArrayList<>(Collections.nCopies(queries.size(), null));
+        for (int i : order) {
+            StarQuery query = queries.get(i);
+            StarQueryPlan plan = planCache == null ? compile(query) : planCache.get(query, this::compile);
+            answers.set(i, evaluateEncoded(query, plan, inputs));
+        }
+        return answers;
+    }
+
+    /**
+     * Les entrées partagées par les requêtes d'un lot.
+     */
+    private static final class BatchInputs {
+        // Candidats triés de chaque motif d'atome
+        private final Map<CandidateSetCache.Atom, IntList> lists = new HashMap<>();
+        // Candidats de chaque ensemble d'atomes
+        private final Map<Set<CandidateSetCache.Atom>, int[]> intersections = new HashMap<>();
+    }
+
+    private Iterator<int[]> evaluateEncoded(StarQuery query, StarQueryPlan plan, BatchInputs inputs) {
+        AtomPattern[] patterns = bind(query, plan);
+        if (patterns == null) {
+            // Une constante inconnue du store : aucune réponse
+            return Collections.emptyIterator();
+        }
+        AtomPattern[] expansions = new AtomPattern[plan.expansionOrder().length];
+        for (int i = 0; i < expansions.length; i++) {
+            expansions[i] = patterns[plan.expansionOrder()[i]];
+        }
+        int[] candidates;
+        if (inputs == null) {
+            candidates = centralCandidates(patterns, null);
+        } else {
+            Set<CandidateSetCache.Atom> atoms = new HashSet<>();
+            for (AtomPattern pattern : patterns) {
+                atoms.add(pattern.candidateAtom());
+            }
+            candidates = inputs.intersections.get(atoms);
+            if (candidates == null) {
+                candidates = centralCandidates(patterns, inputs);
+                inputs.intersections.put(atoms, candidates);
+            }
+        }
+        return new StarQueryIterator(candidates, expansions, plan);
+    }
+
+    /**
+     * Compile le plan d'une requête : numérotation des variables, ordre de
+     * développement des atomes et projection. Seuls les prédicats constants sont
+     * pris en compte, les autres constantes n'influant pas sur le plan.
+     */
+    public StarQueryPlan compile(StarQuery query) {
+        List<Variable> variables = new ArrayList<>();
+        variables.add(query.getCentralVariable());
+        List<RDFAtom> atoms = query.getRdfAtoms();
+        int[] slots = new int[3 * atoms.size()];
+        for (int i = 0; i < atoms.size(); i++) {
+            for (int position = 0; position < 3; position++) {
+                Term term = atoms.get(i).getTerm(position);
+                if (term.isVariable()) {
+                    int slot = variables.indexOf(term);
+                    if (slot < 0) {
+                        slot = variables.size();
+                        variables.add((Variable) term);
+                    }
+                    slots[3 * i + position] = slot;
+                } else {
+                    slots[3 * i + position] = CONSTANT;
+                }
+            }
+        }
+
+        // Les atomes les moins productifs sont développés en premier
+        List<Integer> expansions = new ArrayList<>();
+        long[] fanouts = new long[atoms.size()];
+        for (int i = 0; i < atoms.size(); i++) {
+            if (needsExpansion(slots, i)) {
+                expansions.add(i);
+                fanouts[i] = estimatedFanout(atoms.get(i), slots, i);
+            }
+        }
+        expansions.sort(Comparator.comparingLong(i -> fanouts[i]));
+
+        Collection<Variable> answers = query.getAnswerVariables();
+        int[] answerSlots = answers.stream().mapToInt(variables::indexOf).toArray();
+        // Si toutes les variables sont projetées, les réponses sont distinctes par construction
+        boolean distinct = answerSlots.length < variables.size();
+        return new StarQueryPlan(variables.size(), slots, expansions.stream().mapToInt(Integer::intValue).toArray(),
+                answerSlots, distinct);
+    }
+
+    /**
+     * Encode les constantes de la requête selon le plan.
+     *
+     * @return les atomes encodés, ou null si une constante est inconnue du store
+     */
+    private AtomPattern[] bind(StarQuery query, StarQueryPlan plan) {
+        List<RDFAtom> atoms = query.getRdfAtoms();
+        AtomPattern[] patterns = new AtomPattern[atoms.size()];
+        for (int i = 0; i < patterns.length; i++) {
+            int[] ids = new int[3];
+            int[] slots = new int[3];
+            for (int position = 0; position < 3; position++) {
+                slots[position] = plan.slot(i, position);
+                if (slots[position] == CONSTANT) {
+                    ids[position] = dictionary.lookup(atoms.get(i).getTerm(position));
+                    if (ids[position] == TermDictionary.NOT_FOUND) {
+                        return null;
+                    }
+                } else {
+                    ids[position] = UNBOUND;
+                }
+            }
+            patterns[i] = new AtomPattern(ids, slots);
+        }
+        return patterns;
+    }
+
+    /**
+     * @return les valeurs de la variable centrale qui satisfont chaque atome pris
+     *         isolément, triées
+     */
+    private int[] centralCandidates(AtomPattern[] patterns, BatchInputs inputs) {
+        if (candidateCache == null) {
+            return intersect(null, candidateLists(patterns, null, inputs));
+        }
+        Set<CandidateSetCache.Atom> atoms = new HashSet<>();
+        for (AtomPattern pattern : patterns) {
+            atoms.add(pattern.candidateAtom());
+        }
+        CandidateSetCache.Entry reused = candidateCache.lookup(atoms);
+        if (reused != null && reused.atoms().size() == atoms.size()) {
+            candidateCache.put(atoms, reused.candidates(), reused, 0);
+            return reused.candidates();
+        }
+        IntList[] lists = candidateLists(patterns, reused == null ? null : reused.atoms(), inputs);
+        long read = 0;
+        for (IntList list : lists) {
+            read += list.size();
+        }
+        int[] values = intersect(reused == null ? null : reused.candidates(), lists);
+        candidateCache.put(atoms, values, reused, read);
+        return values;
+    }
+
+    /**
+     * @param known  les atomes dont les candidats sont déjà connus, ou null
+     * @param inputs les listes déjà lues pour le lot en cours, ou null
+     * @return les candidats des autres atomes, du plus petit ensemble au plus grand
+     */
+    private IntList[] candidateLists(AtomPattern[] patterns, Set<CandidateSetCache.Atom> known, BatchInputs inputs) {
+        List<IntList> lists = new ArrayList<>(patterns.length);
+        Set<CandidateSetCache.Atom> seen = new HashSet<>();
+        for (AtomPattern pattern : patterns) {
+            CandidateSetCache.Atom atom = pattern.candidateAtom();
+            if ((known == null || !known.contains(atom)) && seen.add(atom)) {
+                lists.add(inputs == null ? candidates(pattern) : inputs.lists.computeIfAbsent(atom, a -> {
+                    IntList list = candidates(pattern);
+                    return list.isSorted() ? list : new IntSlice(SortedIntLists.sorted(list), 0, list.size());
+                }));
+            }
+        }
+        lists.sort(Comparator.comparingInt(IntList::size));
+        return lists.toArray(new IntList[0]);
+    }
+
+    /**
+     * Intersecte des listes de candidats, triées par taille croissante.
+     *
+     * @param start des candidats déjà connus, triés (non modifiés), ou null pour
+     *              partir de la première liste
+     */
+    private static int[] intersect(int[] start, IntList[] lists) {
+        int first = start == null ? 1 : 0;
+        int[] values = start == null ? SortedIntLists.sorted(lists[0]) : start.clone();
+        int size = values.length;
+        for (int i = first; i < lists.length && size > 0; i++) {
+            IntList list = lists[i].isSorted() ? lists[i] : new IntSlice(SortedIntLists.sorted(lists[i]), 0,
+                    lists[i].size());
+            size = SortedIntLists.intersect(values, size, list);
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * @return les valeurs de la variable centrale pour un atome, en ignorant ses
+     *         éventuelles autres variables
+     */
+    private IntList candidates(AtomPattern pattern) {
+        int central = pattern.centralPosition();
+        int a = central == 0 ? 1 : 0;
+        int b = central == 2 ? 1 : 2;
+        boolean aBound = pattern.slots[a] == CONSTANT;
+        boolean bBound = pattern.slots[b] == CONSTANT;
+        if (aBound && bBound) {
+            return index(a, b).get(pattern.ids[a], pattern.ids[b]);
+        } else if (aBound) {
+            return index(a, central).seconds(pattern.ids[a]);
+        } else if (bBound) {
+            return index(b, central).seconds(pattern.ids[b]);
+        }
+        return index(central, a).firsts();
+    }
+
+    /**
+     * @return le nombre estimé de triplets d'un atome pour une valeur donnée de la
+     *         variable centrale
+     */
+    private long estimatedFanout(RDFAtom atom, int[] slots, int i) {
+        int[] ids = new int[3];
+        for (int position = 0; position < 3; position++) {
+            int slot = slots[3 * i + position];
+            if (slot == CONSTANT) {
+                ids[position] = position == 1 ? dictionary.lookup(atom.getTerm(position)) : StatisticsCatalog.ANY_VALUE;
+            } else {
+                ids[position] = slot == 0 ? StatisticsCatalog.ANY_VALUE : StatisticsCatalog.UNBOUND;
+            }
+        }
+        if (ids[1] == TermDictionary.NOT_FOUND) {
+            return 0;
+        }
+        return statistics.estimate(ids[0], ids[1], ids[2]);
+    }
+
+    /**
+     * @return true si l'atome i contient une autre variable que la variable centrale
+     *         (ou celle-ci plusieurs fois)
+     */
+    private static boolean needsExpansion(int[] slots, int i) {
+        int variables = 0;
+        for (int position = 0; position < 3; position++) {
+            if (slots[3 * i + position] != CONSTANT) {
+                variables++;
+            }
+        }
+        return variables > 1;
+    }
+
+    private TripleIndex index(int firstPosition, int secondPosition) {
+        int index = INDEX_BY_POSITIONS[firstPosition][secondPosition];
+        if (QueryMetrics.ENABLED) {
+            QueryMetrics.instance().indexLookup(index);
+        }
+        return indexes[index];
+    }
+
+    /**
+     * Un atome de la requête : l'identifiant de chaque constante et, pour chaque
+     * variable, son numéro (0 pour la variable centrale).
+     */
+    private record AtomPattern(int[] ids, int[] slots) {
+
+        CandidateSetCache.Atom candidateAtom() {
+            return new CandidateSetCache.Atom(centralPosition(), ids[0], ids[1], ids[2]);
+        }
+
+        int centralPosition() {
+            for (int position = 0; position < 3; position++) {
+                if (slots[position] == 0) {
+                    return position;
+                }
+            }
+            throw new IllegalStateException("The atom does not contain the central variable.");
+        }
+    }
+
+    /**
+     * Parcours des candidats : pour chacun, les atomes à développer sont énumérés
+     * en profondeur et les réponses (encodées) du candidat sont mises en attente.
+     */
+    private final class StarQueryIterator implements Iterator<int[]> {
+        private final int[] candidates;
+        private final AtomPattern[] expansions;
+        private final int[] answerSlots;
+        private final Set<IntArrayCollection> seen;
+
+        private final int[] binding;
+        private final List<int[]> pending = new ArrayList<>();
+        private int pendingPosition = 0;
+        private int nextCandidate = 0;
+
+        StarQueryIterator(int[] candidates, AtomPattern[] expansions, StarQueryPlan plan) {
+            this.candidates = candidates;
+            this.expansions = expansions;
+            this.answerSlots = plan.answerSlots();
+            this.seen = plan.distinct() ? new HashSet<>() : null;
+            this.binding = new int[plan.variableCount()];
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (pendingPosition == pending.size()) {
+                if (nextCandidate == candidates.length) {
+                    return false;
+                }
+                pending.clear();
+                pendingPosition = 0;
+                Arrays.fill(binding, UNBOUND);
+                binding[0] = candidates[nextCandidate++];
+                expand(0);
+            }
+            return true;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return pending.get(pendingPosition++);
+        }
+
+        private void expand(int k) {
+            if (k == expansions.length) {
+                int[] answer = new int[answerSlots.length];
+                for (int i = 0; i < answer.length; i++) {
+                    answer[i] = binding[answerSlots[i]];
+                }
+                if (seen == null || seen.add(new IntArrayCollection(answer))) {
+                    pending.add(answer);
+                }
+                return;
+            }
+            AtomPattern pattern = expansions[k];
+            int[] values = new int[3];
+            int free = 0;
+            for (int position = 0; position < 3; position++) {
+                int slot = pattern.slots[position];
+                values[position] = slot == CONSTANT ? pattern.ids[position] : binding[slot];
+                if (values[position] == UNBOUND) {
+                    free++;
+                }
+            }
+
+            if (free == 0) {
+                if (SortedIntLists.contains(index(0, 1).get(values[0], values[1]), values[2])) {
+                    expand(k + 1);
+                }
+            } else if (free == 1) {
+                int z = values[0] == UNBOUND ? 0 : values[1] == UNBOUND ? 1 : 2;
+                int x = z == 0 ? 1 : 0;
+                int y = z == 2 ? 1 : 2;
+                IntList thirds = index(x, y).get(values[x], values[y]);
+                for (int i = 0; i < thirds.size(); i++) {
+                    bindAndExpand(k, pattern.slots[z], thirds.get(i));
+                }
+            } else {
+                int x = values[0] != UNBOUND ? 0 : values[1] != UNBOUND ? 1 : 2;
+                int y = x == 0 ? 1 : 0;
+                int z = x == 2 ? 1 : 2;
+                TripleIndex index = index(x, y);
+                IntList seconds = index.seconds(values[x]);
+                for (int i = 0; i < seconds.size(); i++) {
+                    int second = seconds.get(i);
+                    int slotY = pattern.slots[y];
+                    boolean setY = binding[slotY] == UNBOUND;
+                    if (!setY && binding[slotY] != second) {
+                        continue;
+                    }
+                    binding[slotY] = second;
+                    IntList thirds = index.get(values[x], second);
+                    for (int j = 0; j < thirds.size(); j++) {
+                        bindAndExpand(k, pattern.slots[z], thirds.get(j));
+                    }
+                    if (setY) {
+                        binding[slotY] = UNBOUND;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Lie la variable slot à value (ou vérifie qu'elle y est déjà liée) puis
+         * développe l'atome suivant.
+         */
+        private void bindAndExpand(int k, int slot, int value) {
+            if (binding[slot] == UNBOUND) {
+                binding[slot] = value;
+                expand(k + 1);
+                binding[slot] = UNBOUND;
+            } else if (binding[slot] == value) {
+                expand(k + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package qengine.query;
+
+/**
+ * Plan d'évaluation compilé d'une requête en étoile, indépendant de ses constantes
+ * (hormis les prédicats) : il peut donc être réutilisé pour toutes les requêtes de
+ * même forme (voir {@link StarQueryPlanCache}).
+ * <p>
+ * Pour l'atome i et la position j (s=0, p=1, o=2), {@code slots[3 * i + j]} vaut
+ * {@link #CONSTANT} si la position est une constante, et sinon le numéro de la
+ * variable, 0 désignant la variable centrale.
+ *
+ * @param variableCount  le nombre de variables distinctes de la requête
+ * @param slots          la position des variables et des constantes dans chaque atome
+ * @param expansionOrder les atomes à développer pour chaque candidat, dans l'ordre
+ * @param answerSlots    le numéro de chaque variable réponse, dans l'ordre de la requête
+ * @param distinct       true si la projection peut produire des doublons à éliminer
+ */
+public record StarQueryPlan(int variableCount, int[] slots, int[] expansionOrder, int[] answerSlots,
+        boolean distinct) {
+
+    public static final int CONSTANT = -1;
+
+    public int atomCount() {
+        return slots.length / 3;
+    }
+
+    public int slot(int atom, int position) {
+        return slots[3 * atom + position];
+    }
+}
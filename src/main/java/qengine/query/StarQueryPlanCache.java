@@ -0,0 +1,122 @@
+package qengine.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import qengine.model.RDFAtom;
+import qengine.model.StarQuery;
+
+/**
+ * Cache des plans d'évaluation, indexé par la forme des requêtes en étoile.
+ * <p>
+ * Les requêtes générées à partir d'un même gabarit (par exemple celles de
+ * {@code STAR_ALL_workload.queryset}) ne diffèrent que par leurs constantes : elles
+ * ont la même signature ({@link #signature(StarQuery)}) et partagent donc le même
+ * plan, qui n'est compilé qu'une fois. Le cache est borné : au-delà de sa capacité,
+ * les nouveaux plans sont compilés sans être conservés.
+ */
+public class StarQueryPlanCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final Map<String, StarQueryPlan> plans = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public StarQueryPlanCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public StarQueryPlanCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param compiler compile le plan d'une requête absente du cache
+     * @return le plan de la requête
+     */
+    public StarQueryPlan get(StarQuery query, Function<StarQuery, StarQueryPlan> compiler) {
+        String signature = signature(query);
+        StarQueryPlan plan = plans.get(signature);
+        if (plan != null) {
+            hits.increment();
+            return plan;
+        }
+        misses.increment();
+        plan = compiler.apply(query);
+        if (plans.size() < capacity) {
+            plans.putIfAbsent(signature, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Calcule la forme d'une requête : pour chaque atome, dans l'ordre, ses
+     * prédicats constants, la place de ses autres constantes (abstraites) et de ses
+     * variables (renommées dans leur ordre d'apparition, la variable centrale en
+     * premier), puis les variables réponses.
+     * <p>
+     * Par exemple {@code SELECT ?v0 WHERE { ?v0 <likes> <Product0> . }} a pour
+     * signature {@code ?0 <likes> _ . -> ?0}.
+     */
+    public static String signature(StarQuery query) {
+        List<Variable> variables = new ArrayList<>();
+        variables.add(query.getCentralVariable());
+        StringBuilder signature = new StringBuilder();
+        for (RDFAtom atom : query.getRdfAtoms()) {
+            for (int position = 0; position < 3; position++) {
+                Term term = atom.getTerm(position);
+                if (term.isVariable()) {
+                    int slot = variables.indexOf(term);
+                    if (slot < 0) {
+                        slot = variables.size();
+                        variables.add((Variable) term);
+                    }
+                    signature.append('?').append(slot);
+                } else if (position == 1) {
+                    signature.append('<').append(term.label()).append('>');
+                } else {
+                    signature.append('_');
+                }
+                signature.append(' ');
+            }
+            signature.append(". ");
+        }
+        signature.append("->");
+        for (Variable variable : query.getAnswerVariables()) {
+            signature.append(" ?").append(variables.indexOf(variable));
+        }
+        return signature.toString();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return plans.size();
+    }
+
+    /**
+     * Vide le cache, par exemple lorsque les statistiques du store ont changé.
+     */
+    public void clear() {
+        plans.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d plans, %d hits, %d misses", size(), hits(), misses());
+    }
+}
@@ -0,0 +1,322 @@
+package qengine.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import fr.boreal.model.logicalElements.api.Literal;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import qengine.model.RDFAtom;
+import qengine.model.StarQuery;
+import qengine.util.IntIntHashMap;
+
+/**
+ * Cache des réponses encodées des requêtes en étoile.
+ * <p>
+ * Les requêtes sont identifiées par une clé canonique ({@link #key(StarQuery)}),
+ * indépendante de l'ordre des atomes : deux occurrences d'une même requête dans un
+ * queryset partagent donc leurs réponses. Chaque entrée conserve les lignes de
+ * réponses à plat dans un {@code int[]} ; le cache est borné en octets et évince
+ * les entrées les moins récemment utilisées jusqu'à repasser sous sa borne. Une
+ * réponse trop volumineuse (plus d'un huitième de la borne) n'est pas conservée.
+ * <p>
+ * Chaque entrée retient la version des prédicats que sa requête touche. Le store
+ * signale chaque ajout par {@link #predicateChanged(int)} : les entrées dont un
+ * prédicat a changé depuis leur calcul sont écartées à leur prochaine lecture. Une
+ * requête dont un atome a un prédicat variable dépend de tous les prédicats.
+ */
+public class StarQueryResultCache {
+
+    public static final long DEFAULT_MAX_BYTES = 32L << 20;
+
+    // Estimation du coût fixe d'une entrée (objets, en-têtes de tableaux, chaînage)
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final long maxBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final IntIntHashMap predicateVersions = new IntIntHashMap();
+    private int globalVersion = 0;
+    private long bytes = 0;
+
+    // Aucune version n'est tenue tant que le cache n'a pas servi
+    private volatile boolean used = false;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    public StarQueryResultCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public StarQueryResultCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Calcule la clé canonique d'une requête : ses atomes, triés, suivis de ses
+     * variables réponses dans leur ordre (qui est celui des lignes de réponses).
+     * <p>
+     * Par exemple {@code SELECT ?v0 WHERE { ?v0 <eligibleRegion> <Country137> . }} a
+     * pour clé {@code ?v0 <eligibleRegion> <Country137> . -> ?v0}.
+     */
+    public static String key(StarQuery query) {
+        List<String> atoms = new ArrayList<>(query.getRdfAtoms().size());
+        for (RDFAtom atom : query.getRdfAtoms()) {
+            StringBuilder text = new StringBuilder();
+            for (int position = 0; position < 3; position++) {
+                appendTerm(text, atom.getTerm(position));
+                text.append(' ');
+            }
+            atoms.add(text.append('.').toString());
+        }
+        atoms.sort(null);
+        StringBuilder key = new StringBuilder(String.join(" ", atoms)).append(" ->");
+        for (Variable variable : query.getAnswerVariables()) {
+            appendTerm(key.append(' '), variable);
+        }
+        return key.toString();
+    }
+
+    private static void appendTerm(StringBuilder text, Term term) {
+        if (term.isVariable()) {
+            text.append('?').append(term.label());
+        } else if (term instanceof Literal<?>) {
+            text.append('"').append(term.label()).append('"');
+        } else {
+            text.append('<').append(term.label()).append('>');
+        }
+    }
+
+    /**
+     * @return les réponses encodées de la requête de clé {@code key}, ou null si
+     *         elles sont absentes du cache ou périmées ; la ligne rendue est
+     *         réutilisée d'une réponse à l'autre
+     */
+    public synchronized Iterator<int[]> get(String key) {
+        used = true;
+        Entry entry = entries.get(key);
+        if (entry != null && !isCurrent(entry)) {
+            remove(key, entry);
+            invalidations++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new RowIterator(entry);
+    }
+
+    /**
+     * Enveloppe les réponses d'une requête absente du cache : elles sont recopiées
+     * au fil de leur parcours et l'entrée est ajoutée au cache une fois toutes les
+     * réponses lues, si aucun prédicat touché n'a changé entre-temps.
+     *
+     * @param predicates les identifiants des prédicats touchés par la requête, ou
+     *                   null si l'un de ses atomes a un prédicat variable
+     */
+    public synchronized Iterator<int[]> recording(String key, int[] predicates, Iterator<int[]> rows) {
+        used = true;
+        int[] versions = predicates == null ? new int[0] : new int[predicates.length];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = version(predicates[i]);
+        }
+        return new RecordingIterator(key, predicates, versions, globalVersion, rows);
+    }
+
+    /**
+     * Signale qu'un triplet de prédicat {@code predicate} a été ajouté au store.
+     */
+    public void predicateChanged(int predicate) {
+        if (!used) {
+            return;
+        }
+        synchronized (this) {
+            predicateVersions.put(predicate, version(predicate) + 1);
+            globalVersion++;
+        }
+    }
+
+    /**
+     * Vide le cache sans remettre ses compteurs à zéro.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    private int version(int predicate) {
+        int version = predicateVersions.getValue(predicate);
+        return version == IntIntHashMap.NO_VALUE ? 0 : version;
+    }
+
+    private boolean isCurrent(Entry entry) {
+        if (entry.predicates == null) {
+            return entry.globalVersion == globalVersion;
+        }
+        for (int i = 0; i < entry.predicates.length; i++) {
+            if (version(entry.predicates[i]) != entry.versions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        if (!isCurrent(entry)) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        bytes += entry.bytes;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        entries.remove(key);
+        bytes -= entry.bytes;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized long invalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return la taille estimée (en octets) des entrées du cache
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d entries (%,d bytes), %d hits, %d misses (%.1f%% hit rate), %d evictions, %d invalidations",
+                entries.size(), bytes, hits, misses, 100 * hitRate(), evictions, invalidations);
+    }
+
+    private record Entry(int[] rows, int rowCount, int width, int[] predicates, int[] versions, int globalVersion,
+            long bytes) {
+    }
+
+    /**
+     * Parcours des lignes d'une entrée, recopiées une à une dans la même ligne.
+     */
+    private static final class RowIterator implements Iterator<int[]> {
+        private final Entry entry;
+        private final int[] current;
+        private int row = 0;
+
+        RowIterator(Entry entry) {
+            this.entry = entry;
+            this.current = new int[entry.width];
+        }
+
+        @Override
+        public boolean hasNext() {
+            return row < entry.rowCount;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            System.arraycopy(entry.rows, entry.width * row++, current, 0, entry.width);
+            return current;
+        }
+    }
+
+    private final class RecordingIterator implements Iterator<int[]> {
+        private final String key;
+        private final int[] predicates;
+        private final int[] versions;
+        private final int globalVersion;
+        private final Iterator<int[]> rows;
+        private int[] recorded = new int[16];
+        private int length = 0;
+        private int rowCount = 0;
+        private int width = 0;
+        // Faux dès que les réponses dépassent la taille admise
+        private boolean recording = true;
+
+        RecordingIterator(String key, int[] predicates, int[] versions, int globalVersion, Iterator<int[]> rows) {
+            this.key = key;
+            this.predicates = predicates;
+            this.versions = versions;
+            this.globalVersion = globalVersion;
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = rows.hasNext();
+            if (!hasNext && recording) {
+                recording = false;
+                long size = ENTRY_OVERHEAD + 2L * key.length() + 4L * length + 8L * versions.length;
+                put(key, new Entry(Arrays.copyOf(recorded, length), rowCount, width, predicates, versions,
+                        globalVersion, size));
+                recorded = null;
+            }
+            return hasNext;
+        }
+
+        @Override
+        public int[] next() {
+            int[] row = rows.next();
+            if (recording) {
+                if (4L * (length + row.length) > maxBytes / 8) {
+                    recording = false;
+                    recorded = null;
+                } else {
+                    if (length + row.length > recorded.length) {
+                        recorded = Arrays.copyOf(recorded, Math.max(2 * recorded.length, length + row.length));
+                    }
+                    System.arraycopy(row, 0, recorded, length, row.length);
+                    length += row.length;
+                    width = row.length;
+                    rowCount++;
+                }
+            }
+            return row;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package qengine.query;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import qengine.util.IntIntHashMap;
+import qengine.util.IntList;
+import qengine.util.TripleIndex;
+
+/**
+ * Catalogue de statistiques d'un store, pour estimer la cardinalité d'un motif de
+ * triplet en temps constant.
+ * <p>
+ * Le catalogue conserve le nombre total de triplets, de sujets et d'objets
+ * distincts, et pour chaque prédicat : son nombre de triplets, de sujets et
+ * d'objets distincts, ainsi que ses {@link #HEAVY_HITTERS} objets les plus
+ * fréquents. Pendant les ajouts, ces derniers sont suivis par l'algorithme de
+ * Misra-Gries (fréquences minorées, à n / (k + 1) près) ; {@link #compute} les
+ * recalcule exactement à partir des index.
+ * <p>
+ * Les identifiants sont ceux du dictionnaire du store : {@link #UNBOUND} désigne
+ * une position libre et {@link #ANY_VALUE} une position fixée à une valeur
+ * inconnue (par exemple la variable centrale d'une requête en étoile).
+ */
+public class StatisticsCatalog {
+
+    public static final int HEAVY_HITTERS = 8;
+    public static final int UNBOUND = -1;
+    public static final int ANY_VALUE = -2;
+
+    private long tripleCount;
+    private int distinctSubjects;
+    private int distinctObjects;
+
+    // prédicat -> numéro de ligne dans les tableaux ci-dessous
+    private final IntIntHashMap predicateRows = new IntIntHashMap();
+    private int predicateCount;
+    private long[] predicateTriples = new long[8];
+    private int[] predicateSubjects = new int[8];
+    private int[] predicateObjects = new int[8];
+    // pour la ligne r, les objets fréquents occupent [r * HEAVY_HITTERS, (r + 1) * HEAVY_HITTERS[
+    private int[] heavyObjects = new int[8 * HEAVY_HITTERS];
+    private long[] heavyCounts = new long[8 * HEAVY_HITTERS];
+
+    /**
+     * Prend en compte un triplet nouvellement ajouté au store.
+     *
+     * @param newSubject          true si le sujet n'apparaissait dans aucun triplet
+     * @param newObject           true si l'objet n'apparaissait dans aucun triplet
+     * @param newPredicateSubject true si le sujet n'apparaissait pas avec ce prédicat
+     * @param newPredicateObject  true si l'objet n'apparaissait pas avec ce prédicat
+     */
+    public void add(int predicate, int object, boolean newSubject, boolean newObject, boolean newPredicateSubject,
+            boolean newPredicateObject) {
+        tripleCount++;
+        if (newSubject) {
+            distinctSubjects++;
+        }
+        if (newObject) {
+            distinctObjects++;
+        }
+        int row = row(predicate);
+        predicateTriples[row]++;
+        if (newPredicateSubject) {
+            predicateSubjects[row]++;
+        }
+        if (newPredicateObject) {
+            predicateObjects[row]++;
+        }
+        countHeavyHitter(row, object);
+    }
+
+    /**
+     * Construit le catalogue exact d'un store à partir de ses index.
+     */
+    public static StatisticsCatalog compute(TripleIndex spo, TripleIndex pso, TripleIndex pos, TripleIndex ops) {
+        StatisticsCatalog catalog = new StatisticsCatalog();
+        catalog.tripleCount = spo.size();
+        catalog.distinctSubjects = spo.firsts().size();
+        catalog.distinctObjects = ops.firsts().size();
+        IntList predicates = pso.firsts();
+        for (int i = 0; i < predicates.size(); i++) {
+            int predicate = predicates.get(i);
+            int row = catalog.row(predicate);
+            catalog.predicateSubjects[row] = pso.seconds(predicate).size();
+            IntList objects = pos.seconds(predicate);
+            catalog.predicateObjects[row] = objects.size();
+            long triples = 0;
+            for (int j = 0; j < objects.size(); j++) {
+                int frequency = pos.get(predicate, objects.get(j)).size();
+                triples += frequency;
+                catalog.offerHeavyHitter(row, objects.get(j), frequency);
+            }
+            catalog.predicateTriples[row] = triples;
+        }
+        return catalog;
+    }
+
+    /**
+     * Estime le nombre de triplets correspondant à un motif.
+     *
+     * @param subject   identifiant du sujet, {@link #UNBOUND} ou {@link #ANY_VALUE}
+     * @param predicate identifiant du prédicat, {@link #UNBOUND} ou {@link #ANY_VALUE}
+     * @param object    identifiant de l'objet, {@link #UNBOUND} ou {@link #ANY_VALUE}
+     */
+    public long estimate(int subject, int predicate, int object) {
+        boolean s = subject != UNBOUND;
+        boolean p = predicate != UNBOUND;
+        boolean o = object != UNBOUND;
+        if (s && o) {
+            return Math.min(1, tripleCount);
+        }
+        if (p && predicate != ANY_VALUE) {
+            int row = predicateRows.getValue(predicate);
+            if (row == IntIntHashMap.NO_VALUE) {
+                return 0;
+            }
+            if (s) {
+                return divide(predicateTriples[row], predicateSubjects[row]);
+            }
+            if (o) {
+                return objectFrequency(row, object);
+            }
+            return predicateTriples[row];
+        }
+        if (p && !s && !o) {
+            return divide(tripleCount, predicateCount);
+        }
+        if (s) {
+            return divide(tripleCount, distinctSubjects);
+        }
+        if (o) {
+            return divide(tripleCount, distinctObjects);
+        }
+        return tripleCount;
+    }
+
+    public long tripleCount() {
+        return tripleCount;
+    }
+
+    public int distinctSubjects() {
+        return distinctSubjects;
+    }
+
+    public int distinctObjects() {
+        return distinctObjects;
+    }
+
+    /**
+     * @return le nombre de triplets du prédicat, 0 s'il est inconnu
+     */
+    public long triples(int predicate) {
+        int row = predicateRows.getValue(predicate);
+        return row == IntIntHashMap.NO_VALUE ? 0 : predicateTriples[row];
+    }
+
+    /**
+     * @return le nombre de sujets distincts du prédicat, 0 s'il est inconnu
+     */
+    public int distinctSubjects(int predicate) {
+        int row = predicateRows.getValue(predicate);
+        return row == IntIntHashMap.NO_VALUE ? 0 : predicateSubjects[row];
+    }
+
+    /**
+     * @return le nombre d'objets distincts du prédicat, 0 s'il est inconnu
+     */
+    public int distinctObjects(int predicate) {
+        int row = predicateRows.getValue(predicate);
+        return row == IntIntHashMap.NO_VALUE ? 0 : predicateObjects[row];
+    }
+
+    private long objectFrequency(int row, int object) {
+        long heavyTotal = 0;
+        int heavyDistinct = 0;
+        for (int i = row * HEAVY_HITTERS; i < (row + 1) * HEAVY_HITTERS && heavyCounts[i] > 0; i++) {
+            if (heavyObjects[i] == object) {
+                return heavyCounts[i];
+            }
+            heavyTotal += heavyCounts[i];
+            heavyDistinct++;
+        }
+        // Les autres objets se partagent uniformément les triplets restants
+        int others = predicateObjects[row] - heavyDistinct;
+        return others <= 0 ? 0 : divide(Math.max(0, predicateTriples[row] - heavyTotal), others);
+    }
+
+    private static long divide(long count, long distinct) {
+        return distinct <= 0 ? 0 : (count + distinct - 1) / distinct;
+    }
+
+    private int row(int predicate) {
+        int row = predicateRows.getValue(predicate);
+        if (row != IntIntHashMap.NO_VALUE) {
+            return row;
+        }
+        row = predicateCount++;
+        predicateRows.put(predicate, row);
+        if (row == predicateTriples.length) {
+            int capacity = row * 2;
+            predicateTriples = Arrays.copyOf(predicateTriples, capacity);
+            predicateSubjects = Arrays.copyOf(predicateSubjects, capacity);
+            predicateObjects = Arrays.copyOf(predicateObjects, capacity);
+            heavyObjects = Arrays.copyOf(heavyObjects, capacity * HEAVY_HITTERS);
+            heavyCounts = Arrays.copyOf(heavyCounts, capacity * HEAVY_HITTERS);
+        }
+        return row;
+    }
+
+    /**
+     * Une étape de Misra-Gries : incrémente le compteur de l'objet, en prend un
+     * libre, ou à défaut décrémente tous les compteurs.
+     */
+    private void countHeavyHitter(int row, int object) {
+        int from = row * HEAVY_HITTERS;
+        int to = from + HEAVY_HITTERS;
+        int free = -1;
+        for (int i = from; i < to; i++) {
+            if (heavyCounts[i] > 0 && heavyObjects[i] == object) {
+                heavyCounts[i]++;
+                sortHeavyHitter(from, i);
+                return;
+            }
+            if (heavyCounts[i] == 0 && free < 0) {
+                free = i;
+            }
+        }
+        if (free >= 0) {
+            heavyObjects[free] = object;
+            heavyCounts[free] = 1;
+            return;
+        }
+        int n = from;
+        for (int i = from; i < to; i++) {
+            if (--heavyCounts[i] > 0) {
+                heavyObjects[n] = heavyObjects[i];
+                heavyCounts[n++] = heavyCounts[i];
+            }
+        }
+        Arrays.fill(heavyCounts, n, to, 0);
+    }
+
+    /**
+     * Conserve l'objet s'il fait partie des plus fréquents du prédicat (calcul exact).
+     */
+    private void offerHeavyHitter(int row, int object, long frequency) {
+        int from = row * HEAVY_HITTERS;
+        int last = from + HEAVY_HITTERS - 1;
+        if (frequency <= heavyCounts[last]) {
+            return;
+        }
+        heavyObjects[last] = object;
+        heavyCounts[last] = frequency;
+        sortHeavyHitter(from, last);
+    }
+
+    /**
+     * Remonte le compteur i pour garder les compteurs de la ligne par ordre décroissant.
+     */
+    private void sortHeavyHitter(int from, int i) {
+        while (i > from && heavyCounts[i - 1] < heavyCounts[i]) {
+            int object = heavyObjects[i];
+            long count = heavyCounts[i];
+            heavyObjects[i] = heavyObjects[i - 1];
+            heavyCounts[i] = heavyCounts[i - 1];
+            heavyObjects[i - 1] = object;
+            heavyCounts[i - 1] = count;
+            i--;
+        }
+    }
+
+    /**
+     * Sérialise le catalogue (petit-boutiste), pour l'écrire dans un instantané.
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(24 + predicateCount * (20 + 12 * HEAVY_HITTERS))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(tripleCount).putInt(distinctSubjects).putInt(distinctObjects).putInt(predicateCount)
+                .putInt(HEAVY_HITTERS);
+        for (int i = 0; i < predicateRows.size(); i++) {
+            int row = predicateRows.valueAt(i);
+            buffer.putInt(predicateRows.get(i)).putLong(predicateTriples[row]).putInt(predicateSubjects[row])
+                    .putInt(predicateObjects[row]);
+            for (int h = row * HEAVY_HITTERS; h < (row + 1) * HEAVY_HITTERS; h++) {
+                buffer.putInt(heavyObjects[h]).putLong(heavyCounts[h]);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Relit un catalogue écrit par {@link #toBytes()}.
+     *
+     * @throws IllegalArgumentException si le contenu est incohérent
+     */
+    public static StatisticsCatalog fromBytes(ByteBuffer buffer) {
+        buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        StatisticsCatalog catalog = new StatisticsCatalog();
+        catalog.tripleCount = buffer.getLong();
+        catalog.distinctSubjects = buffer.getInt();
+        catalog.distinctObjects = buffer.getInt();
+        int predicates = buffer.getInt();
+        if (buffer.getInt() != HEAVY_HITTERS || predicates < 0
+                || buffer.remaining() != (long) predicates * (20 + 12 * HEAVY_HITTERS)) {
+            throw new IllegalArgumentException("Inconsistent statistics catalog.");
+        }
+        for (int i = 0; i < predicates; i++) {
+            int row = catalog.row(buffer.getInt());
+            catalog.predicateTriples[row] = buffer.getLong();
+            catalog.predicateSubjects[row] = buffer.getInt();
+            catalog.predicateObjects[row] = buffer.getInt();
+            for (int h = row * HEAVY_HITTERS; h < (row + 1) * HEAVY_HITTERS; h++) {
+                catalog.heavyObjects[h] = buffer.getInt();
+                catalog.heavyCounts[h] = buffer.getLong();
+            }
+        }
+        return catalog;
+    }
+}
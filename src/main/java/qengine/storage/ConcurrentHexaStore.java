@@ -0,0 +1,223 @@
+package qengine.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import qengine.model.RDFAtom;
+import qengine.model.StarQuery;
+import qengine.parser.NTriplesScanner;
+import qengine.query.StatisticsCatalog;
+import qengine.util.CsrTripleIndex;
+import qengine.util.HexaStoreIndex;
+import qengine.util.SortedIntLists;
+import qengine.util.TermEncoder;
+import qengine.util.TripleIndex;
+import qengine.util.UnionTripleIndex;
+
+/**
+ * Hexastore qui accepte des ajouts pendant que d'autres threads l'interrogent.
+ * <p>
+ * Les lectures portent sur une époque : un {@link RDFHexaStore} figé, publié par
+ * une écriture {@code volatile} et jamais modifié ensuite. Une lecture ne prend
+ * aucun verrou ; elle voit l'époque courante au moment de l'appel, du début à la
+ * fin de son parcours. {@link #snapshot()} permet d'évaluer plusieurs requêtes sur
+ * une même époque.
+ * <p>
+ * Les ajouts sont sérialisés entre eux. Chaque triplet est encodé, dédoublonné
+ * puis accumulé dans un delta ; toutes les {@code publishInterval} insertions (ou
+ * à l'appel de {@link #publish()}), une nouvelle époque est publiée. Ses index sont
+ * la réunion ({@link UnionTripleIndex}) de niveaux figés, du plus gros (la base)
+ * au plus petit ; son dictionnaire est une vue du {@link TermEncoder} à cet instant
+ * ({@link TermEncoder#snapshot()}).
+ * <p>
+ * Une publication n'indexe que le delta, qui devient le dernier niveau. Tant que le
+ * dernier niveau atteint la moitié du précédent, les deux sont fusionnés : chaque
+ * niveau fait moins de la moitié du précédent, il y en a O(log N), et un triplet
+ * n'est retrié qu'à chaque fusion de son niveau, dont la taille croît alors d'au
+ * moins moitié, soit O(log N) fois en tout.
+ * <p>
+ * Les statistiques, qui ne servent qu'à ordonner les atomes des requêtes, sont
+ * recalculées à chaque fusion dans la base et ne tiennent pas compte des autres
+ * niveaux.
+ */
+public class ConcurrentHexaStore implements RDFStorage {
+
+    public static final int DEFAULT_PUBLISH_INTERVAL = 1 << 12;
+
+    // Indice de l'index S_P_O parmi les six index
+    private static final int S_P_O = 1;
+    // Un niveau est fusionné dans le précédent dès qu'il en atteint 1 / MERGE_RATIO
+    private static final long MERGE_RATIO = 2;
+
+    private final int publishInterval;
+    private final ForkJoinPool pool;
+
+    // État du thread qui écrit, protégé par le moniteur du store
+    private final TermEncoder termEncoder = new TermEncoder();
+    // Les six index de chaque niveau, la base en premier
+    private final List<CsrTripleIndex[]> levels = new ArrayList<>();
+    private StatisticsCatalog statistics = new StatisticsCatalog();
+    // Les triplets du delta, pas encore publiés
+    private HexaStoreIndex pending = new HexaStoreIndex();
+    private int[] delta = new int[3 * 1024];
+    private int deltaLength = 0;
+    private int unpublished = 0;
+
+    private volatile RDFHexaStore current;
+
+    public ConcurrentHexaStore() {
+        this(DEFAULT_PUBLISH_INTERVAL, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param publishInterval le nombre d'insertions entre deux époques
+     * @param pool            le pool dans lequel les index sont construits
+     */
+    public ConcurrentHexaStore(int publishInterval, ForkJoinPool pool) {
+        if (publishInterval <= 0) {
+            throw new IllegalArgumentException("Publish interval must be positive: " + publishInterval);
+        }
+        this.publishInterval = publishInterval;
+        this.pool = pool;
+        CsrTripleIndex[] base = RDFHexaStore.buildIndexes(new int[0], 0, pool);
+        this.levels.add(base);
+        this.current = new RDFHexaStore(termEncoder.snapshot(), base, statistics);
+    }
+
+    /**
+     * Ajoute un triplet. Il est visible des lectures à partir de la prochaine époque.
+     */
+    @Override
+    public synchronized boolean add(RDFAtom atom) {
+        return addEncoded(termEncoder.encode(atom.getTripleSubject()),
+                termEncoder.encode(atom.getTriplePredicate()),
+                termEncoder.encode(atom.getTripleObject()));
+    }
+
+    // Ajoute un triplet déjà encodé par termEncoder ; appelé sous le moniteur du store
+    private boolean addEncoded(int subject, int predicate, int object) {
+        for (CsrTripleIndex[] level : levels) {
+            if (SortedIntLists.contains(level[S_P_O].get(subject, predicate), object)) {
+                return false;
+            }
+        }
+        if (!pending.add(subject, predicate, object)) {
+            return false;
+        }
+        if (deltaLength + 3 > delta.length) {
+            delta = Arrays.copyOf(delta, 2 * delta.length);
+        }
+        delta[deltaLength++] = subject;
+        delta[deltaLength++] = predicate;
+        delta[deltaLength++] = object;
+        if (++unpublished >= publishInterval) {
+            publish();
+        }
+        return true;
+    }
+
+    /**
+     * Charge un fichier N-Triples en publiant une époque toutes les
+     * {@code publishInterval} insertions, puis à la fin du fichier : le store peut
+     * être interrogé pendant le chargement. Le fichier est lu par
+     * {@link NTriplesScanner}, qui encode les termes directement dans le
+     * dictionnaire du store ; les autres ajouts attendent la fin du chargement.
+     */
+    public synchronized void loadPersistentData(String path) throws IOException {
+        NTriplesScanner.scan(Path.of(path), termEncoder, this::addEncoded);
+        publish();
+    }
+
+    /**
+     * Publie une époque qui contient tous les triplets ajoutés jusqu'ici. Sans effet
+     * si rien n'a été ajouté depuis la dernière époque.
+     */
+    public synchronized void publish() {
+        if (unpublished == 0) {
+            return;
+        }
+        levels.add(RDFHexaStore.buildIndexes(delta, deltaLength / 3, pool));
+        pending = new HexaStoreIndex();
+        deltaLength = 0;
+        while (levels.size() > 1 && MERGE_RATIO * size(levels.get(levels.size() - 1))
+                >= size(levels.get(levels.size() - 2))) {
+            CsrTripleIndex[] last = levels.remove(levels.size() - 1);
+            levels.set(levels.size() - 1, merge(levels.get(levels.size() - 1), last));
+        }
+        if (levels.size() == 1) {
+            CsrTripleIndex[] base = levels.get(0);
+            statistics = StatisticsCatalog.compute(base[1], base[2], base[3], base[4]);
+        }
+
+        TripleIndex[] indexes = new TripleIndex[levels.get(0).length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = levels.get(0)[i];
+            for (int l = 1; l < levels.size(); l++) {
+                indexes[i] = new UnionTripleIndex(indexes[i], levels.get(l)[i]);
+            }
+        }
+        current = new RDFHexaStore(termEncoder.snapshot(), indexes, statistics);
+        unpublished = 0;
+    }
+
+    private CsrTripleIndex[] merge(CsrTripleIndex[] first, CsrTripleIndex[] second) {
+        int[] firstTriples = first[S_P_O].toTriples();
+        int[] triples = Arrays.copyOf(firstTriples, firstTriples.length + 3 * (int) size(second));
+        int[] secondTriples = second[S_P_O].toTriples();
+        System.arraycopy(secondTriples, 0, triples, firstTriples.length, secondTriples.length);
+        return RDFHexaStore.buildIndexes(triples, triples.length / 3, pool);
+    }
+
+    private static long size(CsrTripleIndex[] level) {
+        return level[S_P_O].size();
+    }
+
+    /**
+     * @return le nombre de niveaux de l'époque courante, base comprise
+     */
+    synchronized int levelCount() {
+        return levels.size();
+    }
+
+    /**
+     * @return l'époque courante, figée : ses lectures ne verront aucun ajout ultérieur
+     */
+    public RDFStorage snapshot() {
+        return current;
+    }
+
+    @Override
+    public Iterator<Substitution> match(RDFAtom atom) {
+        return current.match(atom);
+    }
+
+    @Override
+    public Iterator<Substitution> match(StarQuery q) {
+        return current.match(q);
+    }
+
+    @Override
+    public List<Iterator<Substitution>> matchAll(List<StarQuery> queries) {
+        return current.matchAll(queries);
+    }
+
+    /**
+     * @return le nombre de triplets de l'époque courante
+     */
+    @Override
+    public long size() {
+        return current.size();
+    }
+
+    @Override
+    public Collection<Integer> getAtoms() {
+        return current.getAtoms();
+    }
+}
@@ -0,0 +1,295 @@
+package qengine.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import qengine.query.StatisticsCatalog;
+import qengine.util.CsrTripleIndex;
+import qengine.util.FrontCodedTermDictionary;
+import qengine.util.TermDictionary;
+
+/**
+ * Format binaire des instantanés d'un {@link RDFHexaStore} figé.
+ * <p>
+ * Un instantané est un fichier unique, en petit-boutiste :
+ * <pre>
+ *  0  int   MAGIC
+ *  4  int   VERSION
+ *  8  long  nombre de triplets
+ * 16  int   nombre de termes
+ * 20  int   nombre de sections
+ * 24  long  empreinte du fichier source (0 si inconnue)
+ * 32  long  somme de contrôle CRC32C
+ * 40  long  réservé
+ * 48  table des sections : (long position, long taille) par section
+ *     sections, alignées sur 8 octets
+ * </pre>
+ * Les sections sont, dans l'ordre : le dictionnaire (natures, blocs, labels codés
+ * par préfixes, rangs et identifiants, voir {@link FrontCodedTermDictionary}) puis les cinq tableaux de
+ * chacun des six index (voir {@link CsrTripleIndex#buffers()}) et enfin le
+ * catalogue de statistiques (voir {@link StatisticsCatalog#toBytes()}).
+ * <p>
+ * La somme de contrôle porte sur les 32 premiers octets et sur tout ce qui suit
+ * l'en-tête. À l'ouverture, les sections sont projetées en mémoire avec
+ * {@link FileChannel#map} : rien n'est désérialisé.
+ */
+final class HexaStoreSnapshot {
+
+    static final int MAGIC = 0x51484558; // "QHEX"
+    static final int VERSION = 3;
+
+    private static final int HEADER_SIZE = 48;
+    private static final int CHECKSUM_POSITION = 32;
+    private static final int DICTIONARY_SECTIONS = 5;
+    private static final int INDEX_COUNT = 6;
+    private static final int STATISTICS_SECTION = DICTIONARY_SECTIONS + INDEX_COUNT * CsrTripleIndex.BUFFER_COUNT;
+    private static final int SECTION_COUNT = STATISTICS_SECTION + 1;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final long MAX_CHECKSUM_CHUNK = 1L << 30;
+
+    /**
+     * Contenu d'un instantané ouvert.
+     */
+    record Contents(TermDictionary dictionary, CsrTripleIndex[] indexes, StatisticsCatalog statistics,
+            long tripleCount) {
+    }
+
+    private HexaStoreSnapshot() {
+    }
+
+    /**
+     * Écrit un instantané. Le fichier est d'abord écrit à côté de sa destination puis
+     * renommé, si bien qu'un instantané partiellement écrit n'est jamais visible.
+     *
+     * @param path              destination de l'instantané
+     * @param dictionary        le dictionnaire des termes
+     * @param indexes           les six index dans l'ordre S_O_P, S_P_O, P_S_O, P_O_S, O_P_S, O_S_P
+     * @param statistics        le catalogue de statistiques du store
+     * @param sourceFingerprint empreinte du fichier de données d'origine, 0 si inconnue
+     */
+    static void write(Path path, TermDictionary dictionary, CsrTripleIndex[] indexes, StatisticsCatalog statistics,
+            long sourceFingerprint) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        long[] sections = new long[2 * SECTION_COUNT];
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            SectionWriter writer = new SectionWriter(channel, HEADER_SIZE + 16L * SECTION_COUNT);
+            int section = 0;
+
+            int termCount = dictionary.size();
+            FrontCodedTermDictionary.Buffers terms = FrontCodedTermDictionary.encode(dictionary);
+            writer.begin(sections, section++);
+            writer.putBytes(terms.kinds());
+            writer.begin(sections, section++);
+            writer.putInts(IntBuffer.wrap(terms.blocks()));
+            writer.begin(sections, section++);
+            writer.putBytes(terms.data());
+            writer.begin(sections, section++);
+            writer.putInts(IntBuffer.wrap(terms.ranks()));
+            writer.begin(sections, section++);
+            writer.putInts(IntBuffer.wrap(terms.codes()));
+
+            long tripleCount = indexes[0].size();
+            for (CsrTripleIndex index : indexes) {
+                for (IntBuffer buffer : index.buffers()) {
+                    writer.begin(sections, section++);
+                    writer.putInts(buffer);
+                }
+            }
+            writer.begin(sections, section++);
+            writer.putBytes(statistics.toBytes());
+            writer.end(sections, section - 1);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 16 * SECTION_COUNT).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(tripleCount).putInt(termCount).putInt(SECTION_COUNT)
+                    .putLong(sourceFingerprint).putLong(0).putLong(0);
+            for (long value : sections) {
+                header.putLong(value);
+            }
+            header.flip();
+            channel.write(header, 0);
+
+            ByteBuffer checksum = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            checksum.putLong(0, checksum(channel));
+            channel.write(checksum, CHECKSUM_POSITION);
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Ouvre un instantané en projetant ses sections en mémoire.
+     *
+     * @param path              l'instantané
+     * @param sourceFingerprint empreinte attendue du fichier source, 0 pour ne pas la vérifier
+     * @param verifyChecksum    si true, tout le fichier est relu pour vérifier sa somme de contrôle
+     * @throws IOException si l'instantané est illisible, d'une autre version, corrompu
+     *                     ou construit à partir d'un autre fichier source
+     */
+    static Contents read(Path path, long sourceFingerprint, boolean verifyChecksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a hexastore snapshot: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a hexastore snapshot: " + path);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported snapshot version " + header.getInt(4) + " (expected "
+                        + VERSION + "): " + path);
+            }
+            long tripleCount = header.getLong(8);
+            int termCount = header.getInt(16);
+            if (header.getInt(20) != SECTION_COUNT || channel.size() < HEADER_SIZE + 16L * SECTION_COUNT) {
+                throw new IOException("Corrupted snapshot header: " + path);
+            }
+            if (sourceFingerprint != 0 && header.getLong(24) != sourceFingerprint) {
+                throw new IOException("Stale snapshot, the source data has changed since: " + path);
+            }
+            if (verifyChecksum && header.getLong(CHECKSUM_POSITION) != checksum(channel)) {
+                throw new IOException("Snapshot checksum mismatch: " + path);
+            }
+
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, 16L * SECTION_COUNT)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            MappedByteBuffer[] sections = new MappedByteBuffer[SECTION_COUNT];
+            for (int i = 0; i < SECTION_COUNT; i++) {
+                long position = table.getLong(16 * i);
+                long size = table.getLong(16 * i + 8);
+                if (position < 0 || size < 0 || position + size > channel.size()) {
+                    throw new IOException("Corrupted snapshot section table: " + path);
+                }
+                sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                sections[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            try {
+                TermDictionary dictionary = new FrontCodedTermDictionary(sections[0], ints(sections[1]),
+                        sections[2], ints(sections[3]), ints(sections[4]));
+                CsrTripleIndex[] indexes = new CsrTripleIndex[INDEX_COUNT];
+                for (int i = 0; i < INDEX_COUNT; i++) {
+                    IntBuffer[] buffers = new IntBuffer[CsrTripleIndex.BUFFER_COUNT];
+                    for (int b = 0; b < buffers.length; b++) {
+                        buffers[b] = ints(sections[DICTIONARY_SECTIONS + i * CsrTripleIndex.BUFFER_COUNT + b]);
+                    }
+                    indexes[i] = CsrTripleIndex.wrap(buffers);
+                    if (indexes[i].size() != tripleCount) {
+                        throw new IllegalArgumentException("Index " + i + " does not hold " + tripleCount + " triples.");
+                    }
+                }
+                if (dictionary.size() != termCount) {
+                    throw new IllegalArgumentException("Dictionary does not hold " + termCount + " terms.");
+                }
+                StatisticsCatalog statistics = StatisticsCatalog.fromBytes(sections[STATISTICS_SECTION]);
+                return new Contents(dictionary, indexes, statistics, tripleCount);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+                throw new IOException("Corrupted snapshot: " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Empreinte d'un fichier de données, pour détecter un instantané périmé.
+     */
+    static long fingerprint(File source) {
+        long fingerprint = 31 * source.length() + source.lastModified();
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    private static IntBuffer ints(ByteBuffer section) {
+        return section.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private static long checksum(FileChannel channel) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, CHECKSUM_POSITION));
+        long size = channel.size();
+        for (long position = HEADER_SIZE; position < size; position += MAX_CHECKSUM_CHUNK) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(MAX_CHECKSUM_CHUNK, size - position)));
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Écriture séquentielle des sections au travers d'un tampon intermédiaire.
+     */
+    private static final class SectionWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        SectionWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        /**
+         * Termine la section précédente et commence la section d'indice section,
+         * alignée sur 8 octets.
+         */
+        void begin(long[] sections, int section) throws IOException {
+            if (section > 0) {
+                end(sections, section - 1);
+            }
+            flush();
+            position = (position + 7) & ~7L;
+            sections[2 * section] = position;
+        }
+
+        void end(long[] sections, int section) throws IOException {
+            flush();
+            sections[2 * section + 1] = position - sections[2 * section];
+        }
+
+        void putByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putBytes(byte[] values) throws IOException {
+            for (byte value : values) {
+                putByte(value);
+            }
+        }
+
+        void putInts(IntBuffer values) throws IOException {
+            for (int i = 0; i < values.limit(); i++) {
+                putInt(values.get(i));
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package qengine.storage;
+
+/**
+ * Bilan d'un chargement de données dans un store.
+ *
+ * @param triplesRead    nombre de triplets lus dans le fichier
+ * @param triplesAdded   nombre de triplets effectivement ajoutés (hors doublons)
+ * @param batches        nombre de lots indexés
+ * @param elapsedNanos   durée du chargement, en nanosecondes
+ * @param peakHeapBytes  plus forte occupation du tas observée entre deux lots
+ */
+public record LoadStatistics(long triplesRead, long triplesAdded, int batches, long elapsedNanos,
+        long peakHeapBytes) {
+
+    /**
+     * @return le débit du chargement, en triplets lus par seconde
+     */
+    public double triplesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : triplesRead * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d triples read (%,d added) in %d batches, %.1f s, %,.0f triples/s, peak heap %,d MB",
+                triplesRead, triplesAdded, batches, elapsedNanos / 1e9, triplesPerSecond(), peakHeapBytes >> 20);
+    }
+}
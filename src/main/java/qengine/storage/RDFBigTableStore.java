@@ -1,38 +1,56 @@
 package qengine.storage;
 
-import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
-import org.apache.commons.lang3.NotImplementedException;
 import org.eclipse.rdf4j.rio.RDFFormat;
 
 import fr.boreal.model.logicalElements.api.Substitution;
 import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
 import qengine.model.RDFAtom;
 import qengine.model.StarQuery;
+import qengine.parser.NTriplesScanner;
+import qengine.parser.ParallelNTriplesReader;
 import qengine.parser.RDFAtomParser;
+import qengine.query.StarQueryPlanCache;
 import qengine.util.BigTableMatchIterator;
+import qengine.util.BigTableRowIterator;
+import qengine.util.DecodingIterator;
+import qengine.util.EncodedRowIterator;
 import qengine.util.Globals;
+import qengine.util.IntArrayCollection;
+import qengine.util.IntColumn;
+import qengine.util.ParallelBigTableMatchIterator;
+import qengine.util.QueryMetrics;
 import qengine.util.TermEncoder;
 
 /**
- * Implémentation d'un HexaStore pour stocker des RDFAtom.
- * Cette classe utilise six index pour optimiser les recherches.
- * Les index sont basés sur les combinaisons (Sujet, Prédicat, Objet), (Sujet,
- * Objet, Prédicat),
- * (Prédicat, Sujet, Objet), (Prédicat, Objet, Sujet), (Objet, Sujet, Prédicat)
- * et (Objet, Prédicat, Sujet).
+ * Stockage des RDFAtom sous la forme d'une seule table (sujet, prédicat, objet),
+ * sans index : chaque recherche parcourt toute la table.
+ * <p>
+ * Les trois colonnes sont des tableaux d'entiers découpés en blocs
+ * ({@link IntColumn}) ; un scan filtre un bloc entier à la fois sans branchement
+ * (voir {@link BigTableMatchIterator}).
  */
 public class RDFBigTableStore implements RDFStorage {
 
-    private final List<Integer> rdfAtomsSubject = new ArrayList<>();
-    private final List<Integer> rdfAtomsPredicate = new ArrayList<>();
-    private final List<Integer> rdfAtomsObject = new ArrayList<>();
+    private final IntColumn rdfAtomsSubject = new IntColumn();
+    private final IntColumn rdfAtomsPredicate = new IntColumn();
+    private final IntColumn rdfAtomsObject = new IntColumn();
     private TermEncoder termEncoder = new TermEncoder();
 
     public int getAvailableTerms(RDFAtom atom) {
@@ -53,18 +71,42 @@ public class RDFBigTableStore implements RDFStorage {
         return res;
     }
 
-    public void loadPersistentData(String path) throws FileNotFoundException {
-        FileReader rdfFile = new FileReader(path);
-
-        try (RDFAtomParser rdfAtomParser = new RDFAtomParser(rdfFile, RDFFormat.NTRIPLES)) {
+    public void loadPersistentData(String path) throws IOException {
+        try (RDFAtomParser rdfAtomParser = new RDFAtomParser(new FileReader(path), RDFFormat.NTRIPLES)) {
             while (rdfAtomParser.hasNext()) {
-                RDFAtom atom = rdfAtomParser.next();
-                add(atom);
+                add(rdfAtomParser.next());
             }
-
         }
     }
 
+    /**
+     * Charge un fichier N-Triples, lu par {@link NTriplesScanner} plutôt que par rdf4j.
+     */
+    public void scanPersistentData(String path) throws IOException {
+        NTriplesScanner.scan(Path.of(path), termEncoder, this::addEncoded);
+    }
+
+    /**
+     * Charge un fichier N-Triples avec {@code parsers} threads de lecture (voir
+     * {@link ParallelNTriplesReader}). Les lignes de la table suivent l'ordre
+     * d'arrivée des lots, et non celui du fichier.
+     *
+     * @return le nombre de triplets lus
+     */
+    public long parallelLoadPersistentData(String path, int parsers) throws IOException {
+        return new ParallelNTriplesReader(parsers).read(Path.of(path), termEncoder, (triples, length) -> {
+            for (int i = 0; i < length; i += 3) {
+                addEncoded(triples[i], triples[i + 1], triples[i + 2]);
+            }
+        });
+    }
+
+    private void addEncoded(int subject, int predicate, int object) {
+        rdfAtomsSubject.add(subject);
+        rdfAtomsPredicate.add(predicate);
+        rdfAtomsObject.add(object);
+    }
+
     @Override
     public boolean add(RDFAtom atom) {
         rdfAtomsSubject.add(termEncoder.encode((atom.getTripleSubject())));
@@ -80,19 +122,162 @@ public class RDFBigTableStore implements RDFStorage {
 
     @Override
     public Iterator<Substitution> match(RDFAtom atom) {
-        return new BigTableMatchIterator(atom, getAvailableTerms(atom), termEncoder,
-                                         rdfAtomsSubject, rdfAtomsPredicate, rdfAtomsObject);
+        long start = QueryMetrics.ENABLED ? System.nanoTime() : 0;
+        Iterator<Substitution> answers = new BigTableMatchIterator(atom, getAvailableTerms(atom), termEncoder,
+                                                                   rdfAtomsSubject, rdfAtomsPredicate, rdfAtomsObject);
+        if (QueryMetrics.ENABLED) {
+            answers = QueryMetrics.instance().metered("bigtable " + QueryMetrics.atomShape(atom), start, answers);
+        }
+        return answers;
     }
 
-    @Override
+    /**
+     * Comme {@link #match(RDFAtom)}, mais sans décoder les termes : chaque ligne
+     * contient les identifiants des variables de l'atome (voir {@link BigTableRowIterator}).
+     */
+    public EncodedRowIterator matchEncoded(RDFAtom atom) {
+        return new BigTableRowIterator(atom, getAvailableTerms(atom), termEncoder,
+                                       rdfAtomsSubject, rdfAtomsPredicate, rdfAtomsObject);
+    }
+
+    /**
+     * Parcours parallèle de la table, utile pour les motifs peu sélectifs sur de gros
+     * volumes : la table est découpée en partitions filtrées simultanément par
+     * {@code executor} (voir {@link ParallelBigTableMatchIterator}).
+     *
+     * @param ordered true pour obtenir les résultats dans le même ordre que
+     *                {@link #match(RDFAtom)}, false pour les obtenir au fil de l'eau
+     */
+    public Iterator<Substitution> match(RDFAtom atom, ExecutorService executor, boolean ordered) {
+        return new ParallelBigTableMatchIterator(atom, getAvailableTerms(atom), termEncoder,
+                                                 rdfAtomsSubject, rdfAtomsPredicate, rdfAtomsObject,
+                                                 executor, ordered);
+    }
 
+    /**
+     * Évalue une requête en étoile par jointure sur la variable centrale : chaque
+     * atome est filtré par un parcours de la table, ses lignes sont regroupées par
+     * valeur de la variable centrale, puis les lignes des atomes sont combinées pour
+     * chaque valeur commune à tous les atomes. Les réponses sont distinctes.
+     */
+    @Override
     public Iterator<Substitution> match(StarQuery q) {
-        throw new NotImplementedException();
+        if (QueryMetrics.ENABLED) {
+            long start = System.nanoTime();
+            return QueryMetrics.instance().metered("bigtable star " + StarQueryPlanCache.signature(q), start,
+                    evaluate(q));
+        }
+        return evaluate(q);
+    }
+
+    private Iterator<Substitution> evaluate(StarQuery q) {
+        List<RDFAtom> atoms = q.getRdfAtoms();
+        List<Variable> variables = new ArrayList<>();
+        int[][] slots = new int[atoms.size()][];
+        List<Map<Integer, List<int[]>>> rowsByCentral = new ArrayList<>(atoms.size());
+        for (int i = 0; i < atoms.size(); i++) {
+            EncodedRowIterator rows = matchEncoded(atoms.get(i));
+            Variable[] schema = rows.variables();
+            slots[i] = new int[schema.length];
+            for (int column = 0; column < schema.length; column++) {
+                if (!variables.contains(schema[column])) {
+                    variables.add(schema[column]);
+                }
+                slots[i][column] = variables.indexOf(schema[column]);
+            }
+            int centralColumn = Arrays.asList(schema).indexOf(q.getCentralVariable());
+            Map<Integer, List<int[]>> groups = new HashMap<>();
+            while (rows.hasNext()) {
+                int[] row = rows.next().clone();
+                groups.computeIfAbsent(row[centralColumn], k -> new ArrayList<>()).add(row);
+            }
+            if (groups.isEmpty()) {
+                return Collections.emptyIterator();
+            }
+            rowsByCentral.add(groups);
+        }
+
+        Variable[] answerVariables = q.getAnswerVariables().toArray(new Variable[0]);
+        int[] answerSlots = Arrays.stream(answerVariables).mapToInt(variables::indexOf).toArray();
+        StarJoin join = new StarJoin(rowsByCentral, slots, variables.size(), answerSlots);
+        Map<Integer, List<int[]>> smallest = rowsByCentral.stream()
+                .min(Comparator.comparingInt(Map::size)).orElseThrow();
+        smallest.keySet().stream().sorted().forEach(join::combine);
+        return new DecodingIterator(join.answers.iterator(), answerVariables, termEncoder);
+    }
+
+    /**
+     * Combinaison des lignes des atomes d'une requête en étoile pour une valeur de
+     * la variable centrale.
+     */
+    private static final class StarJoin {
+        private static final int UNBOUND = -1;
+
+        private final List<Map<Integer, List<int[]>>> rowsByCentral;
+        private final int[][] slots;
+        private final int[] answerSlots;
+        private final int[] binding;
+        private final Set<IntArrayCollection> seen = new HashSet<>();
+        private final List<int[]> answers = new ArrayList<>();
+
+        StarJoin(List<Map<Integer, List<int[]>>> rowsByCentral, int[][] slots, int variableCount,
+                int[] answerSlots) {
+            this.rowsByCentral = rowsByCentral;
+            this.slots = slots;
+            this.answerSlots = answerSlots;
+            this.binding = new int[variableCount];
+            Arrays.fill(binding, UNBOUND);
+        }
+
+        void combine(int central) {
+            for (Map<Integer, List<int[]>> groups : rowsByCentral) {
+                if (!groups.containsKey(central)) {
+                    return;
+                }
+            }
+            combine(central, 0);
+        }
+
+        private void combine(int central, int atom) {
+            if (atom == slots.length) {
+                int[] answer = new int[answerSlots.length];
+                for (int i = 0; i < answer.length; i++) {
+                    answer[i] = binding[answerSlots[i]];
+                }
+                if (seen.add(new IntArrayCollection(answer))) {
+                    answers.add(answer);
+                }
+                return;
+            }
+            int[] atomSlots = slots[atom];
+            for (int[] row : rowsByCentral.get(atom).get(central)) {
+                int bound = 0;
+                boolean consistent = true;
+                for (int column = 0; column < row.length && consistent; column++) {
+                    int slot = atomSlots[column];
+                    if (binding[slot] == UNBOUND) {
+                        binding[slot] = row[column];
+                        // Colonnes liées par cette ligne, à délier ensuite
+                        bound |= 1 << column;
+                    } else {
+                        consistent = binding[slot] == row[column];
+                    }
+                }
+                if (consistent) {
+                    combine(central, atom + 1);
+                }
+                for (int column = 0; column < row.length; column++) {
+                    if ((bound & (1 << column)) != 0) {
+                        binding[atomSlots[column]] = UNBOUND;
+                    }
+                }
+            }
+        }
     }
 
     @Override
     public Collection<Integer> getAtoms() {
-        return Collections.unmodifiableCollection(rdfAtomsSubject);
+        return new IntArrayCollection(rdfAtomsSubject.toArray());
     }
 
 }
@@ -1,32 +1,52 @@
 package qengine.storage;
 
-import java.io.FileNotFoundException;
+import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.logging.Logger;
 
-import org.apache.commons.lang3.NotImplementedException;
 import org.eclipse.rdf4j.rio.RDFFormat;
 
 import fr.boreal.model.logicalElements.api.Substitution;
 import fr.boreal.model.logicalElements.api.Term;
 import fr.boreal.model.logicalElements.api.Variable;
-import fr.boreal.model.logicalElements.impl.SubstitutionImpl;
 import qengine.model.RDFAtom;
 import qengine.model.StarQuery;
+import qengine.parser.NTriplesScanner;
+import qengine.parser.ParallelNTriplesReader;
 import qengine.parser.RDFAtomParser;
+import qengine.query.StarQueryEvaluator;
+import qengine.query.CandidateSetCache;
+import qengine.query.StarQueryPlanCache;
+import qengine.query.StarQueryResultCache;
+import qengine.query.StatisticsCatalog;
 import qengine.util.Globals;
-import qengine.util.HexaStoreSearchTree;
+import qengine.util.CsrTripleIndex;
+import qengine.util.DecodingIterator;
+import qengine.util.EncodedRowIterator;
+import qengine.util.HexaStoreIndex;
+import qengine.util.IndexRowIterator;
+import qengine.util.IntColumn;
+import qengine.util.IntArrayCollection;
+import qengine.util.IntList;
+import qengine.util.QueryMetrics;
 import qengine.util.Result;
+import qengine.util.TermDictionary;
 import qengine.util.TermEncoder;
+import qengine.util.TripleIndex;
 
 /**
  * Implémentation d'un HexaStore pour stocker des RDFAtom.
@@ -35,69 +55,494 @@ import qengine.util.TermEncoder;
  * Objet, Prédicat),
  * (Prédicat, Sujet, Objet), (Prédicat, Objet, Sujet), (Objet, Sujet, Prédicat)
  * et (Objet, Prédicat, Sujet).
+ * <p>
+ * Une fois le chargement terminé, {@link #seal()} fige le store : chaque index est
+ * reconstruit en tableaux triés contigus ({@link CsrTripleIndex}), plus compacts et
+ * parcourus par dichotomie. Un store figé n'accepte plus d'ajout.
+ * <p>
+ * Un store figé peut être écrit dans un instantané binaire ({@link #writeSnapshot(Path)})
+ * puis rouvert quasi instantanément ({@link #openSnapshot(Path)}) : le dictionnaire
+ * et les index sont alors servis directement depuis le fichier projeté en mémoire.
+ * <p>
+ * Le store tient à jour un catalogue de statistiques ({@link #statistics()}) qui
+ * permet d'estimer la cardinalité d'un motif et d'ordonner les atomes des requêtes.
+ * Les réponses des requêtes en étoile sont conservées dans un cache
+ * ({@link #resultCache()}), invalidé au fil des ajouts. Les candidats de la
+ * variable centrale sont aussi conservés par ensemble d'atomes
+ * ({@link #candidateCache()}), pour les réutiliser dans les requêtes qui
+ * contiennent ces atomes.
+ * <p>
+ * Les lectures ({@link #match(RDFAtom)}, {@link #match(StarQuery)} et leurs
+ * variantes encodées) peuvent être faites par plusieurs threads à la fois : les
+ * caches partagés sont synchronisés et les index ne sont jamais modifiés par une
+ * lecture. Les ajouts et le chargement doivent en revanche être exclusifs.
  */
 public class RDFHexaStore implements RDFStorage {
 
-    private final TermEncoder termEncoder = new TermEncoder();
+    /**
+     * Taille par défaut des lots de {@link #loadPersistentData(String, int)}.
+     */
+    public static final int DEFAULT_LOAD_BATCH_SIZE = 1 << 16;
+
+    // Positions (s=0, p=1, o=2) des clés des six index, dans l'ordre S_O_P, S_P_O,
+    // P_S_O, P_O_S, O_P_S, O_S_P
+    private static final int[][] INDEX_ORDERS = {
+            {0, 2, 1}, {0, 1, 2}, {1, 0, 2}, {1, 2, 0}, {2, 1, 0}, {2, 0, 1}
+    };
+
+    // null pour un store ouvert depuis un instantané
+    private final TermEncoder termEncoder;
+    private final TermDictionary dictionary;
+
+    private TripleIndex S_O_P = new HexaStoreIndex();
+    private TripleIndex S_P_O = new HexaStoreIndex();
+    private TripleIndex P_S_O = new HexaStoreIndex();
+    private TripleIndex P_O_S = new HexaStoreIndex();
+    private TripleIndex O_P_S = new HexaStoreIndex();
+    private TripleIndex O_S_P = new HexaStoreIndex();
+
+    private StatisticsCatalog statistics = new StatisticsCatalog();
+    private final StarQueryPlanCache planCache = new StarQueryPlanCache();
+    private final StarQueryResultCache resultCache = new StarQueryResultCache();
+    private final CandidateSetCache candidateCache = new CandidateSetCache();
+    private boolean sealed = false;
+    private long sourceFingerprint = 0;
+
+    public RDFHexaStore() {
+        this.termEncoder = new TermEncoder();
+        this.dictionary = termEncoder;
+    }
 
-    private final HexaStoreSearchTree<Integer> S_O_P = new HexaStoreSearchTree<>();
-    private final HexaStoreSearchTree<Integer> S_P_O = new HexaStoreSearchTree<>();
-    private final HexaStoreSearchTree<Integer> P_S_O = new HexaStoreSearchTree<>();
-    private final HexaStoreSearchTree<Integer> P_O_S = new HexaStoreSearchTree<>();
-    private final HexaStoreSearchTree<Integer> O_P_S = new HexaStoreSearchTree<>();
-    private final HexaStoreSearchTree<Integer> O_S_P = new HexaStoreSearchTree<>();
+    private RDFHexaStore(HexaStoreSnapshot.Contents snapshot) {
+        this(snapshot.dictionary(), snapshot.indexes(), snapshot.statistics());
+    }
 
-    private void loadTerm(Set<Term> rawTerms) {
-        for (Term rawTerm : rawTerms) {
-            termEncoder.encode(rawTerm);
+    /**
+     * Crée un store figé sur un dictionnaire et des index en lecture seule, par
+     * exemple une époque d'un {@link ConcurrentHexaStore}.
+     *
+     * @param indexes les index dans l'ordre S_O_P, S_P_O, P_S_O, P_O_S, O_P_S, O_S_P
+     */
+    RDFHexaStore(TermDictionary dictionary, TripleIndex[] indexes, StatisticsCatalog statistics) {
+        this.termEncoder = null;
+        this.dictionary = dictionary;
+        setSealedIndexes(indexes);
+        this.statistics = statistics;
+    }
+
+    private void setSealedIndexes(TripleIndex[] indexes) {
+        S_O_P = indexes[0];
+        S_P_O = indexes[1];
+        P_S_O = indexes[2];
+        P_O_S = indexes[3];
+        O_P_S = indexes[4];
+        O_S_P = indexes[5];
+        sealed = true;
+    }
+
+    /**
+     * Ouvre un instantané écrit par {@link #writeSnapshot(Path)}, après avoir vérifié
+     * sa somme de contrôle.
+     *
+     * @throws IOException si l'instantané est illisible, d'une autre version ou corrompu
+     */
+    public static RDFHexaStore openSnapshot(Path snapshot) throws IOException {
+        return new RDFHexaStore(HexaStoreSnapshot.read(snapshot, 0, true));
+    }
+
+    /**
+     * Ouvre un instantané en vérifiant en plus qu'il a été construit à partir de la
+     * version actuelle du fichier de données source.
+     *
+     * @param verifyChecksum false pour ne pas relire tout le fichier à l'ouverture
+     * @throws IOException si l'instantané est illisible, d'une autre version, corrompu ou périmé
+     */
+    public static RDFHexaStore openSnapshot(Path snapshot, Path source, boolean verifyChecksum) throws IOException {
+        return new RDFHexaStore(HexaStoreSnapshot.read(snapshot, HexaStoreSnapshot.fingerprint(source.toFile()),
+                verifyChecksum));
+    }
+
+    /**
+     * Écrit un instantané binaire du store, après l'avoir figé.
+     */
+    public void writeSnapshot(Path snapshot) throws IOException {
+        seal();
+        if (!(S_P_O instanceof CsrTripleIndex)) {
+            throw new IllegalStateException("Only stores with CSR indexes can be written to a snapshot.");
         }
+        HexaStoreSnapshot.write(snapshot, dictionary, new CsrTripleIndex[]{
+                (CsrTripleIndex) S_O_P, (CsrTripleIndex) S_P_O, (CsrTripleIndex) P_S_O,
+                (CsrTripleIndex) P_O_S, (CsrTripleIndex) O_P_S, (CsrTripleIndex) O_S_P
+        }, statistics, sourceFingerprint);
     }
 
-    public void loadPersistentData(String path) throws FileNotFoundException {
-        FileReader rdfFile = new FileReader(path);
-        Set<Term> rawTerms = new HashSet<>();
-        List<RDFAtom> atoms = new ArrayList<>();
+    /**
+     * Charge un fichier N-Triples par lots de {@link #DEFAULT_LOAD_BATCH_SIZE} triplets.
+     */
+    public void loadPersistentData(String path) throws IOException {
+        loadPersistentData(path, DEFAULT_LOAD_BATCH_SIZE);
+    }
 
-        try (RDFAtomParser rdfAtomParser = new RDFAtomParser(rdfFile, RDFFormat.NTRIPLES)) {
+    /**
+     * Charge un fichier N-Triples en flux : chaque atome est encodé dès sa sortie du
+     * parseur ({@link RDFAtomParser}) puis oublié, et les triplets encodés sont
+     * indexés par lots de {@code batchSize}. La mémoire consommée en plus des index
+     * est donc bornée par la taille d'un lot, quelle que soit la taille du fichier.
+     *
+     * @param batchSize nombre de triplets encodés avant leur indexation
+     * @return le bilan du chargement (débit, pic d'occupation du tas)
+     */
+    public LoadStatistics loadPersistentData(String path, int batchSize) throws IOException {
+        BatchLoader loader = startLoad(path, batchSize);
+        try (RDFAtomParser rdfAtomParser = new RDFAtomParser(new FileReader(path), RDFFormat.NTRIPLES)) {
             while (rdfAtomParser.hasNext()) {
                 RDFAtom atom = rdfAtomParser.next();
-                rawTerms.add(atom.getTripleSubject());
-                rawTerms.add(atom.getTriplePredicate());
-                rawTerms.add(atom.getTripleObject());
-                atoms.add(atom);
+                loader.accept(termEncoder.encode(atom.getTripleSubject()),
+                        termEncoder.encode(atom.getTriplePredicate()),
+                        termEncoder.encode(atom.getTripleObject()));
             }
-            loadTerm(rawTerms);
+        }
+        return loader.finish();
+    }
+
+    /**
+     * Charge un fichier N-Triples par lots de {@link #DEFAULT_LOAD_BATCH_SIZE}
+     * triplets, lu par {@link NTriplesScanner}.
+     */
+    public void scanPersistentData(String path) throws IOException {
+        scanPersistentData(path, DEFAULT_LOAD_BATCH_SIZE);
+    }
+
+    /**
+     * Comme {@link #loadPersistentData(String, int)}, mais le fichier est lu par
+     * {@link NTriplesScanner} plutôt que par rdf4j. Les triplets et les identifiants
+     * sont les mêmes, à ceci près que les nœuds anonymes gardent l'identifiant qu'ils
+     * ont dans le fichier.
+     */
+    public LoadStatistics scanPersistentData(String path, int batchSize) throws IOException {
+        BatchLoader loader = startLoad(path, batchSize);
+        NTriplesScanner.scan(Path.of(path), termEncoder, loader);
+        return loader.finish();
+    }
 
-            for (RDFAtom atom : atoms) {
-                add(atom);
+    private BatchLoader startLoad(String path, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if (sealed) {
+            throw new IllegalStateException("The store is sealed and cannot be modified.");
+        }
+        sourceFingerprint = HexaStoreSnapshot.fingerprint(new File(path));
+        return new BatchLoader(batchSize);
+    }
+
+    /**
+     * Charge un fichier N-Triples avec {@code parsers} threads de lecture (voir
+     * {@link ParallelNTriplesReader}) ; les lots de triplets encodés sont indexés
+     * par le thread appelant au fil de leur arrivée. Les triplets ajoutés sont ceux
+     * de {@link #loadPersistentData(String)}, mais les identifiants des termes
+     * dépendent de l'ordre d'arrivée des lots.
+     *
+     * @return le bilan du chargement (débit, pic d'occupation du tas)
+     */
+    public LoadStatistics parallelLoadPersistentData(String path, int parsers) throws IOException {
+        if (sealed) {
+            throw new IllegalStateException("The store is sealed and cannot be modified.");
+        }
+        sourceFingerprint = HexaStoreSnapshot.fingerprint(new File(path));
+        BatchLoader loader = new BatchLoader(0);
+        new ParallelNTriplesReader(parsers).read(Path.of(path), termEncoder, loader);
+        return loader.finish();
+    }
+
+    /**
+     * Accumule les triplets lus un à un et les indexe par lots, ou indexe des lots
+     * déjà formés.
+     */
+    private final class BatchLoader implements NTriplesScanner.TripleConsumer, ParallelNTriplesReader.BatchConsumer {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final long start = System.nanoTime();
+        private final int[] batch;
+        private int n = 0;
+        private long read = 0;
+        private long added = 0;
+        private int batches = 0;
+        private long peakHeap = memory.getHeapMemoryUsage().getUsed();
+
+        BatchLoader(int batchSize) {
+            this.batch = new int[3 * batchSize];
+        }
+
+        @Override
+        public void accept(int subject, int predicate, int object) {
+            batch[n++] = subject;
+            batch[n++] = predicate;
+            batch[n++] = object;
+            if (n == batch.length) {
+                accept(batch, n);
+                n = 0;
+            }
+        }
+
+        @Override
+        public void accept(int[] triples, int length) {
+            added += addEncoded(triples, length);
+            read += length / 3;
+            batches++;
+            peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+        }
+
+        LoadStatistics finish() {
+            if (n > 0) {
+                accept(batch, n);
+                n = 0;
             }
+            peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+            return new LoadStatistics(read, added, batches, System.nanoTime() - start, peakHeap);
         }
     }
 
-    @Override
-    public boolean add(RDFAtom atom) {
-        int subject = termEncoder.encode(atom.getTripleSubject());
-        int predicate = termEncoder.encode(atom.getTriplePredicate());
-        int object = termEncoder.encode(atom.getTripleObject());
+    /**
+     * Charge un fichier N-Triples dans un store vide en construisant directement les
+     * index figés, en parallèle dans le pool commun.
+     *
+     * @see #bulkLoadPersistentData(String, ForkJoinPool)
+     */
+    public LoadStatistics bulkLoadPersistentData(String path) throws IOException {
+        return bulkLoadPersistentData(path, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Charge un fichier N-Triples dans un store vide : les triplets sont encodés une
+     * seule fois dans un tableau d'entiers, puis les six index figés sont construits
+     * simultanément dans {@code pool} (voir {@link #buildIndexes}). Le store obtenu
+     * est figé et contient exactement les mêmes triplets, avec les mêmes
+     * identifiants, qu'après un chargement par {@link #add(RDFAtom)}.
+     *
+     * @throws IllegalStateException si le store n'est pas vide
+     */
+    public LoadStatistics bulkLoadPersistentData(String path, ForkJoinPool pool) throws IOException {
+        checkBulkLoad(path);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long start = System.nanoTime();
+
+        IntColumn encoded = new IntColumn();
+        try (RDFAtomParser rdfAtomParser = new RDFAtomParser(new FileReader(path), RDFFormat.NTRIPLES)) {
+            while (rdfAtomParser.hasNext()) {
+                RDFAtom atom = rdfAtomParser.next();
+                encoded.add(termEncoder.encode(atom.getTripleSubject()));
+                encoded.add(termEncoder.encode(atom.getTriplePredicate()));
+                encoded.add(termEncoder.encode(atom.getTripleObject()));
+            }
+        }
+        return buildSealed(encoded, pool, start, memory);
+    }
+
+    /**
+     * Comme {@link #bulkLoadPersistentData(String, ForkJoinPool)}, mais le fichier
+     * est lu par {@link NTriplesScanner} plutôt que par rdf4j.
+     *
+     * @throws IllegalStateException si le store n'est pas vide
+     */
+    public LoadStatistics bulkScanPersistentData(String path, ForkJoinPool pool) throws IOException {
+        checkBulkLoad(path);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long start = System.nanoTime();
+
+        IntColumn encoded = new IntColumn();
+        NTriplesScanner.scan(Path.of(path), termEncoder, (subject, predicate, object) -> {
+            encoded.add(subject);
+            encoded.add(predicate);
+            encoded.add(object);
+        });
+        return buildSealed(encoded, pool, start, memory);
+    }
+
+    /**
+     * Comme {@link #bulkLoadPersistentData(String, ForkJoinPool)}, mais le fichier
+     * est lu par {@code parsers} threads (voir {@link ParallelNTriplesReader}) : les
+     * identifiants des termes dépendent alors de l'ordre d'arrivée des lots, et non
+     * plus de celui du fichier.
+     *
+     * @throws IllegalStateException si le store n'est pas vide
+     */
+    public LoadStatistics bulkLoadPersistentData(String path, ForkJoinPool pool, int parsers) throws IOException {
+        checkBulkLoad(path);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long start = System.nanoTime();
+
+        IntColumn encoded = new IntColumn();
+        new ParallelNTriplesReader(parsers).read(Path.of(path), termEncoder, (triples, length) -> {
+            for (int i = 0; i < length; i++) {
+                encoded.add(triples[i]);
+            }
+        });
+        return buildSealed(encoded, pool, start, memory);
+    }
+
+    private void checkBulkLoad(String path) {
+        if (sealed || size() > 0) {
+            throw new IllegalStateException("Bulk loading requires an empty, unsealed store.");
+        }
+        sourceFingerprint = HexaStoreSnapshot.fingerprint(new File(path));
+    }
+
+    /**
+     * Construit et installe les index figés des triplets encodés d'un chargement en bloc.
+     */
+    private LoadStatistics buildSealed(IntColumn encoded, ForkJoinPool pool, long start, MemoryMXBean memory) {
+        int[] triples = encoded.toArray();
+        int n = triples.length;
+        long peakHeap = memory.getHeapMemoryUsage().getUsed();
+        setSealedIndexes(buildIndexes(triples, n / 3, pool));
+        statistics = StatisticsCatalog.compute(S_P_O, P_S_O, P_O_S, O_P_S);
+        planCache.clear();
+        resultCache.clear();
+        candidateCache.clear();
+        peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+        return new LoadStatistics(n / 3, size(), 1, System.nanoTime() - start, peakHeap);
+    }
+
+    /**
+     * Construit simultanément les six index figés à partir de triplets encodés
+     * (sujet, prédicat, objet consécutifs). Chaque index lit les triplets dans son
+     * propre ordre ; le tri de ses groupes est lui aussi réparti dans {@code pool}.
+     *
+     * @param count le nombre de triplets à prendre en compte
+     * @return les index dans l'ordre S_O_P, S_P_O, P_S_O, P_O_S, O_P_S, O_S_P
+     */
+    public static CsrTripleIndex[] buildIndexes(int[] triples, int count, ForkJoinPool pool) {
+        List<ForkJoinTask<CsrTripleIndex>> tasks = new ArrayList<>(INDEX_ORDERS.length);
+        for (int[] order : INDEX_ORDERS) {
+            tasks.add(pool.submit(() -> CsrTripleIndex.build(triples, count, order[0], order[1], order[2], pool)));
+        }
+        CsrTripleIndex[] indexes = new CsrTripleIndex[INDEX_ORDERS.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = tasks.get(i).join();
+        }
+        return indexes;
+    }
 
-        addToIndex(S_O_P, subject, object, predicate);
-        addToIndex(S_P_O, subject, predicate, object);
-        addToIndex(P_S_O, predicate, subject, object);
-        addToIndex(P_O_S, predicate, object, subject);
-        addToIndex(O_P_S, object, predicate, subject);
-        addToIndex(O_S_P, object, subject, predicate);
+    /**
+     * Indexe des triplets déjà encodés (sujet, prédicat, objet consécutifs).
+     *
+     * @param length nombre d'entiers à prendre en compte dans {@code triples}
+     * @return le nombre de triplets ajoutés
+     */
+    private int addEncoded(int[] triples, int length) {
+        int added = 0;
+        for (int i = 0; i < length; i += 3) {
+            if (addEncoded(triples[i], triples[i + 1], triples[i + 2])) {
+                added++;
+            }
+        }
+        return added;
+    }
 
+    private boolean addEncoded(int subject, int predicate, int object) {
+        boolean newSubject = S_P_O.seconds(subject).isEmpty();
+        if (!S_P_O.add(subject, predicate, object)) {
+            return false;
+        }
+        statistics.add(predicate, object, newSubject, O_P_S.seconds(object).isEmpty(),
+                P_S_O.get(predicate, subject).isEmpty(), P_O_S.get(predicate, object).isEmpty());
+        resultCache.predicateChanged(predicate);
+        candidateCache.predicateChanged(predicate);
+        S_O_P.add(subject, object, predicate);
+        P_S_O.add(predicate, subject, object);
+        P_O_S.add(predicate, object, subject);
+        O_P_S.add(object, predicate, subject);
+        O_S_P.add(object, subject, predicate);
         return true;
     }
 
-    private void addToIndex(HexaStoreSearchTree<Integer> index, int key1, int key2, int value) {
-        if (!index.containsKey(key1)) {
-            index.put(key1, new HashMap<>());
+    /**
+     * Fige le store : les six index sont reconstruits au format CSR et les index
+     * modifiables sont libérés. Sans effet si le store est déjà figé.
+     */
+    public void seal() {
+        if (sealed) {
+            return;
+        }
+        S_O_P = CsrTripleIndex.of(S_O_P);
+        S_P_O = CsrTripleIndex.of(S_P_O);
+        P_S_O = CsrTripleIndex.of(P_S_O);
+        P_O_S = CsrTripleIndex.of(P_O_S);
+        O_P_S = CsrTripleIndex.of(O_P_S);
+        O_S_P = CsrTripleIndex.of(O_S_P);
+        statistics = StatisticsCatalog.compute(S_P_O, P_S_O, P_O_S, O_P_S);
+        // Les plans ont été ordonnés avec les statistiques approchées
+        planCache.clear();
+        sealed = true;
+    }
+
+    public boolean isSealed() {
+        return sealed;
+    }
+
+    /**
+     * @return le catalogue de statistiques du store, exact une fois le store figé
+     */
+    public StatisticsCatalog statistics() {
+        return statistics;
+    }
+
+    /**
+     * @return le cache des plans d'évaluation des requêtes en étoile, et ses compteurs
+     */
+    public StarQueryPlanCache planCache() {
+        return planCache;
+    }
+
+    /**
+     * @return le cache des réponses des requêtes en étoile, et ses compteurs
+     */
+    public StarQueryResultCache resultCache() {
+        return resultCache;
+    }
+
+    /**
+     * @return le cache des candidats de la variable centrale par ensemble d'atomes,
+     *         et le bilan de leur réutilisation
+     */
+    public CandidateSetCache candidateCache() {
+        return candidateCache;
+    }
+
+    /**
+     * Estime en temps constant le nombre de triplets correspondant à un motif, à
+     * partir du catalogue de statistiques.
+     */
+    public long estimateCardinality(RDFAtom atom) {
+        int[] ids = new int[3];
+        for (int position = 0; position < 3; position++) {
+            Term term = atom.getTerm(position);
+            if (term.isVariable()) {
+                ids[position] = StatisticsCatalog.UNBOUND;
+            } else if ((ids[position] = dictionary.lookup(term)) == TermDictionary.NOT_FOUND) {
+                return 0;
+            }
         }
-        if (!index.get(key1).containsKey(key2)) {
-            index.get(key1).put(key2, new HashSet<>());
+        return statistics.estimate(ids[0], ids[1], ids[2]);
+    }
+
+    /**
+     * Estimation (en octets) de la mémoire occupée par les six index.
+     */
+    public long estimatedIndexFootprint() {
+        return S_O_P.estimatedFootprint() + S_P_O.estimatedFootprint() + P_S_O.estimatedFootprint()
+                + P_O_S.estimatedFootprint() + O_P_S.estimatedFootprint() + O_S_P.estimatedFootprint();
+    }
+
+    @Override
+    public boolean add(RDFAtom atom) {
+        if (sealed) {
+            throw new IllegalStateException("The store is sealed and cannot be modified.");
         }
-        index.get(key1).get(key2).add(value);
+        int subject = termEncoder.encode(atom.getTripleSubject());
+        int predicate = termEncoder.encode(atom.getTriplePredicate());
+        int object = termEncoder.encode(atom.getTripleObject());
+        return addEncoded(subject, predicate, object);
     }
 
     public int getAvailableTerms(RDFAtom atom) {
@@ -117,13 +562,13 @@ public class RDFHexaStore implements RDFStorage {
         return res;
     }
 
-    public Result<HexaStoreSearchTree<Integer>> selectOptimalSearchTree(int availableTerms) {
+    public Result<TripleIndex> selectOptimalSearchTree(int availableTerms) {
 
         if ((availableTerms & Globals.SUBJECT_IS_PRESENT) > 0) {
-            if ((availableTerms & Globals.OBJECT_IS_PRESENT) > 0) {
-                return Result.success(S_O_P);
-            } else {
+            if ((availableTerms & Globals.PREDICAT_IS_PRESENT) > 0) {
                 return Result.success(S_P_O);
+            } else {
+                return Result.success(S_O_P);
             }
         }
         if ((availableTerms & Globals.PREDICAT_IS_PRESENT) > 0) {
@@ -134,41 +579,54 @@ public class RDFHexaStore implements RDFStorage {
             }
         }
         if ((availableTerms & Globals.OBJECT_IS_PRESENT) > 0) {
-            if ((availableTerms & Globals.SUBJECT_IS_PRESENT) > 0) {
-                return Result.success(O_S_P);
-            } else {
-                return Result.success(O_P_S);
-            }
+            return Result.success(O_S_P);
         }
         return Result.failure();
     }
 
     @Override
     public long size() {
-        throw new NotImplementedException();
+        return S_P_O.size();
     }
 
     @Override
     public Iterator<Substitution> match(RDFAtom atom) {
+        if (QueryMetrics.ENABLED) {
+            long start = System.nanoTime();
+            return QueryMetrics.instance().metered("hexastore " + QueryMetrics.atomShape(atom), start,
+                    new DecodingIterator(matchEncoded(atom), dictionary));
+        }
+        return new DecodingIterator(matchEncoded(atom), dictionary);
+    }
+
+    /**
+     * Comme {@link #match(RDFAtom)}, mais sans décoder les termes : chaque ligne
+     * contient les identifiants des variables de l'atome, dans l'ordre de
+     * {@link EncodedRowIterator#variables()}.
+     */
+    public EncodedRowIterator matchEncoded(RDFAtom atom) {
         int availableTerms = getAvailableTerms(atom);
 
         if (availableTerms == 0) {
             Logger.getLogger(Globals.SYSTEM_LOGGER).warning("At least one term must be specified for matching.");
-            return Collections.emptyIterator();
+            return EncodedRowIterator.empty();
         }
 
         if (availableTerms == (Globals.SUBJECT_IS_PRESENT | Globals.PREDICAT_IS_PRESENT | Globals.OBJECT_IS_PRESENT)) {
             Logger.getLogger(Globals.SYSTEM_LOGGER).warning("All terms are specified; no variables to substitute.");
-            return Collections.emptyIterator();
+            return EncodedRowIterator.empty();
         }
 
-        Result<HexaStoreSearchTree<Integer>> treeResult = selectOptimalSearchTree(availableTerms);
+        Result<TripleIndex> treeResult = selectOptimalSearchTree(availableTerms);
         if (treeResult.failed()) {
             Logger.getLogger(Globals.SYSTEM_LOGGER).warning("Failed to select optimal search tree");
-            return Collections.emptyIterator();
+            return EncodedRowIterator.empty();
         }
 
-        HexaStoreSearchTree<Integer> optimalTree = treeResult.value();
+        TripleIndex optimalTree = treeResult.value();
+        if (QueryMetrics.ENABLED) {
+            QueryMetrics.instance().indexLookup(Arrays.asList(indexes()).indexOf(optimalTree));
+        }
 
         if ((availableTerms & Globals.SUBJECT_IS_PRESENT) != 0) {
             return matchWithSubject(atom, availableTerms, optimalTree);
@@ -180,37 +638,36 @@ public class RDFHexaStore implements RDFStorage {
             return matchWithObject(atom, availableTerms, optimalTree);
         }
 
-        return Collections.emptyIterator();
+        return EncodedRowIterator.empty();
     }
 
-    private Iterator<Substitution> matchWithKnownTerm(
+    private EncodedRowIterator matchWithKnownTerm(
             int knownTerm,
             Term secondTerm,
             Term thirdTerm,
             int availableTerms,
             int secondFlag,
             int thirdFlag,
-            HexaStoreSearchTree<Integer> tree) {
+            TripleIndex tree) {
 
-        List<Substitution> res = new ArrayList<>();
+        if (knownTerm == TermDictionary.NOT_FOUND) {
+            return EncodedRowIterator.empty();
+        }
 
         if ((availableTerms & secondFlag) != 0) {
-
-            int convertedSecondTerm = termEncoder.encode(secondTerm);
-            addSubstitutions(tree.get(knownTerm).get(convertedSecondTerm), thirdTerm, res);
+            int convertedSecondTerm = dictionary.lookup(secondTerm);
+            return substitutions(tree.get(knownTerm, convertedSecondTerm), thirdTerm);
         } else if ((availableTerms & thirdFlag) != 0) {
-            int convertedThirdTerm = termEncoder.encode(thirdTerm);
-            addSubstitutions(tree.get(knownTerm).get(convertedThirdTerm), secondTerm, res);
+            int convertedThirdTerm = dictionary.lookup(thirdTerm);
+            return substitutions(tree.get(knownTerm, convertedThirdTerm), secondTerm);
         } else {
-            addAllSubstitutions(tree.get(knownTerm), secondTerm, thirdTerm, res);
+            return allSubstitutions(tree, knownTerm, secondTerm, thirdTerm);
         }
-
-        return res.iterator();
     }
 
-    private Iterator<Substitution> matchWithSubject(RDFAtom atom, int availableTerms,
-            HexaStoreSearchTree<Integer> tree) {
-        int convertedSubject = termEncoder.encode(atom.getTripleSubject());
+    private EncodedRowIterator matchWithSubject(RDFAtom atom, int availableTerms,
+            TripleIndex tree) {
+        int convertedSubject = dictionary.lookup(atom.getTripleSubject());
         return matchWithKnownTerm(
                 convertedSubject,
                 atom.getTripleObject(),
@@ -221,9 +678,9 @@ public class RDFHexaStore implements RDFStorage {
                 tree);
     }
 
-    private Iterator<Substitution> matchWithPredicate(RDFAtom atom, int availableTerms,
-            HexaStoreSearchTree<Integer> tree) {
-        int convertedPredicate = termEncoder.encode(atom.getTriplePredicate());
+    private EncodedRowIterator matchWithPredicate(RDFAtom atom, int availableTerms,
+            TripleIndex tree) {
+        int convertedPredicate = dictionary.lookup(atom.getTriplePredicate());
         return matchWithKnownTerm(
                 convertedPredicate,
                 atom.getTripleSubject(),
@@ -234,9 +691,9 @@ public class RDFHexaStore implements RDFStorage {
                 tree);
     }
 
-    private Iterator<Substitution> matchWithObject(RDFAtom atom, int availableTerms,
-            HexaStoreSearchTree<Integer> tree) {
-        int convertedObject = termEncoder.encode(atom.getTripleObject());
+    private EncodedRowIterator matchWithObject(RDFAtom atom, int availableTerms,
+            TripleIndex tree) {
+        int convertedObject = dictionary.lookup(atom.getTripleObject());
         return matchWithKnownTerm(
                 convertedObject,
                 atom.getTripleSubject(),
@@ -247,61 +704,143 @@ public class RDFHexaStore implements RDFStorage {
                 tree);
     }
 
-    private void addSubstitutions(Set<Integer> encodedValues, Term variable, List<Substitution> res) {
+    private EncodedRowIterator substitutions(IntList encodedValues, Term variable) {
         assert variable.isVariable() : "Term must be a variable";
-        Variable castedVariable = (Variable) variable;
-
-        for (Integer encoded : encodedValues) {
-            Term decoded = termEncoder.decode(encoded);
-            var substitution = new SubstitutionImpl();
-            substitution.add(castedVariable, decoded);
-            res.add(substitution);
-        }
+        return new IndexRowIterator(encodedValues, (Variable) variable);
     }
 
-    private void addAllSubstitutions(Map<Integer, Set<Integer>> entries, Term firstVariable, Term secondVariable,
-            List<Substitution> res) {
+    private EncodedRowIterator allSubstitutions(TripleIndex tree, int knownTerm, Term firstVariable,
+            Term secondVariable) {
         assert firstVariable.isVariable() : "First term must be a variable";
         assert secondVariable.isVariable() : "Second term must be a variable";
+        return new IndexRowIterator(tree, knownTerm, (Variable) firstVariable, (Variable) secondVariable);
+    }
+
+    @Override
+    public Iterator<Substitution> match(StarQuery q) {
+        if (QueryMetrics.ENABLED) {
+            long start = System.nanoTime();
+            return QueryMetrics.instance().metered("hexastore star " + StarQueryPlanCache.signature(q), start,
+                    evaluate(q));
+        }
+        return evaluate(q);
+    }
 
-        Variable castedFirstVariable = (Variable) firstVariable;
-        Variable castedSecondVariable = (Variable) secondVariable;
+    private Iterator<Substitution> evaluate(StarQuery q) {
+        Variable[] answerVariables = q.getAnswerVariables().toArray(new Variable[0]);
+        String key = StarQueryResultCache.key(q);
+        Iterator<int[]> rows = resultCache.get(key);
+        if (rows == null) {
+            rows = recording(key, q, new StarQueryEvaluator(dictionary, indexes(), statistics, planCache,
+                    candidateCache).evaluateEncoded(q));
+        }
+        return new DecodingIterator(rows, answerVariables, dictionary);
+    }
+
+    /**
+     * Évalue un lot de requêtes en une passe : les requêtes identiques (même clé de
+     * cache) ne sont évaluées qu'une fois, et les requêtes absentes du cache de
+     * réponses partagent leurs lectures d'index
+     * ({@link StarQueryEvaluator#evaluateEncoded(List)}).
+     */
+    @Override
+    public List<Iterator<Substitution>> matchAll(List<StarQuery> queries) {
+        long start = QueryMetrics.ENABLED ? System.nanoTime() : 0;
+        Map<String, List<Integer>> positionsByKey = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            positionsByKey.computeIfAbsent(StarQueryResultCache.key(queries.get(i)), k -> new ArrayList<>()).add(i);
+        }
+        List<Iterator<int[]>> rows = new ArrayList<>(Collections.nCopies(queries.size(), null));
+        List<String> missingKeys = new ArrayList<>();
+        List<StarQuery> missing = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> entry : positionsByKey.entrySet()) {
+            Iterator<int[]> cached = resultCache.get(entry.getKey());
+            if (cached == null) {
+                missingKeys.add(entry.getKey());
+                missing.add(queries.get(entry.getValue().get(0)));
+            } else {
+                share(cached, entry.getValue(), rows);
+            }
+        }
+        List<Iterator<int[]>> evaluated = new StarQueryEvaluator(dictionary, indexes(), statistics, planCache,
+                candidateCache).evaluateEncoded(missing);
+        for (int i = 0; i < missing.size(); i++) {
+            String key = missingKeys.get(i);
+            share(recording(key, missing.get(i), evaluated.get(i)), positionsByKey.get(key), rows);
+        }
+        List<Iterator<Substitution>> answers = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            Iterator<Substitution> answer = new DecodingIterator(rows.get(i),
+                    queries.get(i).getAnswerVariables().toArray(new Variable[0]), dictionary);
+            if (QueryMetrics.ENABLED) {
+                answer = QueryMetrics.instance().metered("hexastore batch " + StarQueryPlanCache.signature(
+                        queries.get(i)), start, answer);
+            }
+            answers.add(answer);
+        }
+        return answers;
+    }
 
-        for (Map.Entry<Integer, Set<Integer>> entry : entries.entrySet()) {
-            Term decodedFirst = termEncoder.decode(entry.getKey());
+    /**
+     * Attribue les réponses d'une clé aux requêtes qui la partagent ; si elles sont
+     * plusieurs, les lignes sont d'abord recopiées pour être parcourues par chacune.
+     */
+    private static void share(Iterator<int[]> rows, List<Integer> positions, List<Iterator<int[]>> target) {
+        if (positions.size() == 1) {
+            target.set(positions.get(0), rows);
+            return;
+        }
+        List<int[]> copies = new ArrayList<>();
+        while (rows.hasNext()) {
+            copies.add(rows.next().clone());
+        }
+        for (int position : positions) {
+            target.set(position, copies.iterator());
+        }
+    }
 
-            for (Integer secondEncoded : entry.getValue()) {
-                Term decodedSecond = termEncoder.decode(secondEncoded);
+    /**
+     * Enveloppe des réponses fraîchement calculées pour qu'elles soient conservées
+     * dans le cache de réponses, sauf si un prédicat de la requête est inconnu.
+     */
+    private Iterator<int[]> recording(String key, StarQuery q, Iterator<int[]> rows) {
+        int[] predicates = touchedPredicates(q);
+        if (predicates.length == 0 || predicates[0] != TermDictionary.NOT_FOUND) {
+            return resultCache.recording(key, predicates.length == 0 ? null : predicates, rows);
+        }
+        return rows;
+    }
 
-                // Create a single substitution with both variable mappings
-                var substitution = new SubstitutionImpl();
-                substitution.add(castedFirstVariable, decodedFirst);
-                substitution.add(castedSecondVariable, decodedSecond);
-                res.add(substitution);
+    /**
+     * @return les identifiants des prédicats constants de la requête, un tableau vide
+     *         si l'un de ses prédicats est variable, ou {NOT_FOUND} si l'un d'eux est
+     *         inconnu du store
+     */
+    private int[] touchedPredicates(StarQuery q) {
+        List<RDFAtom> atoms = q.getRdfAtoms();
+        int[] predicates = new int[atoms.size()];
+        for (int i = 0; i < predicates.length; i++) {
+            Term predicate = atoms.get(i).getTriplePredicate();
+            if (predicate.isVariable()) {
+                return new int[0];
+            }
+            if ((predicates[i] = dictionary.lookup(predicate)) == TermDictionary.NOT_FOUND) {
+                return new int[]{TermDictionary.NOT_FOUND};
             }
         }
+        return predicates;
     }
 
-    @Override
-    public Iterator<Substitution> match(StarQuery q) {
-        throw new NotImplementedException();
+    /**
+     * @return les six index dans l'ordre S_O_P, S_P_O, P_S_O, P_O_S, O_P_S, O_S_P
+     */
+    private TripleIndex[] indexes() {
+        return new TripleIndex[]{S_O_P, S_P_O, P_S_O, P_O_S, O_P_S, O_S_P};
     }
 
     @Override
     public Collection<Integer> getAtoms() {
-        Collection<Integer> res = new ArrayList<>();
-        for (var entry : S_P_O.entrySet()) {
-            var subject = entry.getKey();
-            for (var predicateEntry : entry.getValue().entrySet()) {
-                var predicate = predicateEntry.getKey();
-                for (var encodedObject : predicateEntry.getValue()) {
-                    res.add(subject);
-                    res.add(predicate);
-                    res.add(encodedObject);
-                }
-            }
-        }
-        return res;
+        return new IntArrayCollection(S_P_O.toTriples());
     }
 
 }
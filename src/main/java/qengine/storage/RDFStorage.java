@@ -1,7 +1,9 @@
 package qengine.storage;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.stream.Stream;
 
 import fr.boreal.model.logicalElements.api.Substitution;
@@ -36,6 +38,22 @@ public interface RDFStorage {
      */
     Iterator<Substitution> match(StarQuery q);
 
+    /**
+     * Évalue un lot de requêtes en étoile. Un store peut en profiter pour partager
+     * les lectures d'index communes à plusieurs requêtes ; par défaut, chaque
+     * requête est évaluée séparément.
+     *
+     * @param queries les requêtes à évaluer
+     * @return les réponses de chaque requête, dans l'ordre de {@code queries}
+     */
+    default List<Iterator<Substitution>> matchAll(List<StarQuery> queries) {
+        List<Iterator<Substitution>> answers = new ArrayList<>(queries.size());
+        for (StarQuery query : queries) {
+            answers.add(match(query));
+        }
+        return answers;
+    }
+
     /**
      * Retourne le nombre d'atomes dans le Store.
      *
@@ -0,0 +1,129 @@
+package qengine.util;
+
+import java.util.NoSuchElementException;
+
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import qengine.model.RDFAtom;
+
+/**
+ * Parcours séquentiel d'une table de triplets stockée en colonnes, en lignes
+ * encodées.
+ * <p>
+ * La table est filtrée bloc par bloc ({@link IntColumn#CHUNK_SIZE} lignes) par un
+ * {@link ColumnScan}, qui produit le vecteur de sélection des lignes du bloc
+ * correspondant au motif. Chaque ligne rendue contient les identifiants des
+ * positions variables du motif (sujet, prédicat, objet, dans cet ordre) ; elle est
+ * réutilisée d'un appel à l'autre.
+ */
+public class BigTableRowIterator implements EncodedRowIterator {
+
+    private static final int[] POSITION_FLAGS = {
+            Globals.SUBJECT_IS_PRESENT, Globals.PREDICAT_IS_PRESENT, Globals.OBJECT_IS_PRESENT
+    };
+
+    private final IntColumn rdfAtomsSubject;
+    private final IntColumn rdfAtomsPredicate;
+    private final IntColumn rdfAtomsObject;
+    private final ColumnScan scan;
+    private final Variable[] variables;
+    // Colonnes (s=0, p=1, o=2) des positions variables
+    private final int[] columns;
+    private final int[] row;
+
+    private final int[] selection = new int[IntColumn.CHUNK_SIZE];
+    private int selected = 0;
+    private int position = 0;
+    private int nextChunk;
+    private final int endChunk;
+    private int currentChunk = -1;
+
+    public BigTableRowIterator(RDFAtom target, int availableTerms,
+            TermDictionary dictionary,
+            IntColumn rdfAtomsSubject,
+            IntColumn rdfAtomsPredicate,
+            IntColumn rdfAtomsObject) {
+        this(target, availableTerms, dictionary, rdfAtomsSubject, rdfAtomsPredicate, rdfAtomsObject,
+                0, rdfAtomsSubject.chunkCount());
+    }
+
+    /**
+     * Parcours restreint aux blocs [fromChunk, toChunk[ de la table.
+     */
+    public BigTableRowIterator(RDFAtom target, int availableTerms,
+            TermDictionary dictionary,
+            IntColumn rdfAtomsSubject,
+            IntColumn rdfAtomsPredicate,
+            IntColumn rdfAtomsObject,
+            int fromChunk,
+            int toChunk) {
+        this.rdfAtomsSubject = rdfAtomsSubject;
+        this.rdfAtomsPredicate = rdfAtomsPredicate;
+        this.rdfAtomsObject = rdfAtomsObject;
+        this.nextChunk = fromChunk;
+        this.endChunk = toChunk;
+
+        int[] encodedTargets = new int[3];
+        int variableCount = 0;
+        for (int i = 0; i < 3; i++) {
+            if ((availableTerms & POSITION_FLAGS[i]) > 0) {
+                encodedTargets[i] = dictionary.lookup(target.getTerm(i));
+            } else {
+                // La valeur est ignorée par le scan
+                variableCount++;
+            }
+        }
+        this.variables = new Variable[variableCount];
+        this.columns = new int[variableCount];
+        this.row = new int[variableCount];
+        for (int i = 0, column = 0; i < 3; i++) {
+            if ((availableTerms & POSITION_FLAGS[i]) <= 0) {
+                Term term = target.getTerm(i);
+                variables[column] = (Variable) term;
+                columns[column++] = i;
+            }
+        }
+        this.scan = new ColumnScan(encodedTargets[0], encodedTargets[1], encodedTargets[2], availableTerms);
+
+        if (encodedTargets[0] == TermDictionary.NOT_FOUND || encodedTargets[1] == TermDictionary.NOT_FOUND
+                || encodedTargets[2] == TermDictionary.NOT_FOUND) {
+            // Un terme absent du dictionnaire n'apparaît dans aucune ligne
+            nextChunk = endChunk;
+        }
+    }
+
+    @Override
+    public Variable[] variables() {
+        return variables;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (position == selected) {
+            if (nextChunk >= endChunk) {
+                return false;
+            }
+            currentChunk = nextChunk++;
+            selected = scan.select(rdfAtomsSubject.chunk(currentChunk), rdfAtomsPredicate.chunk(currentChunk),
+                    rdfAtomsObject.chunk(currentChunk), rdfAtomsSubject.chunkLength(currentChunk), selection);
+            position = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public int[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int line = selection[position++];
+        for (int i = 0; i < columns.length; i++) {
+            row[i] = column(columns[i]).chunk(currentChunk)[line];
+        }
+        return row;
+    }
+
+    private IntColumn column(int position) {
+        return position == 0 ? rdfAtomsSubject : position == 1 ? rdfAtomsPredicate : rdfAtomsObject;
+    }
+}
@@ -0,0 +1,60 @@
+package qengine.util;
+
+/**
+ * Filtre d'un bloc de lignes (sujet, prédicat, objet) stockées en colonnes.
+ * <p>
+ * Le filtre ne contient aucun branchement dépendant des données : chaque position
+ * est comparée par des masques, et les lignes retenues sont écrites dans un
+ * vecteur de sélection dont le curseur n'avance que si la ligne correspond. Le
+ * coût d'un scan ne dépend donc pas de la sélectivité du motif et la boucle reste
+ * limitée par la bande passante mémoire.
+ */
+public final class ColumnScan {
+
+    private final int subject;
+    private final int predicate;
+    private final int object;
+    private final int subjectMask;
+    private final int predicateMask;
+    private final int objectMask;
+
+    /**
+     * @param subject   identifiant du sujet recherché, ignoré si {@code boundTerms} ne le contient pas
+     * @param predicate identifiant du prédicat recherché
+     * @param object    identifiant de l'objet recherché
+     * @param boundTerms combinaison de {@link Globals#SUBJECT_IS_PRESENT},
+     *                   {@link Globals#PREDICAT_IS_PRESENT} et {@link Globals#OBJECT_IS_PRESENT}
+     */
+    public ColumnScan(int subject, int predicate, int object, int boundTerms) {
+        this.subject = subject;
+        this.predicate = predicate;
+        this.object = object;
+        this.subjectMask = (boundTerms & Globals.SUBJECT_IS_PRESENT) != 0 ? -1 : 0;
+        this.predicateMask = (boundTerms & Globals.PREDICAT_IS_PRESENT) != 0 ? -1 : 0;
+        this.objectMask = (boundTerms & Globals.OBJECT_IS_PRESENT) != 0 ? -1 : 0;
+    }
+
+    /**
+     * Sélectionne les lignes [0, length[ d'un bloc qui correspondent au motif.
+     *
+     * @param selection reçoit les numéros (dans le bloc) des lignes retenues, par
+     *                  ordre croissant ; doit pouvoir contenir {@code length} valeurs
+     * @return le nombre de lignes retenues
+     */
+    public int select(int[] subjects, int[] predicates, int[] objects, int length, int[] selection) {
+        int s = subject;
+        int p = predicate;
+        int o = object;
+        int sm = subjectMask;
+        int pm = predicateMask;
+        int om = objectMask;
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            int diff = ((subjects[i] ^ s) & sm) | ((predicates[i] ^ p) & pm) | ((objects[i] ^ o) & om);
+            selection[n] = i;
+            // 1 si diff == 0, 0 sinon
+            n += ((diff | -diff) >>> 31) ^ 1;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,235 @@
+package qengine.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import fr.boreal.model.logicalElements.api.Term;
+
+/**
+ * Dictionnaire modifiable, comme {@link TermEncoder}, mais que plusieurs threads
+ * peuvent remplir en même temps : chaque label reçoit exactement un identifiant,
+ * et les identifiants restent denses (de 0 à {@link #size()} - 1).
+ * <p>
+ * La table de hachage est découpée en segments, choisis par les bits de poids fort
+ * du hachage ; chaque segment est une table à adressage ouvert comme celle de
+ * {@link TermEncoder} (slot -> identifiant + 1, 0 = libre), protégée par son propre
+ * verrou. Un encodage cherche d'abord le label sans verrou et ne prend celui du
+ * segment que pour un label absent. Les identifiants sont attribués par un compteur
+ * atomique ; les termes sont rangés dans des blocs de taille fixe, alloués au fil
+ * des identifiants, si bien qu'aucun agrandissement ne recopie les termes.
+ * <p>
+ * Un terme est écrit avant son slot, lequel est écrit en mode release et lu en mode
+ * acquire : un label trouvé sans verrou désigne toujours un terme visible. Un
+ * identifiant transmis à un autre thread doit l'être par un lien happens-before
+ * (file, {@code join}…) pour que {@link #decode(int)} y voie son terme.
+ */
+public class ConcurrentTermEncoder implements LabelEncoder {
+
+    private static final int INITIAL_CAPACITY = 1 << 8;
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_CHUNKS = 1 << (31 - CHUNK_BITS);
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicReferenceArray<Term[]> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+    private static final class Segment {
+        // Remplacée (jamais modifiée en place) par les agrandissements
+        volatile int[] table = new int[INITIAL_CAPACITY];
+        // Protégé par le moniteur du segment
+        int count = 0;
+    }
+
+    /**
+     * Crée un dictionnaire de quatre segments par cœur disponible.
+     */
+    public ConcurrentTermEncoder() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param segments le nombre minimal de segments, arrondi à une puissance de deux
+     */
+    public ConcurrentTermEncoder(int segments) {
+        if (segments <= 0) {
+            throw new IllegalArgumentException("Segment count must be positive: " + segments);
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(segments - 1);
+        this.segments = new Segment[1 << bits];
+        for (int i = 0; i < this.segments.length; i++) {
+            this.segments[i] = new Segment();
+        }
+        // Un décalage de 32 bits laisserait le hachage inchangé
+        this.segmentShift = 32 - Math.max(bits, 1);
+        this.segmentMask = this.segments.length - 1;
+    }
+
+    private Segment segment(int hash) {
+        return segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+    @Override
+    public int encode(Term value) {
+        String label = value.label();
+        int hash = TermLabels.hash(label);
+        Segment segment = segment(hash);
+        int code = find(segment.table, hash, label);
+        return code != NOT_FOUND ? code : insert(segment, hash, value);
+    }
+
+    @Override
+    public int encodeAscii(ByteBuffer bytes, int from, int to, int labelHashCode) {
+        int hash = TermLabels.mix(labelHashCode);
+        Segment segment = segment(hash);
+        int[] table = segment.table;
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        int entry;
+        while ((entry = (int) SLOTS.getAcquire(table, slot)) != 0) {
+            if (TermEncoder.asciiEquals(term(entry - 1).label(), bytes, from, to)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        byte[] label = new byte[to - from];
+        bytes.get(from, label);
+        return insert(segment, hash, TermLabels.createTerm(TermLabels.KIND_LITERAL,
+                new String(label, StandardCharsets.US_ASCII)));
+    }
+
+    @Override
+    public int encodeLabel(String label) {
+        int hash = TermLabels.hash(label);
+        Segment segment = segment(hash);
+        int code = find(segment.table, hash, label);
+        return code != NOT_FOUND ? code : insert(segment, hash,
+                TermLabels.createTerm(TermLabels.KIND_LITERAL, label));
+    }
+
+    /**
+     * Attribue un identifiant à un terme absent lors de la recherche sans verrou,
+     * sauf si un autre thread l'a inséré entre-temps.
+     */
+    private int insert(Segment segment, int hash, Term value) {
+        String label = value.label();
+        synchronized (segment) {
+            int[] table = segment.table;
+            int mask = table.length - 1;
+            int slot = hash & mask;
+            int entry;
+            while ((entry = (int) SLOTS.getAcquire(table, slot)) != 0) {
+                if (term(entry - 1).label().equals(label)) {
+                    return entry - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            int code = count.getAndIncrement();
+            if (code < 0) {
+                throw new IllegalStateException("Too many terms in dictionary.");
+            }
+            chunk(code)[code & (CHUNK_SIZE - 1)] = value;
+            SLOTS.setRelease(table, slot, code + 1);
+            if (4L * ++segment.count > 3L * table.length) {
+                segment.table = rehash(table, 2 * table.length);
+            }
+            return code;
+        }
+    }
+
+    @Override
+    public int lookup(Term value) {
+        String label = value.label();
+        int hash = TermLabels.hash(label);
+        return find(segment(hash).table, hash, label);
+    }
+
+    private int find(int[] table, int hash, String label) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        int entry;
+        while ((entry = (int) SLOTS.getAcquire(table, slot)) != 0) {
+            if (term(entry - 1).label().equals(label)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @return le terme d'identifiant code, ou null si aucun terme n'a (encore) cet
+     *         identifiant
+     */
+    @Override
+    public Term decode(int code) {
+        if (code < 0 || code >= size()) {
+            return null;
+        }
+        Term[] chunk = chunks.get(code >>> CHUNK_BITS);
+        return chunk == null ? null : chunk[code & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * @return le nombre d'identifiants attribués ; pendant des encodages
+     *         concurrents, le terme des derniers peut ne pas encore être visible
+     */
+    @Override
+    public int size() {
+        int size = count.get();
+        // Négatif une fois tous les identifiants épuisés
+        return size < 0 ? Integer.MAX_VALUE : size;
+    }
+
+    /**
+     * Estimation (en octets) de la mémoire occupée par les blocs de termes et les
+     * tables des segments, hors termes eux-mêmes.
+     */
+    public long estimatedFootprint() {
+        long bytes = 16L + 4L * MAX_CHUNKS;
+        int allocated = (int) (((long) size() + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+        bytes += allocated * (16L + 4L * CHUNK_SIZE);
+        for (Segment segment : segments) {
+            bytes += 16L + 16L + 4L * segment.table.length;
+        }
+        return bytes;
+    }
+
+    // Lecture d'un terme dont le slot a été lu en mode acquire
+    private Term term(int code) {
+        return chunks.get(code >>> CHUNK_BITS)[code & (CHUNK_SIZE - 1)];
+    }
+
+    private Term[] chunk(int code) {
+        int index = code >>> CHUNK_BITS;
+        Term[] chunk = chunks.get(index);
+        if (chunk == null) {
+            chunks.compareAndSet(index, null, new Term[CHUNK_SIZE]);
+            chunk = chunks.get(index);
+        }
+        return chunk;
+    }
+
+    private int[] rehash(int[] table, int capacity) {
+        int[] rehashed = new int[capacity];
+        int mask = capacity - 1;
+        for (int entry : table) {
+            if (entry != 0) {
+                int slot = TermLabels.hash(term(entry - 1).label()) & mask;
+                while (rehashed[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                rehashed[slot] = entry;
+            }
+        }
+        return rehashed;
+    }
+}
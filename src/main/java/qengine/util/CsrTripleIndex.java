@@ -0,0 +1,395 @@
+package qengine.util;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Index de triplets en lecture seule, au format CSR (compressed sparse row).
+ * <p>
+ * Les triplets sont triés par (first, second, third) et rangés dans cinq tableaux
+ * contigus :
+ * <ul>
+ * <li>{@code firsts} : les premiers termes distincts, triés ;</li>
+ * <li>{@code firstOffsets} : pour le i-ème premier terme, l'intervalle
+ * [firstOffsets[i], firstOffsets[i + 1][ de ses seconds termes ;</li>
+ * <li>{@code seconds} : les seconds termes, triés pour chaque premier terme ;</li>
+ * <li>{@code secondOffsets} : pour le j-ème couple (first, second), l'intervalle
+ * [secondOffsets[j], secondOffsets[j + 1][ de ses troisièmes termes ;</li>
+ * <li>{@code thirds} : les troisièmes termes, triés pour chaque couple.</li>
+ * </ul>
+ * Les recherches se font par dichotomie et les listes renvoyées sont des vues
+ * triées ({@link IntSlice}) qui peuvent être intersectées directement.
+ * <p>
+ * Les tableaux sont manipulés sous forme d'{@link IntBuffer} : ils peuvent donc
+ * aussi bien résider sur le tas que dans un fichier projeté en mémoire (voir
+ * {@link #wrap(IntBuffer[])}).
+ */
+public class CsrTripleIndex implements TripleIndex {
+
+    /**
+     * Nombre de tableaux composant un index, dans l'ordre de {@link #buffers()}.
+     */
+    public static final int BUFFER_COUNT = 5;
+
+    // En dessous de ce nombre de couples, un tri parallèle ne vaut pas son coût
+    private static final int SEQUENTIAL_SORT_THRESHOLD = 1 << 13;
+
+    private final IntBuffer firsts;
+    private final IntBuffer firstOffsets;
+    private final IntBuffer seconds;
+    private final IntBuffer secondOffsets;
+    private final IntBuffer thirds;
+
+    private CsrTripleIndex(IntBuffer firsts, IntBuffer firstOffsets, IntBuffer seconds, IntBuffer secondOffsets,
+            IntBuffer thirds) {
+        this.firsts = firsts;
+        this.firstOffsets = firstOffsets;
+        this.seconds = seconds;
+        this.secondOffsets = secondOffsets;
+        this.thirds = thirds;
+    }
+
+    /**
+     * Reconstitue un index à partir de ses tableaux, par exemple projetés en mémoire
+     * depuis un fichier. Seule la cohérence des tailles est vérifiée.
+     *
+     * @param buffers les tableaux dans l'ordre de {@link #buffers()}
+     * @throws IllegalArgumentException si les tailles des tableaux sont incohérentes
+     */
+    public static CsrTripleIndex wrap(IntBuffer[] buffers) {
+        if (buffers.length != BUFFER_COUNT) {
+            throw new IllegalArgumentException("Expected " + BUFFER_COUNT + " buffers, got " + buffers.length);
+        }
+        IntBuffer firsts = buffers[0];
+        IntBuffer firstOffsets = buffers[1];
+        IntBuffer seconds = buffers[2];
+        IntBuffer secondOffsets = buffers[3];
+        IntBuffer thirds = buffers[4];
+        if (firstOffsets.limit() != firsts.limit() + 1
+                || secondOffsets.limit() != seconds.limit() + 1
+                || firstOffsets.get(firsts.limit()) != seconds.limit()
+                || secondOffsets.get(seconds.limit()) != thirds.limit()) {
+            throw new IllegalArgumentException("Inconsistent CSR buffers.");
+        }
+        return new CsrTripleIndex(firsts, firstOffsets, seconds, secondOffsets, thirds);
+    }
+
+    /**
+     * @return des vues en lecture seule sur les tableaux de l'index : premiers termes,
+     *         leurs décalages, seconds termes, leurs décalages, troisièmes termes
+     */
+    public IntBuffer[] buffers() {
+        return new IntBuffer[]{
+                firsts.asReadOnlyBuffer(), firstOffsets.asReadOnlyBuffer(), seconds.asReadOnlyBuffer(),
+                secondOffsets.asReadOnlyBuffer(), thirds.asReadOnlyBuffer()
+        };
+    }
+
+    /**
+     * Construit l'index figé équivalent à un index quelconque.
+     */
+    public static CsrTripleIndex of(TripleIndex index) {
+        if (index instanceof CsrTripleIndex csr) {
+            return csr;
+        }
+        int[] triples = index.toTriples();
+        return build(triples, triples.length / 3);
+    }
+
+    /**
+     * Construit un index à partir de triplets (first, second, third) consécutifs,
+     * dans un ordre quelconque et éventuellement dupliqués.
+     *
+     * @param triples les triplets encodés
+     * @param count   le nombre de triplets à prendre en compte
+     */
+    public static CsrTripleIndex build(int[] triples, int count) {
+        return build(triples, count, 0, 1, 2, null);
+    }
+
+    /**
+     * Construit un index à partir de triplets consécutifs, en lisant les trois clés
+     * de l'index aux positions {@code first}, {@code second} et {@code third} de
+     * chaque triplet : les six ordres de l'hexastore se construisent ainsi à partir
+     * du même tableau, sans le permuter.
+     * <p>
+     * Les triplets sont d'abord répartis par premier terme (tri par dénombrement,
+     * les identifiants étant denses), puis chaque groupe est trié sur le couple
+     * (second, third) empaqueté dans un {@code long}. Si {@code pool} n'est pas
+     * null, les groupes sont triés en parallèle dans ce pool, les plus gros étant
+     * eux-mêmes découpés (tri fusion).
+     *
+     * @param triples les triplets encodés
+     * @param count   le nombre de triplets à prendre en compte
+     * @param first   position (0, 1 ou 2) du premier terme de l'index dans un triplet
+     * @param second  position du second terme
+     * @param third   position du troisième terme
+     * @param pool    le pool dans lequel trier les groupes, null pour un tri séquentiel
+     */
+    public static CsrTripleIndex build(int[] triples, int count, int first, int second, int third,
+            ForkJoinPool pool) {
+        int maxFirst = -1;
+        for (int t = 0; t < count; t++) {
+            maxFirst = Math.max(maxFirst, triples[3 * t + first]);
+        }
+        // Peu de triplets pour beaucoup d'identifiants (un delta) : les groupes sont
+        // numérotés par rang du premier terme, pour ne pas parcourir tout le dictionnaire
+        int[] firstIds = null;
+        int groups = maxFirst + 1;
+        if (groups > 4L * count) {
+            int[] keys = new int[count];
+            for (int t = 0; t < count; t++) {
+                keys[t] = triples[3 * t + first];
+            }
+            Arrays.sort(keys);
+            groups = 0;
+            for (int t = 0; t < count; t++) {
+                if (t == 0 || keys[t] != keys[t - 1]) {
+                    keys[groups++] = keys[t];
+                }
+            }
+            firstIds = Arrays.copyOf(keys, groups);
+        }
+        int[] starts = new int[groups + 1];
+        for (int t = 0; t < count; t++) {
+            starts[group(triples[3 * t + first], firstIds) + 1]++;
+        }
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] += starts[i - 1];
+        }
+        long[] packed = new long[count];
+        int[] cursor = Arrays.copyOf(starts, starts.length);
+        for (int t = 0; t < count; t++) {
+            packed[cursor[group(triples[3 * t + first], firstIds)]++] = pack(triples[3 * t + second], triples[3 * t + third]);
+        }
+        if (pool == null) {
+            for (int g = 0; g < groups; g++) {
+                Arrays.sort(packed, starts[g], starts[g + 1]);
+            }
+        } else {
+            pool.invoke(new GroupSort(starts, packed, 0, groups));
+        }
+        return fromGroups(starts, packed, firstIds);
+    }
+
+    private static int group(int first, int[] firstIds) {
+        return firstIds == null ? first : Arrays.binarySearch(firstIds, first);
+    }
+
+    /**
+     * Construit les tableaux CSR à partir des groupes triés.
+     *
+     * @param starts   pour chaque groupe g, le groupe occupe [starts[g], starts[g + 1][
+     * @param packed   les couples (second, third) empaquetés, triés dans chaque groupe
+     * @param firstIds le premier terme de chaque groupe, null si le groupe g est celui
+     *                 du premier terme g
+     */
+    static CsrTripleIndex fromGroups(int[] starts, long[] packed, int[] firstIds) {
+        int firstCount = 0;
+        int secondCount = 0;
+        int thirdCount = 0;
+        for (int first = 0; first + 1 < starts.length; first++) {
+            if (starts[first] == starts[first + 1]) {
+                continue;
+            }
+            firstCount++;
+            for (int i = starts[first]; i < starts[first + 1]; i++) {
+                if (i == starts[first] || packed[i] != packed[i - 1]) {
+                    thirdCount++;
+                    if (i == starts[first] || second(packed[i]) != second(packed[i - 1])) {
+                        secondCount++;
+                    }
+                }
+            }
+        }
+
+        int[] firsts = new int[firstCount];
+        int[] firstOffsets = new int[firstCount + 1];
+        int[] seconds = new int[secondCount];
+        int[] secondOffsets = new int[secondCount + 1];
+        int[] thirds = new int[thirdCount];
+
+        int f = 0;
+        int s = 0;
+        int t = 0;
+        for (int first = 0; first + 1 < starts.length; first++) {
+            if (starts[first] == starts[first + 1]) {
+                continue;
+            }
+            firsts[f] = firstIds == null ? first : firstIds[first];
+            firstOffsets[f++] = s;
+            for (int i = starts[first]; i < starts[first + 1]; i++) {
+                if (i > starts[first] && packed[i] == packed[i - 1]) {
+                    continue;
+                }
+                if (i == starts[first] || second(packed[i]) != second(packed[i - 1])) {
+                    seconds[s] = second(packed[i]);
+                    secondOffsets[s++] = t;
+                }
+                thirds[t++] = third(packed[i]);
+            }
+        }
+        firstOffsets[f] = s;
+        secondOffsets[s] = t;
+        return new CsrTripleIndex(IntBuffer.wrap(firsts), IntBuffer.wrap(firstOffsets), IntBuffer.wrap(seconds),
+                IntBuffer.wrap(secondOffsets), IntBuffer.wrap(thirds));
+    }
+
+    @Override
+    public boolean add(int first, int second, int third) {
+        throw new UnsupportedOperationException("A sealed index cannot be modified.");
+    }
+
+    @Override
+    public IntSlice get(int first, int second) {
+        int f = IntSlice.binarySearch(firsts, 0, firsts.limit(), first);
+        if (f < 0) {
+            return IntSlice.EMPTY;
+        }
+        int s = IntSlice.binarySearch(seconds, firstOffsets.get(f), firstOffsets.get(f + 1), second);
+        if (s < 0) {
+            return IntSlice.EMPTY;
+        }
+        return new IntSlice(thirds, secondOffsets.get(s), secondOffsets.get(s + 1));
+    }
+
+    @Override
+    public IntSlice seconds(int first) {
+        int f = IntSlice.binarySearch(firsts, 0, firsts.limit(), first);
+        if (f < 0) {
+            return IntSlice.EMPTY;
+        }
+        return new IntSlice(seconds, firstOffsets.get(f), firstOffsets.get(f + 1));
+    }
+
+    @Override
+    public IntSlice firsts() {
+        return new IntSlice(firsts, 0, firsts.limit());
+    }
+
+    @Override
+    public long size() {
+        return thirds.limit();
+    }
+
+    @Override
+    public int[] toTriples() {
+        int[] res = new int[thirds.limit() * 3];
+        int n = 0;
+        for (int f = 0; f < firsts.limit(); f++) {
+            for (int s = firstOffsets.get(f); s < firstOffsets.get(f + 1); s++) {
+                for (int t = secondOffsets.get(s); t < secondOffsets.get(s + 1); t++) {
+                    res[n++] = firsts.get(f);
+                    res[n++] = seconds.get(s);
+                    res[n++] = thirds.get(t);
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Estimation (en octets) de la mémoire occupée par l'index. Pour un index projeté
+     * depuis un fichier, il s'agit de la taille projetée et non du tas consommé.
+     */
+    @Override
+    public long estimatedFootprint() {
+        return 5 * 16L + 4L * (firsts.limit() + firstOffsets.limit() + seconds.limit()
+                + secondOffsets.limit() + thirds.limit());
+    }
+
+    /**
+     * Trie les groupes des premiers termes [from, to[ en découpant l'intervalle en
+     * sous-intervalles de tailles (en nombre de couples) à peu près égales.
+     */
+    private static final class GroupSort extends RecursiveAction {
+        private final int[] starts;
+        private final long[] packed;
+        private final int from;
+        private final int to;
+
+        GroupSort(int[] starts, long[] packed, int from, int to) {
+            this.starts = starts;
+            this.packed = packed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int length = starts[to] - starts[from];
+            if (to - from == 1) {
+                if (length > SEQUENTIAL_SORT_THRESHOLD) {
+                    new MergeSort(packed, new long[length], starts[from], starts[to], starts[from]).invoke();
+                } else {
+                    Arrays.sort(packed, starts[from], starts[to]);
+                }
+            } else if (length <= SEQUENTIAL_SORT_THRESHOLD) {
+                for (int f = from; f < to; f++) {
+                    Arrays.sort(packed, starts[f], starts[f + 1]);
+                }
+            } else {
+                // Premier terme à partir duquel on a dépassé la moitié des couples
+                int middle = Arrays.binarySearch(starts, from, to + 1, starts[from] + length / 2);
+                middle = middle < 0 ? -middle - 1 : middle;
+                middle = Math.min(Math.max(middle, from + 1), to - 1);
+                invokeAll(new GroupSort(starts, packed, from, middle), new GroupSort(starts, packed, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Tri fusion parallèle de values[from, to[, buffer[from - offset, to - offset[
+     * servant de tableau auxiliaire.
+     */
+    private static final class MergeSort extends RecursiveAction {
+        private final long[] values;
+        private final long[] buffer;
+        private final int from;
+        private final int to;
+        private final int offset;
+
+        MergeSort(long[] values, long[] buffer, int from, int to, int offset) {
+            this.values = values;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.offset = offset;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_SORT_THRESHOLD) {
+                Arrays.sort(values, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new MergeSort(values, buffer, from, middle, offset),
+                    new MergeSort(values, buffer, middle, to, offset));
+            System.arraycopy(values, from, buffer, from - offset, to - from);
+            int i = from - offset;
+            int j = middle - offset;
+            for (int k = from; k < to; k++) {
+                if (j >= to - offset || (i < middle - offset && buffer[i] <= buffer[j])) {
+                    values[k] = buffer[i++];
+                } else {
+                    values[k] = buffer[j++];
+                }
+            }
+        }
+    }
+
+    static long pack(int second, int third) {
+        return ((long) second << 32) | third;
+    }
+
+    static int second(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    static int third(long packed) {
+        return (int) packed;
+    }
+}
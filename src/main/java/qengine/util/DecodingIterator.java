@@ -0,0 +1,50 @@
+package qengine.util;
+
+import java.util.Iterator;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Variable;
+import fr.boreal.model.logicalElements.impl.SubstitutionImpl;
+
+/**
+ * Décode au fil de l'itération des lignes encodées ({@link EncodedRowIterator}) :
+ * la substitution d'une ligne n'est créée, et ses termes décodés, qu'au moment où
+ * elle est demandée.
+ */
+public class DecodingIterator implements Iterator<Substitution> {
+
+    private final Iterator<int[]> rows;
+    private final Variable[] variables;
+    private final TermDictionary dictionary;
+
+    public DecodingIterator(EncodedRowIterator rows, TermDictionary dictionary) {
+        this(rows, rows.variables(), dictionary);
+    }
+
+    /**
+     * @param variables la variable associée à chaque colonne des lignes
+     */
+    public DecodingIterator(Iterator<int[]> rows, Variable[] variables, TermDictionary dictionary) {
+        this.rows = rows;
+        this.variables = variables;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return rows.hasNext();
+    }
+
+    @Override
+    public Substitution next() {
+        int[] row = rows.next();
+        if (QueryMetrics.ENABLED) {
+            QueryMetrics.instance().decoded(variables.length);
+        }
+        var substitution = new SubstitutionImpl();
+        for (int i = 0; i < variables.length; i++) {
+            substitution.add(variables[i], dictionary.decode(row[i]));
+        }
+        return substitution;
+    }
+}
@@ -0,0 +1,51 @@
+package qengine.util;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+import fr.boreal.model.logicalElements.api.Variable;
+
+/**
+ * Curseur sur des résultats encodés : chaque ligne contient, pour chaque variable
+ * du schéma ({@link #variables()}), l'identifiant du terme qui lui est associé.
+ * <p>
+ * Les lignes peuvent être réutilisées d'un appel à {@link #next()} au suivant : un
+ * client qui veut les conserver doit les copier. Les termes ne sont décodés qu'en
+ * bout de chaîne, par un {@link DecodingIterator}.
+ */
+public interface EncodedRowIterator extends Iterator<int[]> {
+
+    /**
+     * @return la variable de chaque colonne des lignes
+     */
+    Variable[] variables();
+
+    /**
+     * @return un curseur sans ligne de schéma {@code variables}
+     */
+    static EncodedRowIterator empty(Variable... variables) {
+        return of(Collections.emptyIterator(), variables);
+    }
+
+    /**
+     * @return les lignes de {@code rows}, de schéma {@code variables}
+     */
+    static EncodedRowIterator of(Iterator<int[]> rows, Variable... variables) {
+        return new EncodedRowIterator() {
+            @Override
+            public Variable[] variables() {
+                return variables;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public int[] next() {
+                return rows.next();
+            }
+        };
+    }
+}
@@ -0,0 +1,257 @@
+package qengine.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import fr.boreal.model.logicalElements.api.Term;
+
+/**
+ * Dictionnaire en lecture seule dont les labels sont triés et codés par préfixes
+ * communs (front coding), typiquement projeté en mémoire depuis un instantané.
+ * <p>
+ * Les labels, encodés en UTF-8, sont triés octet par octet puis regroupés en blocs
+ * de {@link #BLOCK_SIZE}. Le premier label d'un bloc est écrit en entier
+ * (longueur, octets) ; chacun des suivants par la longueur du préfixe qu'il partage
+ * avec le précédent, la longueur du reste et les octets du reste. Les longueurs sont
+ * des entiers variables (7 bits par octet). Les IRI de WatDiv partageant de longs
+ * préfixes, chaque label n'occupe que quelques octets.
+ * <p>
+ * Les identifiants restent ceux du dictionnaire d'origine : deux permutations
+ * relient un identifiant à son rang dans l'ordre trié. Le dictionnaire est composé
+ * de cinq tampons :
+ * <ul>
+ * <li>{@code kinds} : la nature de chaque terme, par identifiant (voir {@link TermLabels#kindOf}) ;</li>
+ * <li>{@code blocks} : pour le bloc b, ses octets occupent [blocks[b], blocks[b + 1][ dans {@code data} ;</li>
+ * <li>{@code data} : les blocs codés, mis bout à bout ;</li>
+ * <li>{@code ranks} : le rang de chaque identifiant ;</li>
+ * <li>{@code codes} : l'identifiant de chaque rang.</li>
+ * </ul>
+ * {@link #lookup} cherche le bloc par dichotomie sur les premiers labels puis
+ * parcourt le bloc ; {@link #decode} reconstruit le label en parcourant le début
+ * de son bloc. Les derniers termes décodés sont gardés dans un petit cache.
+ */
+public class FrontCodedTermDictionary implements TermDictionary {
+
+    public static final int BLOCK_SIZE = 16;
+
+    private static final int CACHE_SIZE = 1 << 12;
+
+    private final ByteBuffer kinds;
+    private final IntBuffer blocks;
+    private final ByteBuffer data;
+    private final IntBuffer ranks;
+    private final IntBuffer codes;
+    private final int size;
+    private final CachedTerm[] cache = new CachedTerm[CACHE_SIZE];
+
+    private record CachedTerm(int code, Term term) {
+    }
+
+    /**
+     * Les tampons d'un dictionnaire, prêts à être écrits.
+     */
+    public record Buffers(byte[] kinds, int[] blocks, byte[] data, int[] ranks, int[] codes) {
+
+        /**
+         * @return la taille totale (en octets) des tampons
+         */
+        public long byteSize() {
+            return kinds.length + 4L * blocks.length + data.length + 4L * ranks.length + 4L * codes.length;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException si les tailles des tampons sont incohérentes
+     */
+    public FrontCodedTermDictionary(ByteBuffer kinds, IntBuffer blocks, ByteBuffer data, IntBuffer ranks,
+            IntBuffer codes) {
+        this.size = kinds.limit();
+        int blockCount = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        if (blocks.limit() != blockCount + 1 || blocks.get(blockCount) != data.limit()
+                || ranks.limit() != size || codes.limit() != size) {
+            throw new IllegalArgumentException("Inconsistent dictionary buffers.");
+        }
+        this.kinds = kinds;
+        this.blocks = blocks;
+        this.data = data;
+        this.ranks = ranks;
+        this.codes = codes;
+    }
+
+    /**
+     * Trie et code les labels d'un dictionnaire.
+     */
+    public static Buffers encode(TermDictionary dictionary) {
+        int size = dictionary.size();
+        byte[] kinds = new byte[size];
+        byte[][] labels = new byte[size][];
+        for (int code = 0; code < size; code++) {
+            Term term = dictionary.decode(code);
+            kinds[code] = TermLabels.kindOf(term);
+            labels[code] = term.label().getBytes(StandardCharsets.UTF_8);
+        }
+        Integer[] sorted = new Integer[size];
+        Arrays.setAll(sorted, i -> i);
+        Arrays.sort(sorted, Comparator.comparing(code -> labels[code], Arrays::compareUnsigned));
+
+        int[] codes = new int[size];
+        int[] ranks = new int[size];
+        int[] blocks = new int[(size + BLOCK_SIZE - 1) / BLOCK_SIZE + 1];
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        byte[] previous = new byte[0];
+        for (int rank = 0; rank < size; rank++) {
+            int code = sorted[rank];
+            codes[rank] = code;
+            ranks[code] = rank;
+            byte[] label = labels[code];
+            int shared = 0;
+            if (rank % BLOCK_SIZE == 0) {
+                blocks[rank / BLOCK_SIZE] = data.size();
+            } else {
+                shared = Arrays.mismatch(previous, label);
+                if (shared < 0) {
+                    throw new IllegalArgumentException("Duplicate label in dictionary: " + dictionary.decode(code));
+                }
+                writeVarInt(data, shared);
+            }
+            writeVarInt(data, label.length - shared);
+            data.write(label, shared, label.length - shared);
+            previous = label;
+        }
+        blocks[blocks.length - 1] = data.size();
+        return new Buffers(kinds, blocks, data.toByteArray(), ranks, codes);
+    }
+
+    /**
+     * @return un dictionnaire servi depuis des tampons en mémoire
+     */
+    public static FrontCodedTermDictionary of(TermDictionary dictionary) {
+        Buffers buffers = encode(dictionary);
+        return new FrontCodedTermDictionary(ByteBuffer.wrap(buffers.kinds()), IntBuffer.wrap(buffers.blocks()),
+                ByteBuffer.wrap(buffers.data()), IntBuffer.wrap(buffers.ranks()), IntBuffer.wrap(buffers.codes()));
+    }
+
+    @Override
+    public int lookup(Term term) {
+        byte[] label = term.label().getBytes(StandardCharsets.UTF_8);
+        // Dernier bloc dont le premier label est inférieur ou égal au label cherché
+        int low = 0;
+        int high = blocks.limit() - 2;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (compareFirstLabel(middle, label) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (high < 0) {
+            return NOT_FOUND;
+        }
+        BlockCursor cursor = new BlockCursor(high);
+        int end = Math.min(size, (high + 1) * BLOCK_SIZE);
+        for (int rank = high * BLOCK_SIZE; rank < end; rank++) {
+            cursor.next();
+            int comparison = Arrays.compareUnsigned(cursor.label, 0, cursor.length, label, 0, label.length);
+            if (comparison == 0) {
+                return codes.get(rank);
+            }
+            if (comparison > 0) {
+                break;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    @Override
+    public Term decode(int code) {
+        CachedTerm cached = cache[code & (CACHE_SIZE - 1)];
+        if (cached != null && cached.code == code) {
+            return cached.term;
+        }
+        Term term = TermLabels.createTerm(kinds.get(code), label(code));
+        cache[code & (CACHE_SIZE - 1)] = new CachedTerm(code, term);
+        return term;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return le label du terme d'identifiant code
+     */
+    public String label(int code) {
+        int rank = ranks.get(code);
+        BlockCursor cursor = new BlockCursor(rank / BLOCK_SIZE);
+        for (int i = rank % BLOCK_SIZE; i >= 0; i--) {
+            cursor.next();
+        }
+        return new String(cursor.label, 0, cursor.length, StandardCharsets.UTF_8);
+    }
+
+    private int compareFirstLabel(int block, byte[] label) {
+        int[] position = {blocks.get(block)};
+        int length = readVarInt(data, position);
+        int from = position[0];
+        int common = Math.min(length, label.length);
+        for (int i = 0; i < common; i++) {
+            int comparison = Byte.compareUnsigned(data.get(from + i), label[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, label.length);
+    }
+
+    /**
+     * Reconstruit un à un les labels d'un bloc.
+     */
+    private final class BlockCursor {
+        private final int[] position;
+        private byte[] label = new byte[64];
+        private int length = 0;
+        private boolean first = true;
+
+        BlockCursor(int block) {
+            this.position = new int[]{blocks.get(block)};
+        }
+
+        void next() {
+            int shared = first ? 0 : readVarInt(data, position);
+            int suffix = readVarInt(data, position);
+            first = false;
+            if (shared + suffix > label.length) {
+                label = Arrays.copyOf(label, Math.max(2 * label.length, shared + suffix));
+            }
+            data.get(position[0], label, shared, suffix);
+            position[0] += suffix;
+            length = shared + suffix;
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer in, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get(position[0]++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
@@ -0,0 +1,121 @@
+package qengine.util;
+
+import java.util.Arrays;
+
+/**
+ * Index à trois niveaux (premier terme -> second terme -> ensemble de troisièmes
+ * termes) sur des identifiants encodés, sans aucun objet {@link Integer}.
+ * <p>
+ * Le premier niveau est une {@link IntIntHashMap} qui associe chaque premier
+ * terme à un nœud ; chaque nœud est une {@link IntIntHashMap} qui associe le
+ * second terme à un ensemble {@link IntHashSet} de troisièmes termes. Les nœuds
+ * et les ensembles sont rangés dans des tableaux et référencés par leur indice.
+ * <p>
+ * Les ensembles renvoyés par {@link #get(int, int)} et {@link #seconds(int)} sont
+ * des vues sur l'index : ils ne doivent pas être modifiés.
+ */
+public class HexaStoreIndex implements TripleIndex {
+
+    private static final IntHashSet EMPTY = new IntHashSet(1);
+
+    private final IntIntHashMap firstLevel = new IntIntHashMap();
+    private IntIntHashMap[] nodes = new IntIntHashMap[16];
+    private IntHashSet[] sets = new IntHashSet[16];
+    private int nodeCount = 0;
+    private int setCount = 0;
+    private long size = 0;
+
+    @Override
+    public boolean add(int first, int second, int third) {
+        int node = firstLevel.getValue(first);
+        if (node == IntIntHashMap.NO_VALUE) {
+            node = newNode();
+            firstLevel.put(first, node);
+        }
+        IntIntHashMap children = nodes[node];
+        int set = children.getValue(second);
+        if (set == IntIntHashMap.NO_VALUE) {
+            set = newSet();
+            children.put(second, set);
+        }
+        if (sets[set].add(third)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public IntHashSet get(int first, int second) {
+        int node = firstLevel.getValue(first);
+        if (node == IntIntHashMap.NO_VALUE) {
+            return EMPTY;
+        }
+        int set = nodes[node].getValue(second);
+        return set == IntIntHashMap.NO_VALUE ? EMPTY : sets[set];
+    }
+
+    @Override
+    public IntHashSet seconds(int first) {
+        int node = firstLevel.getValue(first);
+        return node == IntIntHashMap.NO_VALUE ? EMPTY : nodes[node];
+    }
+
+    @Override
+    public IntHashSet firsts() {
+        return firstLevel;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public int[] toTriples() {
+        int[] res = new int[Math.toIntExact(size * 3)];
+        int n = 0;
+        for (int i = 0; i < firstLevel.size(); i++) {
+            int first = firstLevel.get(i);
+            IntIntHashMap children = nodes[firstLevel.valueAt(i)];
+            for (int j = 0; j < children.size(); j++) {
+                int second = children.get(j);
+                IntHashSet thirds = sets[children.valueAt(j)];
+                for (int k = 0; k < thirds.size(); k++) {
+                    res[n++] = first;
+                    res[n++] = second;
+                    res[n++] = thirds.get(k);
+                }
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public long estimatedFootprint() {
+        long bytes = firstLevel.estimatedFootprint() + 16 + 8L * nodes.length + 16 + 8L * sets.length;
+        for (int i = 0; i < nodeCount; i++) {
+            bytes += 16 + nodes[i].estimatedFootprint();
+        }
+        for (int i = 0; i < setCount; i++) {
+            bytes += 16 + sets[i].estimatedFootprint();
+        }
+        return bytes;
+    }
+
+    private int newNode() {
+        if (nodeCount == nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodeCount * 2);
+        }
+        nodes[nodeCount] = new IntIntHashMap();
+        return nodeCount++;
+    }
+
+    private int newSet() {
+        if (setCount == sets.length) {
+            sets = Arrays.copyOf(sets, setCount * 2);
+        }
+        sets[setCount] = new IntHashSet(1);
+        return setCount++;
+    }
+}
@@ -0,0 +1,83 @@
+package qengine.util;
+
+import java.util.NoSuchElementException;
+
+import fr.boreal.model.logicalElements.api.Variable;
+
+/**
+ * Curseur paresseux sur les lignes encodées d'un motif dans un index de triplets.
+ * <p>
+ * Rien n'est matérialisé : le curseur parcourt directement les listes de l'index
+ * et remplit à chaque appel la même ligne. Deux formes sont possibles :
+ * <ul>
+ * <li>une variable : les valeurs d'une liste ({@code index.get(first, second)}) ;</li>
+ * <li>deux variables : les couples (second, third) d'un premier terme, obtenus en
+ * parcourant {@code index.seconds(first)} puis, pour chacun, {@code index.get(first, second)}.</li>
+ * </ul>
+ */
+public class IndexRowIterator implements EncodedRowIterator {
+
+    private final TripleIndex index;
+    private final int first;
+    private final Variable[] variables;
+    private final int[] row;
+
+    // null pour un curseur à une variable
+    private final IntList seconds;
+    private int secondPosition = 0;
+
+    private IntList thirds;
+    private int thirdPosition = 0;
+
+    /**
+     * Curseur à une variable, liée successivement à chaque valeur de {@code values}.
+     */
+    public IndexRowIterator(IntList values, Variable variable) {
+        this.index = null;
+        this.first = TermDictionary.NOT_FOUND;
+        this.variables = new Variable[]{variable};
+        this.row = new int[1];
+        this.seconds = null;
+        this.thirds = values;
+    }
+
+    /**
+     * Curseur à deux variables sur tous les couples (second, third) de {@code first}.
+     */
+    public IndexRowIterator(TripleIndex index, int first, Variable secondVariable, Variable thirdVariable) {
+        this.index = index;
+        this.first = first;
+        this.variables = new Variable[]{secondVariable, thirdVariable};
+        this.row = new int[2];
+        this.seconds = index.seconds(first);
+        this.thirds = IntSlice.EMPTY;
+    }
+
+    @Override
+    public Variable[] variables() {
+        return variables;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (thirdPosition == thirds.size()) {
+            if (seconds == null || secondPosition == seconds.size()) {
+                return false;
+            }
+            int second = seconds.get(secondPosition++);
+            row[0] = second;
+            thirds = index.get(first, second);
+            thirdPosition = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public int[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        row[row.length - 1] = thirds.get(thirdPosition++);
+        return row;
+    }
+}
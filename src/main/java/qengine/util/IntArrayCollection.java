@@ -0,0 +1,36 @@
+package qengine.util;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Vue en lecture seule d'un tableau d'entiers sous la forme d'une {@link java.util.List}.
+ * Le tableau n'est pas recopié : seuls les éléments effectivement lus sont boxés.
+ */
+public class IntArrayCollection extends AbstractList<Integer> implements RandomAccess {
+
+    private final int[] values;
+    private final int size;
+
+    public IntArrayCollection(int[] values) {
+        this(values, values.length);
+    }
+
+    public IntArrayCollection(int[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    @Override
+    public Integer get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,77 @@
+package qengine.util;
+
+import java.util.Arrays;
+
+/**
+ * Colonne d'entiers extensible, découpée en blocs de {@link #CHUNK_SIZE} valeurs.
+ * <p>
+ * L'ajout ne recopie jamais les valeurs déjà présentes (seul le tableau des blocs
+ * grandit) et chaque bloc est un {@code int[]} contigu, parcouru directement par les
+ * scans (voir {@link #chunk(int)}).
+ */
+public class IntColumn {
+
+    public static final int CHUNK_SHIFT = 14;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private int[][] chunks = new int[1][];
+    private int size;
+
+    public void add(int value) {
+        int chunk = size >>> CHUNK_SHIFT;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new int[CHUNK_SIZE];
+        }
+        chunks[chunk][size & CHUNK_MASK] = value;
+        size++;
+    }
+
+    public int get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException(row);
+        }
+        return chunks[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return le nombre de blocs occupés
+     */
+    public int chunkCount() {
+        return (size + CHUNK_MASK) >>> CHUNK_SHIFT;
+    }
+
+    /**
+     * @return le bloc d'indice chunk, dont seules les {@link #chunkLength(int)}
+     *         premières valeurs sont significatives
+     */
+    public int[] chunk(int chunk) {
+        return chunks[chunk];
+    }
+
+    public int chunkLength(int chunk) {
+        return Math.min(CHUNK_SIZE, size - (chunk << CHUNK_SHIFT));
+    }
+
+    public int[] toArray() {
+        int[] res = new int[size];
+        for (int c = 0; c < chunkCount(); c++) {
+            System.arraycopy(chunks[c], 0, res, c << CHUNK_SHIFT, chunkLength(c));
+        }
+        return res;
+    }
+
+    /**
+     * Estimation (en octets) de la mémoire occupée par la colonne.
+     */
+    public long estimatedFootprint() {
+        return 16 + 8L * chunks.length + (16 + 4L * CHUNK_SIZE) * chunkCount();
+    }
+}
@@ -0,0 +1,167 @@
+package qengine.util;
+
+import java.util.Arrays;
+
+/**
+ * Ensemble compact d'entiers positifs ou nuls, sans boxing.
+ * Les éléments sont rangés de manière dense dans leur ordre d'insertion, ce qui
+ * permet un accès indexé ({@link #get(int)}) et un parcours séquentiel sans
+ * itérateur. Pour les petits ensembles (le cas le plus fréquent dans un index de
+ * triplets), la recherche est linéaire ; au-delà de {@link #LINEAR_SCAN_LIMIT}
+ * éléments, une table à adressage ouvert est construite.
+ */
+public class IntHashSet implements IntList {
+
+    static final int LINEAR_SCAN_LIMIT = 8;
+    private static final int INITIAL_CAPACITY = 2;
+
+    protected int[] elements;
+    protected int size;
+
+    // slot -> index de l'élément + 1 (0 = slot libre)
+    private int[] table;
+
+    public IntHashSet() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public IntHashSet(int expectedSize) {
+        this.elements = new int[Math.max(1, expectedSize)];
+    }
+
+    /**
+     * Ajoute un élément à l'ensemble.
+     *
+     * @param value l'entier à ajouter (positif ou nul)
+     * @return true si l'élément a été ajouté, false s'il était déjà présent
+     */
+    public boolean add(int value) {
+        if (indexOf(value) >= 0) {
+            return false;
+        }
+        insert(value);
+        return true;
+    }
+
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param index position dans l'ordre d'insertion, entre 0 et size() - 1
+     * @return l'élément à cette position
+     */
+    @Override
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return elements[index];
+    }
+
+    @Override
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * @return la position de l'élément dans l'ordre d'insertion, ou -1 s'il est absent
+     */
+    protected int indexOf(int value) {
+        if (table == null) {
+            for (int i = 0; i < size; i++) {
+                if (elements[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = table.length - 1;
+        int slot = mix(value) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (elements[entry - 1] == value) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Insère un élément que l'on sait absent.
+     *
+     * @return la position de l'élément inséré
+     */
+    protected int insert(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non-negative values can be stored: " + value);
+        }
+        if (size == elements.length) {
+            grow(size * 2);
+        }
+        int index = size++;
+        elements[index] = value;
+
+        if (table != null) {
+            if (size * 2 > table.length) {
+                rehash(table.length * 2);
+            } else {
+                place(value, index);
+            }
+        } else if (size > LINEAR_SCAN_LIMIT) {
+            rehash(Integer.highestOneBit(size * 4 - 1));
+        }
+        return index;
+    }
+
+    protected void grow(int capacity) {
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            place(elements[i], i);
+        }
+    }
+
+    private void place(int value, int index) {
+        int mask = table.length - 1;
+        int slot = mix(value) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = index + 1;
+    }
+
+    /**
+     * Les identifiants du dictionnaire sont séquentiels : on les mélange avant de
+     * les projeter sur la table pour éviter les longues séquences de collisions.
+     */
+    static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Estimation (en octets) de la mémoire occupée par les tableaux de l'ensemble.
+     */
+    public long estimatedFootprint() {
+        long bytes = 16 + 4L * elements.length;
+        if (table != null) {
+            bytes += 16 + 4L * table.length;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,66 @@
+package qengine.util;
+
+import java.util.Arrays;
+
+/**
+ * Table d'association int -> int à adressage ouvert, sans boxing.
+ * Les clés sont conservées dans l'ordre d'insertion (voir {@link IntHashSet}) et
+ * les valeurs sont rangées en parallèle, ce qui permet de parcourir les entrées
+ * par position avec {@link #get(int)} et {@link #valueAt(int)}.
+ */
+public class IntIntHashMap extends IntHashSet {
+
+    public static final int NO_VALUE = -1;
+
+    private int[] values;
+
+    public IntIntHashMap() {
+        this(2);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        super(expectedSize);
+        this.values = new int[elements.length];
+    }
+
+    /**
+     * @return la valeur associée à la clé, ou {@link #NO_VALUE} si la clé est absente
+     */
+    public int getValue(int key) {
+        int index = indexOf(key);
+        return index < 0 ? NO_VALUE : values[index];
+    }
+
+    /**
+     * Associe une valeur à une clé, en remplaçant l'éventuelle valeur précédente.
+     */
+    public void put(int key, int value) {
+        int index = indexOf(key);
+        if (index < 0) {
+            index = insert(key);
+        }
+        values[index] = value;
+    }
+
+    /**
+     * @param index position de l'entrée dans l'ordre d'insertion
+     * @return la valeur de l'entrée à cette position
+     */
+    public int valueAt(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return values[index];
+    }
+
+    @Override
+    protected void grow(int capacity) {
+        super.grow(capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    public long estimatedFootprint() {
+        return super.estimatedFootprint() + 16 + 4L * values.length;
+    }
+}
@@ -0,0 +1,35 @@
+package qengine.util;
+
+/**
+ * Séquence d'entiers en lecture seule, accessible par position sans boxing.
+ * C'est la forme sous laquelle les index renvoient leurs listes de termes encodés.
+ */
+public interface IntList {
+
+    int size();
+
+    /**
+     * @param index position entre 0 et size() - 1
+     * @return l'entier à cette position
+     */
+    int get(int index);
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return true si les éléments sont garantis triés par ordre strictement croissant
+     */
+    default boolean isSorted() {
+        return false;
+    }
+
+    default int[] toArray() {
+        int[] res = new int[size()];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = get(i);
+        }
+        return res;
+    }
+}
@@ -0,0 +1,80 @@
+package qengine.util;
+
+import java.nio.IntBuffer;
+
+/**
+ * Vue triée sur une portion [from, to[ d'un tampon d'entiers, sans recopie.
+ * Le tampon peut être sur le tas ou projeté en mémoire depuis un fichier.
+ */
+public class IntSlice implements IntList {
+
+    public static final IntSlice EMPTY = new IntSlice(IntBuffer.allocate(0), 0, 0);
+
+    private final IntBuffer values;
+    private final int from;
+    private final int to;
+
+    public IntSlice(int[] values, int from, int to) {
+        this(IntBuffer.wrap(values), from, to);
+    }
+
+    public IntSlice(IntBuffer values, int from, int to) {
+        this.values = values;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public int get(int index) {
+        if (index < 0 || index >= to - from) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return values.get(from + index);
+    }
+
+    @Override
+    public boolean isSorted() {
+        return true;
+    }
+
+    /**
+     * @return la position de la valeur dans la vue, ou -1 si elle est absente
+     */
+    public int indexOf(int value) {
+        int position = binarySearch(values, from, to, value);
+        return position < 0 ? -1 : position - from;
+    }
+
+    @Override
+    public int[] toArray() {
+        int[] res = new int[to - from];
+        values.get(from, res);
+        return res;
+    }
+
+    /**
+     * Recherche dichotomique dans la portion [from, to[ d'un tampon trié, avec la
+     * même convention de retour que {@link java.util.Arrays#binarySearch(int[], int, int, int)}.
+     */
+    public static int binarySearch(IntBuffer values, int from, int to, int key) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = values.get(mid);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
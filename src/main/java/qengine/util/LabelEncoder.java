@@ -0,0 +1,32 @@
+package qengine.util;
+
+import java.nio.ByteBuffer;
+
+import fr.boreal.model.logicalElements.api.Term;
+
+/**
+ * Dictionnaire modifiable qui peut encoder un label sans disposer du terme, par
+ * exemple lu directement dans un fichier N-Triples projeté en mémoire. Les termes
+ * inconnus sont alors créés comme littéraux, à l'image de
+ * {@link qengine.parser.RDFAtomParser}.
+ */
+public interface LabelEncoder extends TermDictionary {
+
+    /**
+     * @return l'identifiant du terme, attribué s'il était inconnu
+     */
+    int encode(Term term);
+
+    /**
+     * Encode le terme de label ASCII {@code bytes[from, to[}. Aucune chaîne n'est
+     * créée si le label est déjà connu.
+     *
+     * @param labelHashCode le {@link String#hashCode()} du label
+     */
+    int encodeAscii(ByteBuffer bytes, int from, int to, int labelHashCode);
+
+    /**
+     * Encode le terme de label {@code label}.
+     */
+    int encodeLabel(String label);
+}
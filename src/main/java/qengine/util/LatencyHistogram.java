@@ -0,0 +1,98 @@
+package qengine.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de durées (ou de toute valeur positive) à précision relative
+ * constante, dans l'esprit de HdrHistogram.
+ * <p>
+ * Les valeurs inférieures à {@code 2^SUB_BUCKET_BITS} ont chacune leur case ;
+ * au-delà, chaque puissance de deux est découpée en {@code 2^SUB_BUCKET_BITS}
+ * cases de même largeur. Une valeur est donc connue à 1/32 près, quel que soit son
+ * ordre de grandeur, avec un tableau de taille fixe. Les enregistrements peuvent
+ * être concurrents ; les lectures sont des instantanés approximatifs.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int GROUPS = 64 - SUB_BUCKET_BITS + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(GROUPS * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param value une valeur positive ; les valeurs négatives comptent pour 0
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile entre 0 et 1
+     * @return la plus grande valeur de la case qui contient la valeur de rang
+     *         {@code ceil(percentile * count())}, ou 0 si l'histogramme est vide
+     */
+    public long percentile(double percentile) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long highestValue(int index) {
+        int group = index / SUB_BUCKETS;
+        long offset = index % SUB_BUCKETS;
+        if (group == 0) {
+            return offset;
+        }
+        return ((SUB_BUCKETS + offset + 1) << (group - 1)) - 1;
+    }
+}
@@ -0,0 +1,157 @@
+package qengine.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import fr.boreal.model.logicalElements.api.Variable;
+import qengine.model.RDFAtom;
+
+/**
+ * Parcours parallèle d'une table de triplets stockée en colonnes.
+ * <p>
+ * La table est découpée en partitions de {@link #PARTITION_CHUNKS} blocs, chacune
+ * filtrée par un {@link BigTableRowIterator} restreint dans une tâche de
+ * l'exécuteur fourni (un {@link java.util.concurrent.ForkJoinPool} ou un exécuteur
+ * de threads virtuels). Chaque tâche recopie les lignes encodées de sa partition
+ * dans un tableau d'entiers ; les substitutions ne sont créées qu'au fil des
+ * appels à {@link #next()}. Les partitions sont rendues :
+ * <ul>
+ * <li>dans l'ordre de la table si {@code ordered} : le résultat est alors
+ * exactement celui du parcours séquentiel ;</li>
+ * <li>sinon dans l'ordre où elles se terminent, ce qui permet de consommer les
+ * premiers résultats sans attendre la partition la plus lente.</li>
+ * </ul>
+ */
+public class ParallelBigTableMatchIterator extends DecodingIterator {
+
+    /**
+     * Nombre de blocs de {@link IntColumn#CHUNK_SIZE} lignes par tâche.
+     */
+    public static final int PARTITION_CHUNKS = 4;
+
+    public ParallelBigTableMatchIterator(RDFAtom target, int availableTerms,
+            TermDictionary dictionary,
+            IntColumn rdfAtomsSubject,
+            IntColumn rdfAtomsPredicate,
+            IntColumn rdfAtomsObject,
+            ExecutorService executor,
+            boolean ordered) {
+        super(new PartitionedRows(target, availableTerms, dictionary, rdfAtomsSubject, rdfAtomsPredicate,
+                rdfAtomsObject, executor, ordered), dictionary);
+    }
+
+    /**
+     * Les {@code count} lignes encodées d'une partition, à plat.
+     */
+    private record Partition(int[] rows, int count) {
+    }
+
+    private static final class PartitionedRows implements EncodedRowIterator {
+        private final List<Future<Partition>> partitions = new ArrayList<>();
+        private final CompletionService<Partition> completion;
+        private final Variable[] variables;
+        private final int[] row;
+        private int consumed = 0;
+        private Partition current = new Partition(new int[0], 0);
+        private int position = 0;
+
+        PartitionedRows(RDFAtom target, int availableTerms,
+                TermDictionary dictionary,
+                IntColumn rdfAtomsSubject,
+                IntColumn rdfAtomsPredicate,
+                IntColumn rdfAtomsObject,
+                ExecutorService executor,
+                boolean ordered) {
+            this.completion = ordered ? null : new ExecutorCompletionService<>(executor);
+            this.variables = new BigTableRowIterator(target, availableTerms, dictionary, rdfAtomsSubject,
+                    rdfAtomsPredicate, rdfAtomsObject, 0, 0).variables();
+            this.row = new int[variables.length];
+            int chunkCount = rdfAtomsSubject.chunkCount();
+            for (int from = 0; from < chunkCount; from += PARTITION_CHUNKS) {
+                int fromChunk = from;
+                int toChunk = Math.min(chunkCount, from + PARTITION_CHUNKS);
+                Callable<Partition> task = () -> {
+                    BigTableRowIterator rows = new BigTableRowIterator(target, availableTerms, dictionary,
+                            rdfAtomsSubject, rdfAtomsPredicate, rdfAtomsObject, fromChunk, toChunk);
+                    int[] values = new int[Math.max(16, row.length)];
+                    int length = 0;
+                    int count = 0;
+                    while (rows.hasNext()) {
+                        int[] next = rows.next();
+                        if (length + next.length > values.length) {
+                            values = Arrays.copyOf(values, 2 * values.length);
+                        }
+                        System.arraycopy(next, 0, values, length, next.length);
+                        length += next.length;
+                        count++;
+                    }
+                    return new Partition(values, count);
+                };
+                partitions.add(ordered ? executor.submit(task) : completion.submit(task));
+            }
+        }
+
+        @Override
+        public Variable[] variables() {
+            return variables;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position == current.count) {
+                if (consumed == partitions.size()) {
+                    return false;
+                }
+                current = nextPartition();
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            System.arraycopy(current.rows, row.length * position++, row, 0, row.length);
+            return row;
+        }
+
+        private Partition nextPartition() {
+            try {
+                Future<Partition> partition = completion == null
+                        ? partitions.get(consumed)
+                        : completion.take();
+                consumed++;
+                return partition.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                throw new IllegalStateException("Interrupted while waiting for a scan partition.", e);
+            } catch (ExecutionException e) {
+                cancel();
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException("A scan partition failed.", e.getCause());
+            }
+        }
+
+        private void cancel() {
+            for (Future<Partition> partition : partitions) {
+                partition.cancel(true);
+            }
+            consumed = partitions.size();
+            current = new Partition(new int[0], 0);
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package qengine.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import fr.boreal.model.logicalElements.api.Term;
+import qengine.model.RDFAtom;
+
+/**
+ * Mesures côté requêtes, communes à tous les stores : lectures de chaque index de
+ * l'hexastore, termes décodés et, pour chaque forme de motif ou de requête, le
+ * nombre d'évaluations, un histogramme du nombre de réponses (par puissance de
+ * deux) et un histogramme des latences ({@link LatencyHistogram}).
+ * <p>
+ * L'instrumentation n'est active qu'avec {@code -Dqengine.metrics=true}. Chaque
+ * point de mesure est gardé par {@link #ENABLED}, une constante : sinon, le JIT
+ * élimine le code de mesure et son coût est nul. Une fois active, les mesures sont
+ * exposées par JMX sous {@value #OBJECT_NAME} et en texte par {@link #dump()}.
+ * <p>
+ * La latence d'une évaluation va de l'appel à {@code match} jusqu'à la dernière
+ * réponse lue : elle comprend donc le temps passé par l'appelant entre deux
+ * réponses.
+ */
+public final class QueryMetrics implements QueryMetricsMXBean {
+
+    public static final boolean ENABLED = Boolean.getBoolean("qengine.metrics");
+
+    public static final String OBJECT_NAME = "qengine:type=QueryMetrics";
+
+    /**
+     * Noms des index, dans l'ordre des identifiants passés à {@link #indexLookup(int)}
+     * (celui de {@code StarQueryEvaluator}).
+     */
+    public static final String[] INDEX_NAMES = {"S_O_P", "S_P_O", "P_S_O", "P_O_S", "O_P_S", "O_S_P"};
+
+    // Cases de l'histogramme des réponses : 0, puis [2^(k-1), 2^k[ pour k >= 1
+    private static final int CARDINALITY_BUCKETS = 64;
+
+    private static final QueryMetrics INSTANCE = new QueryMetrics();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                Logger.getLogger(Globals.SYSTEM_LOGGER).warning("Failed to register query metrics MBean: " + e);
+            }
+        }
+    }
+
+    private final LongAdder[] indexLookups = new LongAdder[INDEX_NAMES.length];
+    private final LongAdder decodedTerms = new LongAdder();
+    private final ConcurrentMap<String, Shape> shapes = new ConcurrentHashMap<>();
+
+    /**
+     * Les mesures d'une forme de motif ou de requête.
+     */
+    private static final class Shape {
+        private final LongAdder results = new LongAdder();
+        private final AtomicLongArray cardinalities = new AtomicLongArray(CARDINALITY_BUCKETS);
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        void record(long nanos, long rows) {
+            latencies.record(nanos);
+            results.add(rows);
+            cardinalities.incrementAndGet(64 - Long.numberOfLeadingZeros(rows));
+        }
+    }
+
+    QueryMetrics() {
+        for (int i = 0; i < indexLookups.length; i++) {
+            indexLookups[i] = new LongAdder();
+        }
+    }
+
+    public static QueryMetrics instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return la forme d'un motif d'atome, par exemple {@code atom s p ?} pour
+     *         {@code <s> <p> ?o}
+     */
+    public static String atomShape(RDFAtom atom) {
+        StringBuilder shape = new StringBuilder("atom");
+        String positions = "spo";
+        for (int position = 0; position < 3; position++) {
+            Term term = atom.getTerm(position);
+            shape.append(' ').append(term.isVariable() ? '?' : positions.charAt(position));
+        }
+        return shape.toString();
+    }
+
+    /**
+     * @param index l'identifiant de l'index lu (voir {@link #INDEX_NAMES})
+     */
+    public void indexLookup(int index) {
+        indexLookups[index].increment();
+    }
+
+    public void decoded(int terms) {
+        decodedTerms.add(terms);
+    }
+
+    /**
+     * Enveloppe les réponses d'une évaluation : leur nombre et la latence de
+     * l'évaluation sont enregistrés pour la forme {@code shape} une fois la dernière
+     * réponse lue.
+     *
+     * @param start l'instant ({@link System#nanoTime()}) du début de l'évaluation
+     */
+    public <T> Iterator<T> metered(String shape, long start, Iterator<T> answers) {
+        return new MeteredIterator<>(shapes.computeIfAbsent(shape, k -> new Shape()), start, answers);
+    }
+
+    @Override
+    public Map<String, Long> getIndexLookups() {
+        Map<String, Long> lookups = new TreeMap<>();
+        for (int i = 0; i < INDEX_NAMES.length; i++) {
+            lookups.put(INDEX_NAMES[i], indexLookups[i].sum());
+        }
+        return lookups;
+    }
+
+    @Override
+    public long getDecodedTerms() {
+        return decodedTerms.sum();
+    }
+
+    @Override
+    public Map<String, Long> getQueryCounts() {
+        return byShape(shape -> shape.latencies.count());
+    }
+
+    @Override
+    public Map<String, Long> getResultCounts() {
+        return byShape(shape -> shape.results.sum());
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP50Micros() {
+        return byShapeDouble(shape -> shape.latencies.percentile(0.50) / 1e3);
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP99Micros() {
+        return byShapeDouble(shape -> shape.latencies.percentile(0.99) / 1e3);
+    }
+
+    private Map<String, Long> byShape(ToLongFunction<Shape> metric) {
+        Map<String, Long> values = new TreeMap<>();
+        shapes.forEach((name, shape) -> values.put(name, metric.applyAsLong(shape)));
+        return values;
+    }
+
+    private Map<String, Double> byShapeDouble(ToDoubleFunction<Shape> metric) {
+        Map<String, Double> values = new TreeMap<>();
+        shapes.forEach((name, shape) -> values.put(name, metric.applyAsDouble(shape)));
+        return values;
+    }
+
+    /**
+     * Par exemple :
+     * <pre>
+     * index lookups: O_P_S=0 O_S_P=0 P_O_S=1200 P_S_O=0 S_O_P=0 S_P_O=0
+     * decoded terms: 61234
+     * hexastore star ?0 &lt;likes&gt; _ . -&gt; ?0
+     *   count=100 results=3270 mean=41.2us p50=30.5us p95=120.0us p99=180.2us max=240.1us
+     *   results: 0:12 [1,2):3 [2,4):10 ...
+     * </pre>
+     */
+    @Override
+    public String dump() {
+        StringBuilder text = new StringBuilder("index lookups:");
+        getIndexLookups().forEach((name, count) -> text.append(' ').append(name).append('=').append(count));
+        text.append("\ndecoded terms: ").append(getDecodedTerms()).append('\n');
+        for (Map.Entry<String, Shape> entry : new TreeMap<>(shapes).entrySet()) {
+            Shape shape = entry.getValue();
+            LatencyHistogram latencies = shape.latencies;
+            text.append(entry.getKey()).append('\n').append(String.format(
+                    "  count=%d results=%d mean=%.1fus p50=%.1fus p95=%.1fus p99=%.1fus max=%.1fus%n  results:",
+                    latencies.count(), shape.results.sum(), latencies.mean() / 1e3,
+                    latencies.percentile(0.50) / 1e3, latencies.percentile(0.95) / 1e3,
+                    latencies.percentile(0.99) / 1e3, latencies.max() / 1e3));
+            for (int bucket = 0; bucket < CARDINALITY_BUCKETS; bucket++) {
+                long count = shape.cardinalities.get(bucket);
+                if (count > 0) {
+                    text.append(' ').append(bucket == 0 ? "0" : "[" + (1L << (bucket - 1)) + "," + (1L << bucket) + ")")
+                            .append(':').append(count);
+                }
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder lookups : indexLookups) {
+            lookups.reset();
+        }
+        decodedTerms.reset();
+        shapes.clear();
+    }
+
+    private static final class MeteredIterator<T> implements Iterator<T> {
+        private final Shape shape;
+        private final long start;
+        private final Iterator<T> answers;
+        private long rows = 0;
+        private boolean recorded = false;
+
+        MeteredIterator(Shape shape, long start, Iterator<T> answers) {
+            this.shape = shape;
+            this.start = start;
+            this.answers = answers;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = answers.hasNext();
+            if (!hasNext && !recorded) {
+                recorded = true;
+                shape.record(System.nanoTime() - start, rows);
+            }
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            T answer = answers.next();
+            rows++;
+            return answer;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package qengine.util;
+
+import java.util.Map;
+
+/**
+ * Vue JMX de {@link QueryMetrics}, enregistrée sous {@value QueryMetrics#OBJECT_NAME}.
+ */
+public interface QueryMetricsMXBean {
+
+    /**
+     * @return le nombre de lectures de chaque index de l'hexastore, par nom d'index
+     */
+    Map<String, Long> getIndexLookups();
+
+    /**
+     * @return le nombre de termes décodés depuis le dictionnaire
+     */
+    long getDecodedTerms();
+
+    /**
+     * @return le nombre d'évaluations de chaque forme de motif ou de requête
+     */
+    Map<String, Long> getQueryCounts();
+
+    /**
+     * @return le nombre total de réponses de chaque forme
+     */
+    Map<String, Long> getResultCounts();
+
+    Map<String, Double> getLatencyP50Micros();
+
+    Map<String, Double> getLatencyP99Micros();
+
+    /**
+     * @return toutes les mesures, en texte
+     */
+    String dump();
+
+    void reset();
+}
@@ -0,0 +1,122 @@
+package qengine.util;
+
+import java.util.Arrays;
+
+/**
+ * Opérations sur des listes d'entiers triées par ordre strictement croissant.
+ */
+public final class SortedIntLists {
+
+    private SortedIntLists() {
+    }
+
+    /**
+     * @return les éléments de la liste, triés
+     */
+    public static int[] sorted(IntList list) {
+        int[] values = list.toArray();
+        if (!list.isSorted()) {
+            Arrays.sort(values);
+        }
+        return values;
+    }
+
+    /**
+     * Intersecte en place values[0, size[ avec list, toutes deux triées.
+     * <p>
+     * Chaque élément de {@code values} est recherché dans {@code list} par une
+     * recherche galopante (exponentielle puis dichotomique) à partir de la position
+     * atteinte par l'élément précédent : le coût est en O(m log(n / m)) pour m
+     * éléments dans {@code values} et n dans {@code list}, ce qui est avantageux
+     * lorsque {@code values} est la plus petite des deux listes.
+     *
+     * @return le nombre d'éléments conservés, rangés au début de {@code values}
+     */
+    public static int intersect(int[] values, int size, IntList list) {
+        int n = 0;
+        int position = 0;
+        int listSize = list.size();
+        for (int i = 0; i < size && position < listSize; i++) {
+            position = gallop(list, position, listSize, values[i]);
+            if (position < listSize && list.get(position) == values[i]) {
+                values[n++] = values[i];
+                position++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return la première position de [from, to[ dont la valeur est supérieure ou
+     *         égale à key, ou to s'il n'y en a pas
+     */
+    public static int gallop(IntList list, int from, int to, int key) {
+        if (from >= to || list.get(from) >= key) {
+            return from;
+        }
+        int bound = 1;
+        while (from + bound < to && list.get(from + bound) < key) {
+            bound <<= 1;
+        }
+        int low = from + (bound >> 1) + 1;
+        int high = Math.min(from + bound, to);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (list.get(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return true si la liste contient la valeur
+     */
+    public static boolean contains(IntList list, int value) {
+        if (list instanceof IntHashSet set) {
+            return set.contains(value);
+        }
+        if (list.isSorted()) {
+            int position = gallop(list, 0, list.size(), value);
+            return position < list.size() && list.get(position) == value;
+        }
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return les éléments présents dans l'une ou l'autre des listes, triés et sans
+     *         doublons
+     */
+    public static int[] union(IntList first, IntList second) {
+        int[] a = sorted(first);
+        int[] b = sorted(second);
+        int[] values = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                values[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                values[n++] = b[j++];
+            } else {
+                values[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            values[n++] = a[i++];
+        }
+        while (j < b.length) {
+            values[n++] = b[j++];
+        }
+        return n == values.length ? values : Arrays.copyOf(values, n);
+    }
+}
@@ -1,21 +1,26 @@
 package qengine.util;
 
-import java.util.Iterator;
+import fr.boreal.model.logicalElements.api.Variable;
 
-import fr.boreal.model.logicalElements.api.Substitution;
+/**
+ * Curseur paresseux sur les réponses d'un motif dans un index de triplets : les
+ * lignes encodées d'un {@link IndexRowIterator}, dont chaque substitution n'est
+ * créée (et ses termes décodés) qu'au moment où elle est demandée.
+ */
+public class SubstitutionIterator extends DecodingIterator {
 
-public class SubstitutionIterator implements Iterator<Substitution> {
-
-    @Override
-    public boolean hasNext() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'hasNext'");
+    /**
+     * Curseur à une variable, liée successivement à chaque valeur de {@code values}.
+     */
+    public SubstitutionIterator(IntList values, Variable variable, TermDictionary dictionary) {
+        super(new IndexRowIterator(values, variable), dictionary);
     }
 
-    @Override
-    public Substitution next() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'next'");
+    /**
+     * Curseur à deux variables sur tous les couples (second, third) de {@code first}.
+     */
+    public SubstitutionIterator(TripleIndex index, int first, Variable secondVariable, Variable thirdVariable,
+            TermDictionary dictionary) {
+        super(new IndexRowIterator(index, first, secondVariable, thirdVariable), dictionary);
     }
-
 }
@@ -0,0 +1,27 @@
+package qengine.util;
+
+import fr.boreal.model.logicalElements.api.Term;
+
+/**
+ * Dictionnaire en lecture seule entre les termes et leurs identifiants entiers.
+ * Les identifiants sont denses, de 0 à size() - 1.
+ */
+public interface TermDictionary {
+
+    int NOT_FOUND = -1;
+
+    /**
+     * @return l'identifiant du terme, ou {@link #NOT_FOUND} s'il est inconnu
+     */
+    int lookup(Term term);
+
+    /**
+     * @return le terme d'identifiant code
+     */
+    Term decode(int code);
+
+    /**
+     * @return le nombre de termes du dictionnaire
+     */
+    int size();
+}
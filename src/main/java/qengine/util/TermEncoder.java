@@ -1,27 +1,177 @@
 package qengine.util;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import fr.boreal.model.logicalElements.api.Term;
 
-public class TermEncoder {
+/**
+ * Dictionnaire modifiable entre les termes et des identifiants denses, attribués à
+ * partir de 0 dans l'ordre d'encodage. Deux termes de même label ont le même
+ * identifiant.
+ * <p>
+ * Le décodage est une simple lecture dans un tableau de termes indexé par
+ * l'identifiant. L'encodage passe par une table de hachage à adressage ouvert
+ * (slot -> identifiant + 1, 0 = libre), sondée linéairement et remplie au plus aux
+ * trois quarts ; sa fonction de hachage est {@link TermLabels#hash(String)}.
+ * Aucun entier n'est converti en objet.
+ */
+public class TermEncoder implements LabelEncoder {
 
-    private final Map<Integer, Term> decodingMap = new HashMap<>();
-    private final Map<String, Integer> encodedTerms = new HashMap<>();
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private Term[] terms = new Term[INITIAL_CAPACITY];
+    private int[] table = new int[2 * INITIAL_CAPACITY];
     private int count = 0;
 
+    @Override
     public int encode(Term value) {
-        if (encodedTerms.containsKey(value.label())) {
-            return encodedTerms.get(value.label());
+        String label = value.label();
+        int mask = table.length - 1;
+        int slot = TermLabels.hash(label) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (terms[entry - 1].label().equals(label)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
         }
-        encodedTerms.put(value.label(), count);
-        decodingMap.put(count++, value);
-        return count;
+        return insert(slot, value);
+    }
+
+    @Override
+    public int encodeAscii(ByteBuffer bytes, int from, int to, int labelHashCode) {
+        int mask = table.length - 1;
+        int slot = TermLabels.mix(labelHashCode) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (asciiEquals(terms[entry - 1].label(), bytes, from, to)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        byte[] label = new byte[to - from];
+        bytes.get(from, label);
+        return insert(slot, TermLabels.createTerm(TermLabels.KIND_LITERAL,
+                new String(label, StandardCharsets.US_ASCII)));
+    }
+
+    @Override
+    public int encodeLabel(String label) {
+        int code = lookup(terms, table, count, label);
+        return code != NOT_FOUND ? code
+                : encode(TermLabels.createTerm(TermLabels.KIND_LITERAL, label));
+    }
+
+    static boolean asciiEquals(String label, ByteBuffer bytes, int from, int to) {
+        if (label.length() != to - from) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (label.charAt(i - from) != bytes.get(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    private int insert(int slot, Term value) {
+        if (count == terms.length) {
+            terms = Arrays.copyOf(terms, 2 * terms.length);
+        }
+        terms[count] = value;
+        table[slot] = count + 1;
+        count++;
+        if (4L * count > 3L * table.length) {
+            rehash(2 * table.length);
+        }
+        return count - 1;
+    }
+
+    @Override
+    public int lookup(Term value) {
+        return lookup(terms, table, count, value.label());
+    }
+
+    /**
+     * Cherche un label parmi les {@code count} premiers termes. Les entrées de la
+     * table qui désignent des termes plus récents sont sautées : un terme présent
+     * parmi les {@code count} premiers a été inséré avant eux, si bien que ces
+     * entrées ne peuvent que le suivre dans sa séquence de sondage.
+     */
+    private static int lookup(Term[] terms, int[] table, int count, String label) {
+        int mask = table.length - 1;
+        int slot = TermLabels.hash(label) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (entry <= count && terms[entry - 1].label().equals(label)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @return le terme d'identifiant code, ou null si aucun terme n'a cet identifiant
+     */
+    @Override
     public Term decode(int code) {
-        return decodingMap.get(code);
+        return code >= 0 && code < count ? terms[code] : null;
+    }
+
+    @Override
+    public int size() {
+        return count;
     }
 
+    /**
+     * Renvoie une vue en lecture seule des termes encodés jusqu'ici, qui peut être
+     * lue par d'autres threads pendant que celui-ci continue d'encoder.
+     * <p>
+     * La vue retient le tableau des termes, la table et le nombre de termes
+     * courants. Les encodages suivants n'écrivent dans ces tableaux qu'au-delà de ce
+     * nombre (termes) ou dans des slots libres (table), et les agrandissements
+     * remplacent les tableaux sans toucher aux anciens : la vue reste cohérente. Les
+     * termes de la vue doivent être publiés aux autres threads par une écriture
+     * {@code volatile} (ou tout autre lien happens-before) postérieure à l'appel.
+     */
+    public TermDictionary snapshot() {
+        return new Snapshot(terms, table, count);
+    }
+
+    private record Snapshot(Term[] terms, int[] table, int size) implements TermDictionary {
+
+        @Override
+        public int lookup(Term value) {
+            return TermEncoder.lookup(terms, table, size, value.label());
+        }
+
+        @Override
+        public Term decode(int code) {
+            return code >= 0 && code < size ? terms[code] : null;
+        }
+    }
+
+    /**
+     * Estimation (en octets) de la mémoire occupée par le tableau des termes et la
+     * table de hachage, hors termes eux-mêmes (partagés avec la fabrique de termes).
+     */
+    public long estimatedFootprint() {
+        return 16L + 4L * terms.length + 16L + 4L * table.length;
+    }
+
+    private void rehash(int capacity) {
+        int[] rehashed = new int[capacity];
+        int mask = capacity - 1;
+        for (int code = 0; code < count; code++) {
+            int slot = TermLabels.hash(terms[code].label()) & mask;
+            while (rehashed[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rehashed[slot] = code + 1;
+        }
+        table = rehashed;
+    }
 }
@@ -0,0 +1,56 @@
+package qengine.util;
+
+import fr.boreal.model.logicalElements.api.Literal;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+
+/**
+ * Fonctions communes aux dictionnaires : hachage des labels, nature des termes
+ * conservée dans les instantanés et recréation d'un terme à partir de son label.
+ */
+public final class TermLabels {
+
+    public static final byte KIND_CONSTANT = 0;
+    public static final byte KIND_LITERAL = 1;
+
+    private TermLabels() {
+    }
+
+    /**
+     * Fonction de hachage des labels, partagée par tous les dictionnaires à
+     * adressage ouvert.
+     */
+    public static int hash(String label) {
+        return mix(label.hashCode());
+    }
+
+    /**
+     * @param labelHashCode le {@link String#hashCode()} d'un label, éventuellement
+     *                      calculé sans créer la chaîne
+     * @return le hachage du label, égal à {@link #hash(String)}
+     */
+    public static int mix(int labelHashCode) {
+        int h = labelHashCode * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return la nature du terme ({@link #KIND_LITERAL} ou {@link #KIND_CONSTANT}),
+     *         à conserver avec son label
+     */
+    public static byte kindOf(Term term) {
+        return term instanceof Literal<?> ? KIND_LITERAL : KIND_CONSTANT;
+    }
+
+    /**
+     * Recrée un terme à partir de sa nature et de son label. La fabrique de termes
+     * est partagée : les appels sont sérialisés pour que des requêtes concurrentes
+     * puissent décoder en même temps.
+     */
+    public static Term createTerm(byte kind, String label) {
+        SameObjectTermFactory factory = SameObjectTermFactory.instance();
+        synchronized (factory) {
+            return kind == KIND_LITERAL ? factory.createOrGetLiteral(label) : factory.createOrGetConstant(label);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package qengine.util;
+
+/**
+ * Contrat d'un index de triplets encodés pour un ordre donné des positions
+ * (par exemple sujet, prédicat, objet pour l'index SPO).
+ * Les listes renvoyées sont des vues sur l'index et ne doivent pas être modifiées.
+ */
+public interface TripleIndex {
+
+    /**
+     * Ajoute le triplet (first, second, third) à l'index.
+     *
+     * @return true si le triplet a été ajouté, false s'il était déjà présent
+     * @throws UnsupportedOperationException si l'index est en lecture seule
+     */
+    boolean add(int first, int second, int third);
+
+    /**
+     * @return les troisièmes termes associés au couple (first, second), éventuellement vide
+     */
+    IntList get(int first, int second);
+
+    /**
+     * @return les seconds termes associés au premier terme, éventuellement vide
+     */
+    IntList seconds(int first);
+
+    /**
+     * @return tous les premiers termes présents dans l'index
+     */
+    IntList firsts();
+
+    /**
+     * @return le nombre de triplets distincts de l'index
+     */
+    long size();
+
+    /**
+     * Recopie tous les triplets de l'index, dans l'ordre de l'index, sous la forme
+     * (first, second, third) consécutifs.
+     */
+    int[] toTriples();
+
+    /**
+     * Estimation (en octets) de la mémoire occupée par l'index.
+     */
+    long estimatedFootprint();
+}
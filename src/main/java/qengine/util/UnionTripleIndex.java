@@ -0,0 +1,82 @@
+package qengine.util;
+
+/**
+ * Index en lecture seule qui présente comme un seul index la réunion de deux
+ * index, typiquement une base figée et un delta figé des triplets ajoutés depuis.
+ * <p>
+ * Les listes des deux index sont fusionnées à la demande en listes triées et sans
+ * doublons ; lorsque l'une des deux est vide, l'autre est renvoyée telle quelle.
+ * Les deux index ne doivent pas avoir de triplet en commun.
+ */
+public class UnionTripleIndex implements TripleIndex {
+
+    private final TripleIndex base;
+    private final TripleIndex delta;
+
+    public UnionTripleIndex(TripleIndex base, TripleIndex delta) {
+        this.base = base;
+        this.delta = delta;
+    }
+
+    @Override
+    public boolean add(int first, int second, int third) {
+        throw new UnsupportedOperationException("A union index is read-only.");
+    }
+
+    @Override
+    public IntList get(int first, int second) {
+        return union(base.get(first, second), delta.get(first, second));
+    }
+
+    @Override
+    public IntList seconds(int first) {
+        return union(base.seconds(first), delta.seconds(first));
+    }
+
+    @Override
+    public IntList firsts() {
+        return union(base.firsts(), delta.firsts());
+    }
+
+    private static IntList union(IntList base, IntList delta) {
+        if (delta.isEmpty()) {
+            return base;
+        }
+        if (base.isEmpty()) {
+            return delta;
+        }
+        int[] values = SortedIntLists.union(base, delta);
+        return new IntSlice(values, 0, values.length);
+    }
+
+    @Override
+    public long size() {
+        return base.size() + delta.size();
+    }
+
+    @Override
+    public int[] toTriples() {
+        int[] triples = new int[Math.toIntExact(3 * size())];
+        int n = 0;
+        IntList firsts = firsts();
+        for (int i = 0; i < firsts.size(); i++) {
+            int first = firsts.get(i);
+            IntList seconds = seconds(first);
+            for (int j = 0; j < seconds.size(); j++) {
+                int second = seconds.get(j);
+                IntList thirds = get(first, second);
+                for (int k = 0; k < thirds.size(); k++) {
+                    triples[n++] = first;
+                    triples[n++] = second;
+                    triples[n++] = thirds.get(k);
+                }
+            }
+        }
+        return triples;
+    }
+
+    @Override
+    public long estimatedFootprint() {
+        return base.estimatedFootprint() + delta.estimatedFootprint();
+    }
+}
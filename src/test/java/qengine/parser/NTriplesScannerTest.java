@@ -0,0 +1,127 @@
+package qengine.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qengine.model.RDFAtom;
+import qengine.util.TermEncoder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link NTriplesScanner}.
+ */
+class NTriplesScannerTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<String> scanLabels(Path path) throws Exception {
+        TermEncoder encoder = new TermEncoder();
+        List<String> labels = new ArrayList<>();
+        NTriplesScanner.scan(path, encoder, (s, p, o) -> {
+            labels.add(encoder.decode(s).label());
+            labels.add(encoder.decode(p).label());
+            labels.add(encoder.decode(o).label());
+        });
+        return labels;
+    }
+
+    @Test
+    void testSameLabelsAsRDFAtomParser() throws Exception {
+        File data = new File("data/sample_data.nt");
+        List<String> expected = new ArrayList<>();
+        try (RDFAtomParser parser = new RDFAtomParser(data)) {
+            while (parser.hasNext()) {
+                RDFAtom atom = parser.next();
+                for (int position = 0; position < 3; position++) {
+                    expected.add(atom.getTerm(position).label());
+                }
+            }
+        }
+        assertEquals(expected, scanLabels(data.toPath()));
+    }
+
+    @Test
+    void testBlankNodesMatchRDFAtomParserUpToRenaming() throws Exception {
+        Path file = directory.resolve("blank.nt");
+        Files.writeString(file, String.join("\n",
+                "_:b0 <http://ex.org/knows> _:b1 .",
+                "_:b1 <http://ex.org/knows> <http://ex.org/a> .",
+                "<http://ex.org/a> <http://ex.org/knows> _:b0 .",
+                "_:b0 <http://ex.org/name> \"Zoé\" ."), StandardCharsets.UTF_8);
+        List<String> expected = new ArrayList<>();
+        try (RDFAtomParser parser = new RDFAtomParser(file.toFile())) {
+            while (parser.hasNext()) {
+                RDFAtom atom = parser.next();
+                for (int position = 0; position < 3; position++) {
+                    expected.add(atom.getTerm(position).label());
+                }
+            }
+        }
+        List<String> actual = scanLabels(file);
+        assertEquals(List.of(
+                "b0", "http://ex.org/knows", "b1",
+                "b1", "http://ex.org/knows", "http://ex.org/a",
+                "http://ex.org/a", "http://ex.org/knows", "b0",
+                "b0", "http://ex.org/name", "Zoé"), actual);
+
+        // Même label partout pour un même nœud anonyme, quel que soit le renommage
+        assertEquals(expected.size(), actual.size());
+        Map<String, String> renaming = new HashMap<>();
+        for (int i = 0; i < actual.size(); i++) {
+            String label = actual.get(i);
+            if (label.equals("b0") || label.equals("b1")) {
+                assertEquals(label, renaming.computeIfAbsent(expected.get(i), source -> label));
+            } else {
+                assertEquals(expected.get(i), label);
+            }
+        }
+        assertEquals(2, renaming.size());
+    }
+
+    @Test
+    void testLiteralsEscapesAndComments() throws Exception {
+        Path file = directory.resolve("escapes.nt");
+        Files.writeString(file, String.join("\n",
+                "# commentaire",
+                "",
+                "<http://ex.org/a> <http://ex.org/name> \"Al\\\"ice\\n\"@fr .",
+                "_:b0\t<http://ex.org/age>\t\"42\"^^<http://www.w3.org/2001/XMLSchema#integer> . # fin",
+                "<http://ex.org/a> <http://ex.org/city> \"Montpellier \\u00C9cusson\" .",
+                "<http://ex.org/a> <http://ex.org/city> \"Béziers\" ."), StandardCharsets.UTF_8);
+        assertEquals(List.of(
+                "http://ex.org/a", "http://ex.org/name", "Al\"ice\n",
+                "b0", "http://ex.org/age", "42",
+                "http://ex.org/a", "http://ex.org/city", "Montpellier Écusson",
+                "http://ex.org/a", "http://ex.org/city", "Béziers"), scanLabels(file));
+    }
+
+    @Test
+    void testKnownTermsKeepTheirIds() throws Exception {
+        Path file = directory.resolve("repeated.nt");
+        Files.writeString(file, "<http://ex.org/a> <http://ex.org/p> \"é\" .\n"
+                + "<http://ex.org/a> <http://ex.org/p> \"é\" .\n");
+        TermEncoder encoder = new TermEncoder();
+        List<Integer> codes = new ArrayList<>();
+        long triples = NTriplesScanner.scan(file, encoder, (s, p, o) -> codes.addAll(List.of(s, p, o)));
+        assertEquals(2, triples);
+        assertEquals(List.of(0, 1, 2, 0, 1, 2), codes);
+        assertEquals(3, encoder.size());
+    }
+
+    @Test
+    void testMalformedLineIsRejected() throws Exception {
+        Path file = directory.resolve("malformed.nt");
+        Files.writeString(file, "<http://ex.org/a> <http://ex.org/p> <http://ex.org/b>\n");
+        assertThrows(IllegalArgumentException.class, () -> scanLabels(file));
+    }
+}
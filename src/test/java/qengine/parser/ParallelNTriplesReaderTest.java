@@ -0,0 +1,76 @@
+package qengine.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qengine.util.TermEncoder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link ParallelNTriplesReader}.
+ */
+class ParallelNTriplesReaderTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<String> sortedTriples(TermEncoder encoder, List<Integer> ids) {
+        List<String> triples = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += 3) {
+            triples.add(encoder.decode(ids.get(i)).label() + " " + encoder.decode(ids.get(i + 1)).label() + " "
+                    + encoder.decode(ids.get(i + 2)).label());
+        }
+        triples.sort(null);
+        return triples;
+    }
+
+    @Test
+    void testReadsTheSameTriplesAsTheScanner() throws Exception {
+        Path data = Path.of("data/sample_data.nt");
+        TermEncoder expectedEncoder = new TermEncoder();
+        List<Integer> expected = new ArrayList<>();
+        NTriplesScanner.scan(data, expectedEncoder, (s, p, o) -> expected.addAll(List.of(s, p, o)));
+
+        // De petites tranches, de petits lots et une file d'un seul lot
+        ParallelNTriplesReader reader = new ParallelNTriplesReader(4, 256, 7, 1);
+        TermEncoder encoder = new TermEncoder();
+        List<Integer> ids = new ArrayList<>();
+        long triples = reader.read(data, encoder, (batch, length) -> {
+            for (int i = 0; i < length; i++) {
+                ids.add(batch[i]);
+            }
+        });
+
+        assertEquals(expected.size() / 3, triples);
+        assertEquals(expectedEncoder.size(), encoder.size());
+        assertEquals(sortedTriples(expectedEncoder, expected), sortedTriples(encoder, ids));
+    }
+
+    @Test
+    void testMalformedChunkIsReported() throws Exception {
+        Path file = directory.resolve("malformed.nt");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("<http://ex.org/s").append(i).append("> <http://ex.org/p> \"").append(i).append("\" .\n");
+        }
+        text.append("<http://ex.org/s> <http://ex.org/p>\n");
+        Files.writeString(file, text);
+        ParallelNTriplesReader reader = new ParallelNTriplesReader(3, 128, 4, 2);
+        assertThrows(IllegalArgumentException.class,
+                () -> reader.read(file, new TermEncoder(), (batch, length) -> { }));
+    }
+
+    @Test
+    void testConsumerFailureStopsTheParsers() {
+        ParallelNTriplesReader reader = new ParallelNTriplesReader(2, 128, 1, 1);
+        assertThrows(IllegalStateException.class,
+                () -> reader.read(Path.of("data/sample_data.nt"), new TermEncoder(), (batch, length) -> {
+                    throw new IllegalStateException("stop");
+                }));
+    }
+}
@@ -0,0 +1,66 @@
+package qengine.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link CandidateSetCache}.
+ */
+class CandidateSetCacheTest {
+
+    private final CandidateSetCache.Atom location = new CandidateSetCache.Atom(0, -1, 10, 100);
+    private final CandidateSetCache.Atom nationality = new CandidateSetCache.Atom(0, -1, 11, 101);
+    private final CandidateSetCache.Atom gender = new CandidateSetCache.Atom(0, -1, 12, 102);
+    private final CandidateSetCache.Atom type = new CandidateSetCache.Atom(0, -1, 13, 103);
+
+    @Test
+    void testLookupReturnsTheLargestContainedEntry() {
+        CandidateSetCache cache = new CandidateSetCache();
+        cache.put(Set.of(location, nationality), new int[]{1, 2, 3, 4}, null, 50);
+        cache.put(Set.of(location, nationality, gender), new int[]{2, 3}, null, 60);
+
+        CandidateSetCache.Entry entry = cache.lookup(Set.of(location, nationality, gender, type));
+        assertNotNull(entry);
+        assertEquals(Set.of(location, nationality, gender), entry.atoms());
+        assertArrayEquals(new int[]{2, 3}, entry.candidates());
+        assertEquals(1, cache.partialHits());
+
+        assertNull(cache.lookup(Set.of(location, type)));
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void testReuseIsAccounted() {
+        CandidateSetCache cache = new CandidateSetCache();
+        cache.put(Set.of(location, nationality), new int[]{1, 2}, null, 50);
+        CandidateSetCache.Entry reused = cache.lookup(Set.of(location, nationality, gender));
+        cache.put(Set.of(location, nationality, gender), new int[]{2}, reused, 5);
+
+        assertEquals(50, cache.valuesSaved());
+        assertEquals(55, cache.valuesRead());
+        assertEquals(2, cache.atomsReused());
+        assertEquals(55, cache.lookup(Set.of(location, nationality, gender)).work());
+        assertEquals(1, cache.exactHits());
+    }
+
+    @Test
+    void testSingleAtomsAreNotCached() {
+        CandidateSetCache cache = new CandidateSetCache();
+        cache.put(Set.of(location), new int[]{1}, null, 1);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testAddInvalidatesEntriesOfThePredicate() {
+        CandidateSetCache cache = new CandidateSetCache();
+        cache.put(Set.of(location, nationality), new int[]{1}, null, 2);
+        cache.put(Set.of(gender, type), new int[]{1}, null, 2);
+        cache.predicateChanged(11);
+        assertEquals(1, cache.size());
+        assertNull(cache.lookup(Set.of(location, nationality)));
+        assertNotNull(cache.lookup(Set.of(gender, type)));
+    }
+}
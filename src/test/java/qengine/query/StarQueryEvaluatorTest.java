@@ -0,0 +1,112 @@
+package qengine.query;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+import qengine.model.RDFAtom;
+import qengine.model.StarQuery;
+import qengine.storage.RDFHexaStore;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link StarQueryEvaluator}, au travers de
+ * {@link RDFHexaStore#match(StarQuery)}.
+ */
+class StarQueryEvaluatorTest {
+
+    private final SameObjectTermFactory factory = SameObjectTermFactory.instance();
+    private final Variable x = factory.createOrGetVariable("?x");
+    private final Variable y = factory.createOrGetVariable("?y");
+    private final Term likes = factory.createOrGetLiteral("likes");
+    private final Term nationality = factory.createOrGetLiteral("nationality");
+    private final Term france = factory.createOrGetLiteral("France");
+    private final Term pizza = factory.createOrGetLiteral("Pizza");
+    private final Term sushi = factory.createOrGetLiteral("Sushi");
+
+    private RDFHexaStore store() {
+        RDFHexaStore store = new RDFHexaStore();
+        for (String person : List.of("Alice", "Bob", "Carol")) {
+            Term subject = factory.createOrGetLiteral(person);
+            store.add(new RDFAtom(subject, likes, pizza));
+        }
+        store.add(new RDFAtom(factory.createOrGetLiteral("Alice"), likes, sushi));
+        store.add(new RDFAtom(factory.createOrGetLiteral("Alice"), nationality, france));
+        store.add(new RDFAtom(factory.createOrGetLiteral("Carol"), nationality, france));
+        store.add(new RDFAtom(factory.createOrGetLiteral("Dave"), nationality, france));
+        return store;
+    }
+
+    private static Set<String> answers(Iterator<Substitution> results, Variable... variables) {
+        Set<String> res = new HashSet<>();
+        while (results.hasNext()) {
+            Substitution substitution = results.next();
+            StringBuilder answer = new StringBuilder();
+            for (Variable variable : variables) {
+                answer.append(substitution.createImageOf(variable).label()).append(' ');
+            }
+            assertTrue(res.add(answer.toString().trim()), "Les réponses doivent être distinctes.");
+        }
+        return res;
+    }
+
+    @Test
+    void testIntersection() {
+        StarQuery query = new StarQuery("q", List.of(
+                new RDFAtom(x, likes, pizza),
+                new RDFAtom(x, nationality, france)), List.of(x));
+        RDFHexaStore store = store();
+        assertEquals(Set.of("Alice", "Carol"), answers(store.match(query), x));
+        store.seal();
+        assertEquals(Set.of("Alice", "Carol"), answers(store.match(query), x));
+    }
+
+    @Test
+    void testOtherVariablesAreExpandedAndProjected() {
+        StarQuery query = new StarQuery("q", List.of(
+                new RDFAtom(x, nationality, france),
+                new RDFAtom(x, likes, y)), List.of(x, y));
+        assertEquals(Set.of("Alice Pizza", "Alice Sushi", "Carol Pizza"), answers(store().match(query), x, y));
+
+        StarQuery projected = new StarQuery("q", List.of(
+                new RDFAtom(x, nationality, france),
+                new RDFAtom(x, likes, y)), List.of(y));
+        assertEquals(Set.of("Pizza", "Sushi"), answers(store().match(projected), y));
+    }
+
+    @Test
+    void testUnknownConstant() {
+        StarQuery query = new StarQuery("q", List.of(
+                new RDFAtom(x, likes, factory.createOrGetLiteral("Tacos"))), List.of(x));
+        assertFalse(store().match(query).hasNext());
+    }
+
+    @Test
+    void testBatchMatchesEachQuery() {
+        StarQuery pizzaLovers = new StarQuery("q1", List.of(new RDFAtom(x, likes, pizza)), List.of(x));
+        StarQuery french = new StarQuery("q2", List.of(
+                new RDFAtom(x, likes, pizza),
+                new RDFAtom(x, nationality, france)), List.of(x));
+        StarQuery dishes = new StarQuery("q3", List.of(
+                new RDFAtom(x, nationality, france),
+                new RDFAtom(x, likes, y)), List.of(y));
+        StarQuery unknown = new StarQuery("q4", List.of(
+                new RDFAtom(x, likes, factory.createOrGetLiteral("Tacos"))), List.of(x));
+        List<StarQuery> queries = List.of(french, pizzaLovers, dishes, unknown, french);
+
+        List<Iterator<Substitution>> results = store().matchAll(queries);
+        assertEquals(queries.size(), results.size());
+        assertEquals(Set.of("Alice", "Carol"), answers(results.get(0), x));
+        assertEquals(Set.of("Alice", "Bob", "Carol"), answers(results.get(1), x));
+        assertEquals(Set.of("Pizza", "Sushi"), answers(results.get(2), y));
+        assertFalse(results.get(3).hasNext());
+        assertEquals(Set.of("Alice", "Carol"), answers(results.get(4), x));
+    }
+}
@@ -0,0 +1,56 @@
+package qengine.query;
+
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+import qengine.model.RDFAtom;
+import qengine.model.StarQuery;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link StarQueryPlanCache}.
+ */
+class StarQueryPlanCacheTest {
+
+    private final SameObjectTermFactory factory = SameObjectTermFactory.instance();
+    private final Term eligibleRegion = factory.createOrGetLiteral("eligibleRegion");
+
+    private StarQuery query(String variable, String country) {
+        Variable v = factory.createOrGetVariable(variable);
+        return new StarQuery("q", List.of(new RDFAtom(v, eligibleRegion, factory.createOrGetLiteral(country))),
+                List.of(v));
+    }
+
+    @Test
+    void testSignatureAbstractsConstantsAndVariableNames() {
+        assertEquals(StarQueryPlanCache.signature(query("?v0", "Country137")),
+                StarQueryPlanCache.signature(query("?x", "Country1")));
+        assertEquals("?0 <eligibleRegion> _ . -> ?0", StarQueryPlanCache.signature(query("?v0", "Country137")));
+
+        Variable v = factory.createOrGetVariable("?v0");
+        StarQuery otherPredicate = new StarQuery("q", List.of(new RDFAtom(v, factory.createOrGetLiteral("likes"),
+                factory.createOrGetLiteral("Country137"))), List.of(v));
+        assertNotEquals(StarQueryPlanCache.signature(query("?v0", "Country137")),
+                StarQueryPlanCache.signature(otherPredicate));
+    }
+
+    @Test
+    void testPlansAreCompiledOncePerShape() {
+        StarQueryPlanCache cache = new StarQueryPlanCache();
+        int[] compilations = {0};
+        for (String country : List.of("Country1", "Country2", "Country3")) {
+            cache.get(query("?v0", country), q -> {
+                compilations[0]++;
+                return new StarQueryPlan(1, new int[]{0, -1, -1}, new int[0], new int[]{0}, false);
+            });
+        }
+        assertEquals(1, compilations[0]);
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.size());
+    }
+}
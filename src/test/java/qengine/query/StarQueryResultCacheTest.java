@@ -0,0 +1,85 @@
+package qengine.query;
+
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+import qengine.model.RDFAtom;
+import qengine.model.StarQuery;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link StarQueryResultCache}.
+ */
+class StarQueryResultCacheTest {
+
+    private final SameObjectTermFactory factory = SameObjectTermFactory.instance();
+    private final Variable v0 = factory.createOrGetVariable("?v0");
+    private final Term likes = factory.createOrGetLiteral("likes");
+    private final Term follows = factory.createOrGetLiteral("follows");
+
+    private List<int[]> drain(Iterator<int[]> rows) {
+        List<int[]> result = new ArrayList<>();
+        rows.forEachRemaining(result::add);
+        return result;
+    }
+
+    @Test
+    void testKeyIgnoresAtomOrder() {
+        RDFAtom first = new RDFAtom(v0, likes, factory.createOrGetLiteral("Product0"));
+        RDFAtom second = new RDFAtom(v0, follows, factory.createOrGetLiteral("User0"));
+        StarQuery query = new StarQuery("q", List.of(first, second), List.of(v0));
+        StarQuery reordered = new StarQuery("q", List.of(second, first), List.of(v0));
+        assertEquals(StarQueryResultCache.key(query), StarQueryResultCache.key(reordered));
+
+        StarQuery other = new StarQuery("q", List.of(first), List.of(v0));
+        assertNotEquals(StarQueryResultCache.key(query), StarQueryResultCache.key(other));
+    }
+
+    @Test
+    void testRowsAreServedUntilTheirPredicateChanges() {
+        StarQueryResultCache cache = new StarQueryResultCache();
+        assertNull(cache.get("q"));
+        List<int[]> rows = drain(cache.recording("q", new int[]{7}, List.of(new int[]{1}, new int[]{2}).iterator()));
+        assertEquals(2, rows.size());
+
+        List<int[]> cached = drain(cache.get("q"));
+        assertEquals(2, cached.size());
+        assertArrayEquals(new int[]{2}, cached.get(1));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+
+        cache.predicateChanged(8);
+        assertNotNull(cache.get("q"));
+        cache.predicateChanged(7);
+        assertNull(cache.get("q"));
+        assertEquals(1, cache.invalidations());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testChangeDuringEvaluationIsNotCached() {
+        StarQueryResultCache cache = new StarQueryResultCache();
+        Iterator<int[]> rows = cache.recording("q", null, List.of(new int[]{1}).iterator());
+        cache.predicateChanged(3);
+        drain(rows);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testEvictionKeepsTheCacheUnderItsBound() {
+        StarQueryResultCache cache = new StarQueryResultCache(4096);
+        for (int i = 0; i < 100; i++) {
+            drain(cache.recording("q" + i, new int[]{0}, List.of(new int[]{i, i}).iterator()));
+        }
+        assertTrue(cache.bytes() <= 4096);
+        assertTrue(cache.evictions() > 0);
+        assertNotNull(cache.get("q99"));
+        assertNull(cache.get("q0"));
+    }
+}
@@ -0,0 +1,87 @@
+package qengine.query;
+
+import org.junit.jupiter.api.Test;
+import qengine.util.HexaStoreIndex;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static qengine.query.StatisticsCatalog.ANY_VALUE;
+import static qengine.query.StatisticsCatalog.UNBOUND;
+
+/**
+ * Tests unitaires pour la classe {@link StatisticsCatalog}.
+ */
+class StatisticsCatalogTest {
+
+    private static final int LIKES = 100;
+    private static final int NATIONALITY = 101;
+    private static final int FRANCE = 200;
+
+    private final HexaStoreIndex spo = new HexaStoreIndex();
+    private final HexaStoreIndex pso = new HexaStoreIndex();
+    private final HexaStoreIndex pos = new HexaStoreIndex();
+    private final HexaStoreIndex ops = new HexaStoreIndex();
+    private final StatisticsCatalog incremental = new StatisticsCatalog();
+
+    private void add(int s, int p, int o) {
+        boolean newSubject = spo.seconds(s).isEmpty();
+        if (!spo.add(s, p, o)) {
+            return;
+        }
+        incremental.add(p, o, newSubject, ops.seconds(o).isEmpty(), pso.get(p, s).isEmpty(),
+                pos.get(p, o).isEmpty());
+        pso.add(p, s, o);
+        pos.add(p, o, s);
+        ops.add(o, p, s);
+    }
+
+    private void fill() {
+        // 90 personnes de nationalité française, 10 de nationalités toutes différentes
+        for (int person = 0; person < 100; person++) {
+            add(person, NATIONALITY, person < 90 ? FRANCE : 300 + person);
+            add(person, LIKES, 1000 + person % 5);
+            add(person, LIKES, 1000 + person % 7);
+        }
+    }
+
+    @Test
+    void testIncrementalCountsAreExact() {
+        fill();
+        StatisticsCatalog exact = StatisticsCatalog.compute(spo, pso, pos, ops);
+        for (StatisticsCatalog catalog : new StatisticsCatalog[]{incremental, exact}) {
+            assertEquals(spo.size(), catalog.tripleCount());
+            assertEquals(100, catalog.distinctSubjects());
+            assertEquals(100, catalog.distinctSubjects(LIKES));
+            assertEquals(11, catalog.distinctObjects(NATIONALITY));
+            assertEquals(100, catalog.triples(NATIONALITY));
+        }
+    }
+
+    @Test
+    void testEstimates() {
+        fill();
+        StatisticsCatalog catalog = StatisticsCatalog.compute(spo, pso, pos, ops);
+        assertEquals(90, catalog.estimate(UNBOUND, NATIONALITY, FRANCE), "Objet fréquent : fréquence exacte.");
+        assertEquals(1, catalog.estimate(UNBOUND, NATIONALITY, 395));
+        assertEquals(100, catalog.estimate(UNBOUND, NATIONALITY, UNBOUND));
+        assertEquals(1, catalog.estimate(ANY_VALUE, NATIONALITY, UNBOUND));
+        assertEquals(0, catalog.estimate(UNBOUND, 999, UNBOUND), "Prédicat inconnu.");
+        assertEquals(catalog.tripleCount(), catalog.estimate(UNBOUND, UNBOUND, UNBOUND));
+        // Misra-Gries retrouve l'objet majoritaire pendant les ajouts
+        assertTrue(incremental.estimate(UNBOUND, NATIONALITY, FRANCE) >= 80);
+    }
+
+    @Test
+    void testSerialization() {
+        fill();
+        StatisticsCatalog catalog = StatisticsCatalog.compute(spo, pso, pos, ops);
+        StatisticsCatalog copy = StatisticsCatalog.fromBytes(ByteBuffer.wrap(catalog.toBytes()));
+        assertEquals(catalog.tripleCount(), copy.tripleCount());
+        assertEquals(catalog.distinctObjects(), copy.distinctObjects());
+        assertEquals(catalog.estimate(UNBOUND, NATIONALITY, FRANCE), copy.estimate(UNBOUND, NATIONALITY, FRANCE));
+        assertEquals(catalog.estimate(ANY_VALUE, LIKES, UNBOUND), copy.estimate(ANY_VALUE, LIKES, UNBOUND));
+        assertThrows(IllegalArgumentException.class, () -> StatisticsCatalog.fromBytes(ByteBuffer.wrap(new byte[24])
+                .putInt(20, 3)));
+    }
+}
@@ -0,0 +1,177 @@
+package qengine.storage;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qengine.model.RDFAtom;
+import qengine.model.StarQuery;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link ConcurrentHexaStore}.
+ */
+class ConcurrentHexaStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final SameObjectTermFactory factory = SameObjectTermFactory.instance();
+    private final Variable x = factory.createOrGetVariable("?x");
+    private final Term likes = factory.createOrGetLiteral("likes");
+    private final Term nationality = factory.createOrGetLiteral("nationality");
+    private final Term pizza = factory.createOrGetLiteral("Pizza");
+    private final Term france = factory.createOrGetLiteral("France");
+
+    private final StarQuery query = new StarQuery("q", List.of(
+            new RDFAtom(x, likes, pizza),
+            new RDFAtom(x, nationality, france)), List.of(x));
+
+    private static Set<String> answers(Iterator<Substitution> results, Variable variable) {
+        Set<String> res = new HashSet<>();
+        while (results.hasNext()) {
+            res.add(results.next().createImageOf(variable).label());
+        }
+        return res;
+    }
+
+    private void addPerson(ConcurrentHexaStore store, int i) {
+        Term person = factory.createOrGetLiteral("Person" + i);
+        store.add(new RDFAtom(person, likes, pizza));
+        store.add(new RDFAtom(person, nationality, france));
+    }
+
+    @Test
+    void testAddsBecomeVisibleWhenPublished() {
+        ConcurrentHexaStore store = new ConcurrentHexaStore(1_000, ForkJoinPool.commonPool());
+        addPerson(store, 0);
+        assertEquals(0, store.size());
+        assertFalse(store.match(query).hasNext());
+
+        store.publish();
+        RDFStorage epoch = store.snapshot();
+        assertEquals(Set.of("Person0"), answers(store.match(query), x));
+        assertFalse(store.add(new RDFAtom(factory.createOrGetLiteral("Person0"), likes, pizza)));
+
+        addPerson(store, 1);
+        store.publish();
+        assertEquals(Set.of("Person0", "Person1"), answers(store.match(query), x));
+        assertEquals(Set.of("Person0"), answers(epoch.match(query), x));
+        assertEquals(2, epoch.size());
+        assertEquals(4, store.size());
+    }
+
+    @Test
+    void testMatchesPlainStoreAcrossMerges() {
+        ConcurrentHexaStore store = new ConcurrentHexaStore(7, ForkJoinPool.commonPool());
+        RDFHexaStore reference = new RDFHexaStore();
+        for (int i = 0; i < 500; i++) {
+            Term person = factory.createOrGetLiteral("Person" + i);
+            RDFAtom[] atoms = {
+                    new RDFAtom(person, likes, factory.createOrGetLiteral("Dish" + i % 7)),
+                    new RDFAtom(person, nationality, factory.createOrGetLiteral("Country" + i % 3)),
+                    new RDFAtom(person, likes, pizza)
+            };
+            for (RDFAtom atom : atoms) {
+                assertEquals(reference.add(atom), store.add(atom));
+            }
+        }
+        store.publish();
+        assertEquals(reference.size(), store.size());
+        assertEquals(reference.getAtoms().size(), store.getAtoms().size());
+        StarQuery dishes = new StarQuery("q", List.of(
+                new RDFAtom(x, nationality, factory.createOrGetLiteral("Country1")),
+                new RDFAtom(x, likes, factory.createOrGetLiteral("Dish4"))), List.of(x));
+        assertEquals(answers(reference.match(dishes), x), answers(store.match(dishes), x));
+        RDFAtom pizzaLovers = new RDFAtom(x, likes, pizza);
+        assertEquals(answers(reference.match(pizzaLovers), x), answers(store.match(pizzaLovers), x));
+    }
+
+    @Test
+    void testLoadsTheSameTriplesAsPlainStore() throws Exception {
+        Path file = directory.resolve("people.nt");
+        Files.writeString(file, String.join("\n",
+                "<Person0> <likes> <Pizza> .",
+                "<Person0> <nationality> <France> .",
+                "<Person1> <likes> <Pizza> .",
+                "<Person0> <likes> <Pizza> .",
+                "<Person2> <nationality> <France> .",
+                "<Person2> <likes> <Pizza> .") + "\n");
+        ConcurrentHexaStore store = new ConcurrentHexaStore(2, ForkJoinPool.commonPool());
+        store.loadPersistentData(file.toString());
+        RDFHexaStore reference = new RDFHexaStore();
+        reference.loadPersistentData(file.toString());
+
+        assertEquals(reference.size(), store.size());
+        assertEquals(Set.of("Person0", "Person2"), answers(store.match(query), x));
+        assertEquals(answers(reference.match(query), x), answers(store.match(query), x));
+        // Le dictionnaire est partagé avec les ajouts qui suivent le chargement
+        assertFalse(store.add(new RDFAtom(factory.createOrGetLiteral("Person1"), likes, pizza)));
+    }
+
+    @Test
+    void testLevelsStayLogarithmicWhenPublishingEveryAdd() {
+        ConcurrentHexaStore store = new ConcurrentHexaStore(1, ForkJoinPool.commonPool());
+        RDFHexaStore reference = new RDFHexaStore();
+        for (int i = 0; i < 3_000; i++) {
+            RDFAtom atom = new RDFAtom(factory.createOrGetLiteral("Person" + i / 2),
+                    i % 2 == 0 ? likes : nationality, i % 2 == 0 ? pizza : france);
+            assertEquals(reference.add(atom), store.add(atom));
+            // Chaque niveau fait moins de la moitié du précédent
+            assertTrue(store.levelCount() <= 2 + 64 - Long.numberOfLeadingZeros(store.size()),
+                    "Too many levels: " + store.levelCount() + " for " + store.size() + " triples.");
+        }
+        assertEquals(reference.size(), store.size());
+        assertEquals(answers(reference.match(query), x), answers(store.match(query), x));
+        assertEquals(1_500, answers(store.match(query), x).size());
+    }
+
+    @Test
+    void testReadersSeeConsistentEpochsDuringIngest() throws InterruptedException {
+        ConcurrentHexaStore store = new ConcurrentHexaStore(64, ForkJoinPool.commonPool());
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                try {
+                    int seen = 0;
+                    while (!done.get()) {
+                        RDFStorage epoch = store.snapshot();
+                        // Chaque personne est ajoutée avec ses deux triplets
+                        int answers = answers(epoch.match(query), x).size();
+                        assertTrue(answers >= seen, "Epochs must not go back in time.");
+                        assertTrue(epoch.size() / 2 - 1 <= answers && answers <= epoch.size() / 2);
+                        seen = answers;
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            readers[r].start();
+        }
+        for (int i = 0; i < 5_000; i++) {
+            addPerson(store, i);
+        }
+        store.publish();
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+        assertEquals(5_000, answers(store.match(query), x).size());
+    }
+}
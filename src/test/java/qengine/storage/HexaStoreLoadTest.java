@@ -0,0 +1,113 @@
+package qengine.storage;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qengine.model.RDFAtom;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour le chargement par lots de {@link RDFHexaStore} et son
+ * bilan {@link LoadStatistics}.
+ */
+class HexaStoreLoadTest {
+
+    // 10 lignes, dont 3 doublons
+    private static final String DATA = String.join("\n",
+            "<http://ex.org/alice> <http://ex.org/likes> <http://ex.org/pizza> .",
+            "<http://ex.org/alice> <http://ex.org/nationality> <http://ex.org/france> .",
+            "<http://ex.org/bob> <http://ex.org/likes> <http://ex.org/pizza> .",
+            "<http://ex.org/alice> <http://ex.org/likes> <http://ex.org/pizza> .",
+            "<http://ex.org/bob> <http://ex.org/nationality> <http://ex.org/france> .",
+            "<http://ex.org/carol> <http://ex.org/likes> <http://ex.org/sushi> .",
+            "<http://ex.org/bob> <http://ex.org/likes> <http://ex.org/pizza> .",
+            "<http://ex.org/carol> <http://ex.org/nationality> <http://ex.org/japan> .",
+            "<http://ex.org/alice> <http://ex.org/likes> <http://ex.org/pizza> .",
+            "<http://ex.org/dave> <http://ex.org/likes> <http://ex.org/pizza> .") + "\n";
+
+    @TempDir
+    Path directory;
+
+    private final SameObjectTermFactory factory = SameObjectTermFactory.instance();
+    private final Variable x = factory.createOrGetVariable("?x");
+    private final Variable y = factory.createOrGetVariable("?y");
+
+    private static Set<String> answers(Iterator<Substitution> results) {
+        Set<String> res = new HashSet<>();
+        results.forEachRemaining(substitution -> res.add(substitution.toString()));
+        return res;
+    }
+
+    @Test
+    void testBatchSizeDoesNotChangeTheStore() throws Exception {
+        Path file = directory.resolve("duplicates.nt");
+        Files.writeString(file, DATA);
+        Term likes = factory.createOrGetLiteral("http://ex.org/likes");
+        Term nationality = factory.createOrGetLiteral("http://ex.org/nationality");
+        Term pizza = factory.createOrGetLiteral("http://ex.org/pizza");
+        Term france = factory.createOrGetLiteral("http://ex.org/france");
+        RDFAtom likesSomething = new RDFAtom(x, likes, y);
+        RDFAtom frenchAtom = new RDFAtom(x, nationality, france);
+
+        int[] batchSizes = {1, 3, 1_000};
+        int[] expectedBatches = {10, 4, 1};
+        List<Integer> expectedAtoms = null;
+        Set<String> expectedLikers = null;
+        for (int i = 0; i < batchSizes.length; i++) {
+            RDFHexaStore store = new RDFHexaStore();
+            LoadStatistics statistics = store.loadPersistentData(file.toString(), batchSizes[i]);
+            assertEquals(10, statistics.triplesRead());
+            assertEquals(7, statistics.triplesAdded());
+            assertEquals(expectedBatches[i], statistics.batches());
+            assertEquals(7, store.size());
+
+            List<Integer> atoms = new ArrayList<>(store.getAtoms());
+            Set<String> likers = answers(store.match(likesSomething));
+            if (expectedAtoms == null) {
+                expectedAtoms = atoms;
+                expectedLikers = likers;
+            }
+            assertEquals(expectedAtoms, atoms);
+            assertEquals(expectedLikers, likers);
+            assertEquals(4, likers.size());
+            Set<String> pizzaLovers = new HashSet<>();
+            store.match(new RDFAtom(x, likes, pizza)).forEachRemaining(s -> pizzaLovers.add(s.createImageOf(x).label()));
+            assertEquals(Set.of("http://ex.org/alice", "http://ex.org/bob", "http://ex.org/dave"), pizzaLovers);
+            Set<String> french = new HashSet<>();
+            store.match(frenchAtom).forEachRemaining(s -> french.add(s.createImageOf(x).label()));
+            assertEquals(Set.of("http://ex.org/alice", "http://ex.org/bob"), french);
+        }
+    }
+
+    @Test
+    void testScannerLoadsTheSameStore() throws Exception {
+        Path file = directory.resolve("duplicates.nt");
+        Files.writeString(file, DATA);
+        RDFHexaStore parsed = new RDFHexaStore();
+        LoadStatistics expected = parsed.loadPersistentData(file.toString(), 3);
+        RDFHexaStore scanned = new RDFHexaStore();
+        LoadStatistics actual = scanned.scanPersistentData(file.toString(), 3);
+
+        assertEquals(expected.triplesRead(), actual.triplesRead());
+        assertEquals(expected.triplesAdded(), actual.triplesAdded());
+        assertEquals(expected.batches(), actual.batches());
+        assertEquals(new ArrayList<>(parsed.getAtoms()), new ArrayList<>(scanned.getAtoms()));
+    }
+
+    @Test
+    void testInvalidBatchSizeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new RDFHexaStore().loadPersistentData("unused.nt", 0));
+    }
+}
@@ -0,0 +1,90 @@
+package qengine.storage;
+
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import qengine.query.StatisticsCatalog;
+import qengine.util.CsrTripleIndex;
+import qengine.util.TermDictionary;
+import qengine.util.TermEncoder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour le format d'instantané {@link HexaStoreSnapshot}.
+ */
+class HexaStoreSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private TermEncoder encoder;
+    private CsrTripleIndex[] indexes;
+    private StatisticsCatalog statistics;
+
+    private void buildContents() {
+        SameObjectTermFactory factory = SameObjectTermFactory.instance();
+        encoder = new TermEncoder();
+        encoder.encode(factory.createOrGetLiteral("Alice"));
+        encoder.encode(factory.createOrGetLiteral("knows"));
+        encoder.encode(factory.createOrGetLiteral("Bob"));
+        encoder.encode(factory.createOrGetLiteral("Éloïse"));
+        int[] triples = {0, 1, 2, 2, 1, 3, 0, 1, 3};
+        indexes = new CsrTripleIndex[6];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = CsrTripleIndex.build(triples, 3);
+        }
+        statistics = StatisticsCatalog.compute(indexes[1], indexes[2], indexes[3], indexes[4]);
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        buildContents();
+        Path path = directory.resolve("store.hexa");
+        HexaStoreSnapshot.write(path, encoder, indexes, statistics, 42);
+
+        HexaStoreSnapshot.Contents contents = HexaStoreSnapshot.read(path, 42, true);
+        assertEquals(3, contents.tripleCount());
+        TermDictionary dictionary = contents.dictionary();
+        assertEquals(encoder.size(), dictionary.size());
+        for (int code = 0; code < encoder.size(); code++) {
+            Term term = encoder.decode(code);
+            assertEquals(term.label(), dictionary.decode(code).label());
+            assertEquals(code, dictionary.lookup(term), "La table de hachage doit retrouver chaque terme.");
+        }
+        assertEquals(TermDictionary.NOT_FOUND,
+                dictionary.lookup(SameObjectTermFactory.instance().createOrGetLiteral("Carol")));
+        assertArrayEquals(new int[]{2, 3}, contents.indexes()[1].get(0, 1).toArray());
+        assertEquals(3, contents.statistics().tripleCount());
+        assertEquals(statistics.estimate(0, 1, StatisticsCatalog.UNBOUND),
+                contents.statistics().estimate(0, 1, StatisticsCatalog.UNBOUND));
+    }
+
+    @Test
+    void testRejectsCorruptedOrStaleSnapshot() throws IOException {
+        buildContents();
+        Path path = directory.resolve("store.hexa");
+        HexaStoreSnapshot.write(path, encoder, indexes, statistics, 42);
+
+        assertThrows(IOException.class, () -> HexaStoreSnapshot.read(path, 7, false),
+                "Un instantané construit depuis une autre source doit être refusé.");
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 1;
+        Path corrupted = directory.resolve("corrupted.hexa");
+        Files.write(corrupted, bytes);
+        assertThrows(IOException.class, () -> HexaStoreSnapshot.read(corrupted, 0, true));
+
+        bytes = Files.readAllBytes(path);
+        bytes[4]++;
+        Path newer = directory.resolve("newer.hexa");
+        Files.write(newer, bytes);
+        assertThrows(IOException.class, () -> HexaStoreSnapshot.read(newer, 0, false),
+                "Une version inconnue du format doit être refusée.");
+    }
+}
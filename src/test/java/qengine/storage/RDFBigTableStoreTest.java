@@ -0,0 +1,118 @@
+package qengine.storage;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import qengine.model.RDFAtom;
+import qengine.model.StarQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link RDFBigTableStore}, dont les réponses aux
+ * requêtes en étoile sont comparées à celles de {@link RDFHexaStore}.
+ */
+class RDFBigTableStoreTest {
+
+    private final SameObjectTermFactory factory = SameObjectTermFactory.instance();
+    private final Variable x = factory.createOrGetVariable("?x");
+    private final Variable y = factory.createOrGetVariable("?y");
+    private final Variable z = factory.createOrGetVariable("?z");
+    private final Term likes = factory.createOrGetLiteral("likes");
+    private final Term knows = factory.createOrGetLiteral("knows");
+    private final Term nationality = factory.createOrGetLiteral("nationality");
+    private final Term alice = factory.createOrGetLiteral("Alice");
+    private final Term bob = factory.createOrGetLiteral("Bob");
+    private final Term carol = factory.createOrGetLiteral("Carol");
+    private final Term pizza = factory.createOrGetLiteral("Pizza");
+    private final Term sushi = factory.createOrGetLiteral("Sushi");
+    private final Term france = factory.createOrGetLiteral("France");
+
+    private RDFBigTableStore bigTable;
+    private RDFHexaStore hexaStore;
+
+    @BeforeEach
+    void setUp() {
+        bigTable = new RDFBigTableStore();
+        hexaStore = new RDFHexaStore();
+        List<RDFAtom> atoms = List.of(
+                new RDFAtom(alice, likes, pizza),
+                new RDFAtom(alice, likes, sushi),
+                new RDFAtom(alice, nationality, france),
+                new RDFAtom(bob, likes, pizza),
+                new RDFAtom(bob, nationality, france),
+                new RDFAtom(bob, knows, bob),
+                new RDFAtom(bob, knows, alice),
+                new RDFAtom(carol, likes, sushi),
+                new RDFAtom(carol, knows, carol));
+        for (RDFAtom atom : atoms) {
+            bigTable.add(atom);
+            hexaStore.add(atom);
+        }
+    }
+
+    private static List<String> answers(Iterator<Substitution> results, Collection<Variable> variables) {
+        List<String> res = new ArrayList<>();
+        while (results.hasNext()) {
+            Substitution substitution = results.next();
+            StringBuilder row = new StringBuilder();
+            for (Variable variable : variables) {
+                row.append(substitution.createImageOf(variable).label()).append(' ');
+            }
+            res.add(row.toString().trim());
+        }
+        return res;
+    }
+
+    private List<String> assertSameAnswers(StarQuery query) {
+        List<String> expected = answers(hexaStore.match(query), query.getAnswerVariables());
+        List<String> actual = answers(bigTable.match(query), query.getAnswerVariables());
+        assertEquals(new HashSet<>(actual).size(), actual.size(), "Answers must be distinct.");
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+        return actual;
+    }
+
+    @Test
+    void testDuplicateAnswersAreRemoved() {
+        // Alice aime deux plats : la projection sur ?x donnerait deux fois Alice
+        StarQuery query = new StarQuery("q", List.of(
+                new RDFAtom(x, likes, y),
+                new RDFAtom(x, nationality, france)), List.of(x));
+        assertEquals(Set.of("Alice", "Bob"), new HashSet<>(assertSameAnswers(query)));
+    }
+
+    @Test
+    void testVariableRepeatedInsideAnAtom() {
+        StarQuery query = new StarQuery("q", List.of(
+                new RDFAtom(x, knows, x),
+                new RDFAtom(x, likes, z)), List.of(x, z));
+        assertEquals(Set.of("Bob Pizza", "Carol Sushi"), new HashSet<>(assertSameAnswers(query)));
+    }
+
+    @Test
+    void testConstantMissingFromDictionary() {
+        StarQuery query = new StarQuery("q", List.of(
+                new RDFAtom(x, likes, pizza),
+                new RDFAtom(x, nationality, factory.createOrGetLiteral("Atlantis"))), List.of(x));
+        assertTrue(assertSameAnswers(query).isEmpty());
+    }
+
+    @Test
+    void testAtomWithoutMatches() {
+        // Toutes les constantes sont connues, mais aucun triplet ne relie Sushi à une nationalité
+        StarQuery query = new StarQuery("q", List.of(
+                new RDFAtom(x, likes, y),
+                new RDFAtom(x, nationality, sushi)), List.of(x, y));
+        assertTrue(assertSameAnswers(query).isEmpty());
+    }
+}
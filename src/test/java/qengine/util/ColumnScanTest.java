@@ -0,0 +1,58 @@
+package qengine.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour les classes {@link ColumnScan} et {@link IntColumn}.
+ */
+class ColumnScanTest {
+
+    @Test
+    void testColumnSpansSeveralChunks() {
+        IntColumn column = new IntColumn();
+        int size = 2 * IntColumn.CHUNK_SIZE + 5;
+        for (int i = 0; i < size; i++) {
+            column.add(i * 3);
+        }
+        assertEquals(size, column.size());
+        assertEquals(3, column.chunkCount());
+        assertEquals(5, column.chunkLength(2));
+        assertEquals(3 * (IntColumn.CHUNK_SIZE + 1), column.get(IntColumn.CHUNK_SIZE + 1));
+        assertEquals(3 * (size - 1), column.toArray()[size - 1]);
+        assertThrows(IndexOutOfBoundsException.class, () -> column.get(size));
+    }
+
+    @Test
+    void testSelectMatchesRowByRowFilter() {
+        Random random = new Random(3);
+        int length = 1000;
+        int[] subjects = new int[length];
+        int[] predicates = new int[length];
+        int[] objects = new int[length];
+        for (int i = 0; i < length; i++) {
+            subjects[i] = random.nextInt(10);
+            predicates[i] = random.nextInt(4);
+            objects[i] = random.nextInt(10);
+        }
+        int[] selection = new int[length];
+
+        for (int bound = 0; bound < 8; bound++) {
+            ColumnScan scan = new ColumnScan(3, 1, 7, bound);
+            int n = scan.select(subjects, predicates, objects, length, selection);
+            int expected = 0;
+            for (int i = 0; i < length; i++) {
+                boolean matches = ((bound & Globals.SUBJECT_IS_PRESENT) == 0 || subjects[i] == 3)
+                        && ((bound & Globals.PREDICAT_IS_PRESENT) == 0 || predicates[i] == 1)
+                        && ((bound & Globals.OBJECT_IS_PRESENT) == 0 || objects[i] == 7);
+                if (matches) {
+                    assertEquals(i, selection[expected++], "Les lignes doivent être sélectionnées dans l'ordre.");
+                }
+            }
+            assertEquals(expected, n);
+        }
+    }
+}
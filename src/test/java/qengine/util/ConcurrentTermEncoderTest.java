@@ -0,0 +1,80 @@
+package qengine.util;
+
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link ConcurrentTermEncoder}.
+ */
+class ConcurrentTermEncoderTest {
+
+    private final SameObjectTermFactory factory = SameObjectTermFactory.instance();
+
+    @Test
+    void testIdsAreDenseAndStable() {
+        ConcurrentTermEncoder encoder = new ConcurrentTermEncoder(1);
+        Term alice = factory.createOrGetLiteral("Alice");
+        Term bob = factory.createOrGetLiteral("Bob");
+        assertEquals(0, encoder.encode(alice));
+        assertEquals(1, encoder.encode(bob));
+        assertEquals(0, encoder.encode(alice));
+        assertEquals(2, encoder.size());
+        assertSame(bob, encoder.decode(1));
+        assertEquals(1, encoder.lookup(bob));
+        assertEquals(TermDictionary.NOT_FOUND, encoder.lookup(factory.createOrGetLiteral("Carol")));
+        assertNull(encoder.decode(2));
+    }
+
+    @Test
+    void testConcurrentEncodingGivesOneIdPerLabel() throws InterruptedException {
+        ConcurrentTermEncoder encoder = new ConcurrentTermEncoder(4);
+        int n = 50_000;
+        Term[] terms = new Term[n];
+        for (int i = 0; i < n; i++) {
+            terms[i] = factory.createOrGetLiteral("term" + i);
+        }
+        int threads = 8;
+        int[][] codes = new int[threads][n];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                // Chaque thread parcourt les termes dans un ordre différent
+                for (int k = 0; k < n; k++) {
+                    int i = (int) ((k + (long) worker * n / threads) % n);
+                    codes[worker][i] = encoder.encode(terms[i]);
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(n, encoder.size());
+        boolean[] used = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            int code = codes[0][i];
+            for (int t = 1; t < threads; t++) {
+                assertEquals(code, codes[t][i]);
+            }
+            assertFalse(used[code]);
+            used[code] = true;
+            assertSame(terms[i], encoder.decode(code));
+            assertEquals(code, encoder.lookup(terms[i]));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package qengine.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link CsrTripleIndex}.
+ */
+class CsrTripleIndexTest {
+
+    @Test
+    void testBuildSortsAndDeduplicates() {
+        int[] triples = {
+                3, 1, 9,
+                1, 4, 2,
+                1, 2, 7,
+                1, 2, 5,
+                1, 2, 7,
+        };
+        CsrTripleIndex index = CsrTripleIndex.build(triples, 5);
+
+        assertEquals(4, index.size(), "Les doublons ne doivent pas être conservés.");
+        assertArrayEquals(new int[]{1, 3}, index.firsts().toArray());
+        assertArrayEquals(new int[]{2, 4}, index.seconds(1).toArray());
+        assertArrayEquals(new int[]{5, 7}, index.get(1, 2).toArray());
+        assertArrayEquals(new int[]{9}, index.get(3, 1).toArray());
+        assertTrue(index.get(1, 2).isSorted());
+    }
+
+    @Test
+    void testMissingKeys() {
+        CsrTripleIndex index = CsrTripleIndex.build(new int[]{1, 2, 3}, 1);
+        assertTrue(index.get(0, 2).isEmpty());
+        assertTrue(index.get(1, 3).isEmpty());
+        assertTrue(index.seconds(2).isEmpty());
+        assertTrue(CsrTripleIndex.build(new int[0], 0).firsts().isEmpty());
+    }
+
+    @Test
+    void testBuildWithSparseFirstTerms() {
+        // Des identifiants bien plus grands que le nombre de triplets, comme dans un delta
+        int[] triples = {
+                900_000, 4, 2,
+                7, 1, 3,
+                900_000, 4, 1,
+                123_456, 2, 2,
+                7, 1, 3,
+        };
+        CsrTripleIndex index = CsrTripleIndex.build(triples, 5);
+
+        assertEquals(4, index.size());
+        assertArrayEquals(new int[]{7, 123_456, 900_000}, index.firsts().toArray());
+        assertArrayEquals(new int[]{1, 2}, index.get(900_000, 4).toArray());
+        assertArrayEquals(new int[]{3}, index.get(7, 1).toArray());
+        assertTrue(index.get(8, 1).isEmpty());
+        assertTrue(index.seconds(900_001).isEmpty());
+    }
+
+    @Test
+    void testSameContentAsMutableIndex() {
+        HexaStoreIndex mutable = new HexaStoreIndex();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            mutable.add(random.nextInt(50), random.nextInt(20), random.nextInt(500));
+        }
+        CsrTripleIndex sealed = CsrTripleIndex.of(mutable);
+
+        assertEquals(mutable.size(), sealed.size());
+        for (int first = 0; first < 50; first++) {
+            assertEquals(mutable.seconds(first).size(), sealed.seconds(first).size());
+            for (int second = 0; second < 20; second++) {
+                IntList expected = mutable.get(first, second);
+                IntSlice actual = sealed.get(first, second);
+                assertEquals(expected.size(), actual.size());
+                for (int k = 0; k < expected.size(); k++) {
+                    assertTrue(actual.indexOf(expected.get(k)) >= 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testParallelBuildMatchesSequentialBuild() {
+        // Un premier terme très fréquent force le découpage d'un même groupe
+        Random random = new Random(7);
+        int count = 100_000;
+        int[] triples = new int[3 * count];
+        for (int t = 0; t < count; t++) {
+            triples[3 * t] = t % 3 == 0 ? random.nextInt(1000) : 1;
+            triples[3 * t + 1] = random.nextInt(30);
+            triples[3 * t + 2] = random.nextInt(5000);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int[] order : new int[][]{{0, 1, 2}, {2, 0, 1}, {1, 2, 0}}) {
+                int[] permuted = new int[triples.length];
+                for (int t = 0; t < count; t++) {
+                    for (int k = 0; k < 3; k++) {
+                        permuted[3 * t + k] = triples[3 * t + order[k]];
+                    }
+                }
+                CsrTripleIndex expected = CsrTripleIndex.build(permuted, count);
+                CsrTripleIndex actual = CsrTripleIndex.build(triples, count, order[0], order[1], order[2], pool);
+                assertArrayEquals(expected.toTriples(), actual.toTriples());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testAddIsRejected() {
+        CsrTripleIndex index = CsrTripleIndex.build(new int[]{1, 2, 3}, 1);
+        assertThrows(UnsupportedOperationException.class, () -> index.add(1, 2, 4));
+    }
+}
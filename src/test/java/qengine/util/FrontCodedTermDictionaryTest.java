@@ -0,0 +1,54 @@
+package qengine.util;
+
+import fr.boreal.model.logicalElements.api.Literal;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link FrontCodedTermDictionary}.
+ */
+class FrontCodedTermDictionaryTest {
+
+    private final SameObjectTermFactory factory = SameObjectTermFactory.instance();
+
+    @Test
+    void testLookupAndDecodeKeepOriginalIds() {
+        TermEncoder encoder = new TermEncoder();
+        int n = 1000;
+        for (int i = n - 1; i >= 0; i--) {
+            encoder.encode(factory.createOrGetConstant("http://db.uwaterloo.ca/~galuc/wsdbm/User" + i));
+        }
+        encoder.encode(factory.createOrGetLiteral("Éloïse"));
+        encoder.encode(factory.createOrGetLiteral(""));
+
+        FrontCodedTermDictionary dictionary = FrontCodedTermDictionary.of(encoder);
+        assertEquals(encoder.size(), dictionary.size());
+        for (int code = 0; code < encoder.size(); code++) {
+            Term term = encoder.decode(code);
+            assertEquals(code, dictionary.lookup(term));
+            assertEquals(term.label(), dictionary.decode(code).label());
+        }
+        assertInstanceOf(Literal.class, dictionary.decode(n));
+        assertEquals(TermDictionary.NOT_FOUND, dictionary.lookup(factory.createOrGetLiteral("http://db")));
+        assertEquals(TermDictionary.NOT_FOUND, dictionary.lookup(factory.createOrGetLiteral("zzz")));
+        assertEquals(TermDictionary.NOT_FOUND,
+                dictionary.lookup(factory.createOrGetLiteral("http://db.uwaterloo.ca/~galuc/wsdbm/User10000")));
+    }
+
+    @Test
+    void testSharedPrefixesAreStoredOnce() {
+        TermEncoder encoder = new TermEncoder();
+        int n = 1000;
+        long labelBytes = 0;
+        for (int i = 0; i < n; i++) {
+            Term term = factory.createOrGetConstant("http://db.uwaterloo.ca/~galuc/wsdbm/User" + i);
+            encoder.encode(term);
+            labelBytes += term.label().length();
+        }
+        FrontCodedTermDictionary.Buffers buffers = FrontCodedTermDictionary.encode(encoder);
+        assertTrue(buffers.data().length < labelBytes / 4);
+    }
+}
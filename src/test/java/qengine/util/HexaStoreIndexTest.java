@@ -0,0 +1,89 @@
+package qengine.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link HexaStoreIndex} et ses structures sous-jacentes.
+ */
+class HexaStoreIndexTest {
+
+    @Test
+    void testAddAndGet() {
+        HexaStoreIndex index = new HexaStoreIndex();
+        assertTrue(index.add(1, 2, 3));
+        assertTrue(index.add(1, 2, 4));
+        assertTrue(index.add(1, 5, 3));
+
+        IntHashSet thirds = index.get(1, 2);
+        assertEquals(2, thirds.size());
+        assertTrue(thirds.contains(3));
+        assertTrue(thirds.contains(4));
+        assertEquals(2, index.seconds(1).size());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testAddDuplicate() {
+        HexaStoreIndex index = new HexaStoreIndex();
+        assertTrue(index.add(0, 0, 0));
+        assertFalse(index.add(0, 0, 0), "Un triplet déjà présent ne doit pas être ajouté deux fois.");
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testMissingKeys() {
+        HexaStoreIndex index = new HexaStoreIndex();
+        index.add(1, 2, 3);
+        assertTrue(index.get(7, 2).isEmpty(), "Un premier terme inconnu donne un ensemble vide.");
+        assertTrue(index.get(1, 7).isEmpty(), "Un second terme inconnu donne un ensemble vide.");
+        assertTrue(index.seconds(7).isEmpty());
+    }
+
+    @Test
+    void testLargeSetsAndToTriples() {
+        HexaStoreIndex index = new HexaStoreIndex();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            int first = i % 7;
+            int second = i % 3;
+            index.add(first, second, i);
+            expected.add(((long) first << 40) | ((long) second << 20) | i);
+        }
+        assertEquals(1000, index.size());
+        assertTrue(index.get(0, 0).contains(21));
+        assertFalse(index.get(0, 0).contains(22));
+
+        int[] triples = index.toTriples();
+        assertEquals(3000, triples.length);
+        Set<Long> actual = new HashSet<>();
+        for (int t = 0; t < triples.length; t += 3) {
+            actual.add(((long) triples[t] << 40) | ((long) triples[t + 1] << 20) | triples[t + 2]);
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void testIntIntHashMap() {
+        IntIntHashMap map = new IntIntHashMap();
+        for (int i = 0; i < 100; i++) {
+            map.put(i * 31, i);
+        }
+        map.put(31, 42);
+        assertEquals(100, map.size());
+        assertEquals(42, map.getValue(31));
+        assertEquals(99, map.getValue(99 * 31));
+        assertEquals(IntIntHashMap.NO_VALUE, map.getValue(5));
+        assertEquals(62, map.get(2));
+        assertEquals(2, map.valueAt(2));
+    }
+
+    @Test
+    void testNegativeValuesRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new IntHashSet().add(-1));
+    }
+}
@@ -0,0 +1,43 @@
+package qengine.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link LatencyHistogram}.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void testPercentilesWithinRelativePrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000_000, histogram.max());
+        for (double percentile : new double[]{0.5, 0.95, 0.99, 0.999}) {
+            double expected = percentile * 100_000_000;
+            double actual = histogram.percentile(percentile);
+            assertTrue(actual >= expected && actual <= expected * (1 + 1.0 / 32),
+                    percentile + ": " + actual + " vs " + expected);
+        }
+        assertEquals(50_000_500, histogram.mean(), 1e-6);
+    }
+
+    @Test
+    void testSmallValuesAreExactAndResetEmpties() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(7);
+        histogram.record(-5);
+        assertEquals(0, histogram.percentile(0.1));
+        assertEquals(3, histogram.percentile(0.5));
+        assertEquals(7, histogram.percentile(1.0));
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(0.99));
+    }
+}
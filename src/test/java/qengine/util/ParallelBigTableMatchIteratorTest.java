@@ -0,0 +1,88 @@
+package qengine.util;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.api.Variable;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+import qengine.model.RDFAtom;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link ParallelBigTableMatchIterator}.
+ */
+class ParallelBigTableMatchIteratorTest {
+
+    private final TermEncoder encoder = new TermEncoder();
+    private final IntColumn subjects = new IntColumn();
+    private final IntColumn predicates = new IntColumn();
+    private final IntColumn objects = new IntColumn();
+
+    private void fill(int rows) {
+        SameObjectTermFactory factory = SameObjectTermFactory.instance();
+        Random random = new Random(11);
+        for (int i = 0; i < rows; i++) {
+            subjects.add(encoder.encode(factory.createOrGetLiteral("s" + random.nextInt(500))));
+            predicates.add(encoder.encode(factory.createOrGetLiteral("p" + random.nextInt(3))));
+            objects.add(encoder.encode(factory.createOrGetLiteral("o" + random.nextInt(500))));
+        }
+    }
+
+    private static List<Substitution> drain(Iterator<Substitution> iterator) {
+        List<Substitution> res = new ArrayList<>();
+        iterator.forEachRemaining(res::add);
+        return res;
+    }
+
+    @Test
+    void testSameResultsAsSequentialScan() {
+        // Plusieurs partitions, la dernière incomplète
+        fill(ParallelBigTableMatchIterator.PARTITION_CHUNKS * IntColumn.CHUNK_SIZE * 2 + 123);
+        SameObjectTermFactory factory = SameObjectTermFactory.instance();
+        Variable x = factory.createOrGetVariable("?x");
+        Variable y = factory.createOrGetVariable("?y");
+        Term p1 = factory.createOrGetLiteral("p1");
+        RDFAtom atom = new RDFAtom(x, p1, y);
+        int bound = Globals.PREDICAT_IS_PRESENT;
+
+        List<Substitution> expected = drain(
+                new BigTableMatchIterator(atom, bound, encoder, subjects, predicates, objects));
+        assertFalse(expected.isEmpty());
+
+        ExecutorService pool = new ForkJoinPool(4);
+        try (ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            assertEquals(expected, drain(new ParallelBigTableMatchIterator(atom, bound, encoder, subjects,
+                    predicates, objects, pool, true)), "Le mode ordonné doit reproduire le parcours séquentiel.");
+            List<Substitution> unordered = drain(new ParallelBigTableMatchIterator(atom, bound, encoder, subjects,
+                    predicates, objects, virtualThreads, false));
+            assertEquals(expected.size(), unordered.size());
+            assertEquals(new HashSet<>(expected), new HashSet<>(unordered));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testEmptyTable() {
+        SameObjectTermFactory factory = SameObjectTermFactory.instance();
+        RDFAtom atom = new RDFAtom(factory.createOrGetVariable("?x"), factory.createOrGetLiteral("p"),
+                factory.createOrGetVariable("?y"));
+        ExecutorService pool = new ForkJoinPool(2);
+        try {
+            assertFalse(new ParallelBigTableMatchIterator(atom, Globals.PREDICAT_IS_PRESENT, encoder, subjects,
+                    predicates, objects, pool, true).hasNext());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
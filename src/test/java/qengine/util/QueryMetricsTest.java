@@ -0,0 +1,57 @@
+package qengine.util;
+
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+import qengine.model.RDFAtom;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link QueryMetrics}.
+ */
+class QueryMetricsTest {
+
+    @Test
+    void testMeteredAnswersAreCountedOnceExhausted() {
+        QueryMetrics metrics = new QueryMetrics();
+        Iterator<String> answers = metrics.metered("shape", System.nanoTime(), List.of("a", "b", "c").iterator());
+        answers.next();
+        answers.next();
+        assertEquals(0L, metrics.getQueryCounts().get("shape"));
+
+        answers.next();
+        assertFalse(answers.hasNext());
+        assertFalse(answers.hasNext());
+        metrics.metered("shape", System.nanoTime(), List.of().iterator()).hasNext();
+        assertEquals(2L, metrics.getQueryCounts().get("shape"));
+        assertEquals(3L, metrics.getResultCounts().get("shape"));
+        assertTrue(metrics.dump().contains("results: 0:1 [2,4):1"), metrics.dump());
+    }
+
+    @Test
+    void testCountersAndReset() {
+        QueryMetrics metrics = new QueryMetrics();
+        metrics.indexLookup(3);
+        metrics.indexLookup(3);
+        metrics.decoded(5);
+        assertEquals(2L, metrics.getIndexLookups().get("P_O_S"));
+        assertEquals(0L, metrics.getIndexLookups().get("S_P_O"));
+        assertEquals(5, metrics.getDecodedTerms());
+
+        metrics.reset();
+        assertEquals(0L, metrics.getIndexLookups().get("P_O_S"));
+        assertEquals(0, metrics.getDecodedTerms());
+    }
+
+    @Test
+    void testAtomShape() {
+        SameObjectTermFactory factory = SameObjectTermFactory.instance();
+        Term p = factory.createOrGetLiteral("p");
+        Term o = factory.createOrGetLiteral("o");
+        assertEquals("atom ? p o", QueryMetrics.atomShape(new RDFAtom(factory.createOrGetVariable("?x"), p, o)));
+    }
+}
@@ -0,0 +1,63 @@
+package qengine.util;
+
+import fr.boreal.model.logicalElements.api.Substitution;
+import fr.boreal.model.logicalElements.api.Variable;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link SubstitutionIterator}.
+ */
+class SubstitutionIteratorTest {
+
+    private final SameObjectTermFactory factory = SameObjectTermFactory.instance();
+    private final TermEncoder encoder = new TermEncoder();
+    private final Variable x = factory.createOrGetVariable("?x");
+    private final Variable y = factory.createOrGetVariable("?y");
+
+    private int encode(String label) {
+        return encoder.encode(factory.createOrGetLiteral(label));
+    }
+
+    @Test
+    void testSingleVariable() {
+        HexaStoreIndex index = new HexaStoreIndex();
+        int a = encode("a");
+        int p = encode("p");
+        index.add(a, p, encode("b"));
+        index.add(a, p, encode("c"));
+
+        SubstitutionIterator iterator = new SubstitutionIterator(index.get(a, p), x, encoder);
+        List<String> labels = new ArrayList<>();
+        while (iterator.hasNext()) {
+            Substitution substitution = iterator.next();
+            labels.add(substitution.createImageOf(x).label());
+        }
+        assertEquals(List.of("b", "c"), labels);
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    @Test
+    void testTwoVariablesSkipsNothing() {
+        HexaStoreIndex index = new HexaStoreIndex();
+        int a = encode("a");
+        int p = encode("p");
+        int q = encode("q");
+        index.add(a, p, encode("b"));
+        index.add(a, q, encode("c"));
+        index.add(a, q, encode("d"));
+
+        SubstitutionIterator iterator = new SubstitutionIterator(index, a, x, y, encoder);
+        List<String> pairs = new ArrayList<>();
+        iterator.forEachRemaining(s -> pairs.add(s.createImageOf(x).label() + s.createImageOf(y).label()));
+        assertEquals(List.of("pb", "qc", "qd"), pairs);
+
+        assertFalse(new SubstitutionIterator(index, encode("inconnu"), x, y, encoder).hasNext());
+    }
+}
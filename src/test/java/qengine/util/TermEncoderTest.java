@@ -0,0 +1,63 @@
+package qengine.util;
+
+import fr.boreal.model.logicalElements.api.Term;
+import fr.boreal.model.logicalElements.factory.impl.SameObjectTermFactory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitaires pour la classe {@link TermEncoder}.
+ */
+class TermEncoderTest {
+
+    private final SameObjectTermFactory factory = SameObjectTermFactory.instance();
+
+    @Test
+    void testIdsAreDenseAndStable() {
+        TermEncoder encoder = new TermEncoder();
+        Term alice = factory.createOrGetLiteral("Alice");
+        Term bob = factory.createOrGetLiteral("Bob");
+        assertEquals(0, encoder.encode(alice));
+        assertEquals(1, encoder.encode(bob));
+        assertEquals(0, encoder.encode(alice));
+        assertEquals(2, encoder.size());
+        assertSame(bob, encoder.decode(1));
+        assertEquals(1, encoder.lookup(bob));
+        assertEquals(TermDictionary.NOT_FOUND, encoder.lookup(factory.createOrGetLiteral("Carol")));
+        assertNull(encoder.decode(2));
+    }
+
+    @Test
+    void testEncodingSurvivesGrowth() {
+        TermEncoder encoder = new TermEncoder();
+        int n = 10_000;
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, encoder.encode(factory.createOrGetLiteral("term" + i)));
+        }
+        for (int i = 0; i < n; i++) {
+            Term term = factory.createOrGetLiteral("term" + i);
+            assertEquals(i, encoder.lookup(term));
+            assertEquals(i, encoder.encode(term));
+            assertSame(term, encoder.decode(i));
+        }
+        assertEquals(n, encoder.size());
+    }
+
+    @Test
+    void testSnapshotIgnoresLaterTerms() {
+        TermEncoder encoder = new TermEncoder();
+        for (int i = 0; i < 100; i++) {
+            encoder.encode(factory.createOrGetLiteral("term" + i));
+        }
+        TermDictionary snapshot = encoder.snapshot();
+        for (int i = 100; i < 5_000; i++) {
+            encoder.encode(factory.createOrGetLiteral("term" + i));
+        }
+        assertEquals(100, snapshot.size());
+        assertEquals(42, snapshot.lookup(factory.createOrGetLiteral("term42")));
+        assertEquals(TermDictionary.NOT_FOUND, snapshot.lookup(factory.createOrGetLiteral("term4200")));
+        assertNull(snapshot.decode(100));
+        assertEquals(4200, encoder.lookup(factory.createOrGetLiteral("term4200")));
+    }
+}